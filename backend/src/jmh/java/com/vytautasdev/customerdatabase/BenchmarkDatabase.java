@@ -0,0 +1,94 @@
+package com.vytautasdev.customerdatabase;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.Map;
+
+/**
+ * A migrated Postgres for the database benchmarks: the one {@code benchmark.datasource.url} (with
+ * {@code benchmark.datasource.username} and {@code benchmark.datasource.password}) points at, or else a container
+ * started like the one {@link AbstractTestcontainers} gives the tests.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> container;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> container, String url, String username, String password) {
+        this.container = container;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.jdbcTemplate = jdbcTemplate(url);
+    }
+
+    public static BenchmarkDatabase start() {
+        var url = System.getProperty("benchmark.datasource.url");
+        BenchmarkDatabase database;
+        if (url != null) {
+            database = new BenchmarkDatabase(null, url,
+                    System.getProperty("benchmark.datasource.username", "vytautasdev"),
+                    System.getProperty("benchmark.datasource.password", "pass1234"));
+        } else {
+            var container = new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("vytautasdev-benchmark")
+                    .withUsername("vytautasdev")
+                    .withPassword("pass1234");
+            container.start();
+            database = new BenchmarkDatabase(container, container.getJdbcUrl(), container.getUsername(),
+                    container.getPassword());
+        }
+        database.flyway().load().migrate();
+        return database;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Connections with {@code schema} first on the search path, for benchmarks that migrate a schema of their own;
+     * the triggers name their tables without a schema, like the application does.
+     */
+    public JdbcTemplate getJdbcTemplate(String schema) {
+        return jdbcTemplate(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+    }
+
+    /**
+     * Migrations for {@code schema} up to and including {@code target}.
+     */
+    public Flyway flyway(String schema, String target) {
+        return flyway().schemas(schema).target(target).load();
+    }
+
+    private FluentConfiguration flyway() {
+        return Flyway.configure()
+                .dataSource(url, username, password)
+                .configuration(Map.of(
+                        // the default lock holds a transaction open that CREATE INDEX CONCURRENTLY waits on forever
+                        "flyway.postgresql.transactional.lock", "false"
+                ));
+    }
+
+    private JdbcTemplate jdbcTemplate(String url) {
+        return new JdbcTemplate(DataSourceBuilder.create()
+                .url(url)
+                .username(username)
+                .password(password)
+                .build());
+    }
+
+    @Override
+    public void close() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
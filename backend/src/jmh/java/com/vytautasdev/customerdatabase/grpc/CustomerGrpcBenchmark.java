@@ -0,0 +1,101 @@
+package com.vytautasdev.customerdatabase.grpc;
+
+import com.vytautasdev.customerdatabase.CustomerDatabaseApplication;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import com.vytautasdev.customerdatabase.proto.CustomerServiceGrpc;
+import com.vytautasdev.customerdatabase.proto.CustomerServiceProto;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// needs customers in the database the application is configured for (application.yml, or -Dspring.datasource.url)
+// mvn -Pbenchmark test -Dbenchmark.args="CustomerGrpcBenchmark [-t 16]"
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CustomerGrpcBenchmark {
+
+    private ConfigurableApplicationContext application;
+    private List<Long> ids;
+    private HttpClient http;
+    private URI[] restUris;
+    private ManagedChannel channel;
+    private CustomerServiceGrpc.CustomerServiceBlockingStub stub;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = SpringApplication.run(CustomerDatabaseApplication.class,
+                "--server.port=0",
+                "--customer.grpc.port=0",
+                "--customer.rate-limit.enabled=false",
+                "--customer.search.index-path=" + System.getProperty("java.io.tmpdir")
+                        + "/customer-search-index-benchmark-" + System.nanoTime(),
+                "--spring.jpa.show-sql=false");
+        ids = application.getBean(JdbcTemplate.class)
+                .queryForList("SELECT id FROM customer ORDER BY id LIMIT 1000", Long.class);
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("The benchmark needs customers in the database");
+        }
+        var httpPort = ((WebServerApplicationContext) application).getWebServer().getPort();
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        restUris = ids.stream()
+                .map(id -> URI.create("http://localhost:%d/api/v1/customers/%d".formatted(httpPort, id)))
+                .toArray(URI[]::new);
+        channel = ManagedChannelBuilder.forAddress("localhost", application.getBean(CustomerGrpcServer.class).getPort())
+                .usePlaintext()
+                .build();
+        stub = CustomerServiceGrpc.newBlockingStub(channel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.shutdownNow();
+        application.close();
+    }
+
+    @Benchmark
+    public byte[] rest() throws IOException, InterruptedException {
+        var uri = restUris[ThreadLocalRandom.current().nextInt(restUris.length)];
+        var response = http.send(HttpRequest.newBuilder(uri).header("Accept", "application/json").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET %s returned %d".formatted(uri, response.statusCode()));
+        }
+        return response.body();
+    }
+
+    @Benchmark
+    public CustomerProto.Customer grpc() {
+        var id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return stub.getCustomer(CustomerServiceProto.GetCustomerRequest.newBuilder().setId(id).build());
+    }
+}
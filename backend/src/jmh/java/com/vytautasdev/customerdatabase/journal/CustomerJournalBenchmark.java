@@ -0,0 +1,165 @@
+package com.vytautasdev.customerdatabase.journal;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// mvn -Pbenchmark test -Dbenchmark.args="CustomerJournalBenchmark [-p customers=1000000]
+//     [-jvmArgsAppend -Dbenchmark.dir=/data]"
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CustomerJournalBenchmark {
+
+    private static final int SEGMENT_SIZE = 64 << 20;
+
+    @State(Scope.Benchmark)
+    public static class Appending {
+
+        @Param({"GROUP", "INTERVAL", "NONE"})
+        public CustomerJournal.SyncMode syncMode;
+
+        private final AtomicLong nextId = new AtomicLong();
+        private Path directory;
+        private CustomerJournal journal;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            directory = directory("journal-" + syncMode.name().toLowerCase());
+            journal = CustomerJournal.open(directory, SEGMENT_SIZE, syncMode, Duration.ofMillis(10), ignoring());
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovering {
+
+        @Param({"1000000"})
+        public int customers;
+
+        private Path journalOnly;
+        private Path withSnapshot;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            journalOnly = directory("journal-recovery");
+            withSnapshot = directory("journal-snapshot");
+            try (var journal = CustomerJournal.open(journalOnly, SEGMENT_SIZE, CustomerJournal.SyncMode.NONE,
+                    Duration.ZERO, ignoring())) {
+                for (long id = 1; id <= customers; id++) {
+                    journal.appendAdd(customer(id));
+                }
+            }
+            try (var journal = CustomerJournal.open(withSnapshot, SEGMENT_SIZE, CustomerJournal.SyncMode.NONE,
+                    Duration.ZERO, ignoring())) {
+                var state = new ArrayList<Customer>(customers);
+                for (long id = 1; id <= customers; id++) {
+                    var customer = customer(id);
+                    journal.appendAdd(customer);
+                    state.add(customer);
+                }
+                journal.writeSnapshot(journal.checkpoint(), state);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            CustomerJournalBenchmark.delete(journalOnly);
+            CustomerJournalBenchmark.delete(withSnapshot);
+        }
+    }
+
+    // GROUP only shares an msync between concurrent writers, so every sync mode runs with the same 16 writers
+    @Benchmark
+    @Threads(16)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long append(Appending appending) {
+        var sequence = appending.journal.appendAdd(customer(appending.nextId.incrementAndGet()));
+        appending.journal.awaitDurable(sequence);
+        return sequence;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CustomerJournal.Recovery recoverFromTheJournal(Recovering recovering) throws IOException {
+        return recover(recovering.journalOnly, recovering.customers, false);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CustomerJournal.Recovery recoverFromTheSnapshot(Recovering recovering) throws IOException {
+        return recover(recovering.withSnapshot, recovering.customers, true);
+    }
+
+    private static CustomerJournal.Recovery recover(Path directory, int customers, boolean fromSnapshot)
+            throws IOException {
+        try (var journal = CustomerJournal.open(directory, SEGMENT_SIZE, CustomerJournal.SyncMode.NONE, Duration.ZERO,
+                ignoring())) {
+            var recovery = journal.recovery();
+            var recovered = fromSnapshot ? recovery.snapshotRecords() : recovery.replayedRecords();
+            if (recovered != customers) {
+                throw new IllegalStateException("Recovered %d of %d customers".formatted(recovered, customers));
+            }
+            return recovery;
+        }
+    }
+
+    private static Path directory(String prefix) throws IOException {
+        var root = Path.of(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+        return Files.createTempDirectory(Files.createDirectories(root), prefix + "-");
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static Customer customer(long id) {
+        return new Customer(id, "Customer " + id, "customer." + id + "@example.com", (int) (18 + id % 60));
+    }
+
+    private static CustomerJournal.Visitor ignoring() {
+        return new CustomerJournal.Visitor() {
+            @Override
+            public void put(Customer customer) {
+            }
+
+            @Override
+            public void delete(long id) {
+            }
+        };
+    }
+}
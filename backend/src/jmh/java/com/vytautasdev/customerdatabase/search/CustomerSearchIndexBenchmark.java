@@ -0,0 +1,116 @@
+package com.vytautasdev.customerdatabase.search;
+
+import com.github.javafaker.Faker;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// mvn -Pbenchmark test -Dbenchmark.args="CustomerSearchIndexBenchmark [-p customers=1000000]"
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerSearchIndexBenchmark {
+
+    private static final int PAGE_SIZE = 5000;
+
+    @Param({"1000000"})
+    public int customers;
+
+    private Path indexPath;
+    private CustomerSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var faker = new Faker();
+        var names = new ArrayList<String>(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            names.add(faker.name().fullName());
+        }
+        var customerDao = mock(CustomerDao.class);
+        when(customerDao.getCustomerChangesSince(any(), anyInt())).thenAnswer(invocation -> {
+            CustomerSyncCursor after = invocation.getArgument(0);
+            var page = new ArrayList<CustomerSyncChange>(PAGE_SIZE);
+            for (long id = after.id() + 1; id <= Math.min(after.id() + PAGE_SIZE, customers); id++) {
+                var name = names.get((int) (id % names.size()));
+                var email = name.toLowerCase().replaceAll("[^a-z]", ".") + id + "@example.com";
+                page.add(new CustomerSyncChange(id, new Customer(id, name, email, 18 + (int) (id % 60)), false,
+                        Instant.EPOCH, new CustomerSyncCursor(id, id)));
+            }
+            return page;
+        });
+        indexPath = Files.createTempDirectory("customer-search-index-benchmark-");
+        index = new CustomerSearchIndex(customerDao, new MMapDirectory(indexPath), PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.destroy();
+        try (Stream<Path> paths = Files.walk(indexPath)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // a full rebuild per invocation, so a single shot per iteration
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public OptionalInt rebuild() throws IOException {
+        return index.rebuild();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public List<CustomerSearchHit> search(Query query) {
+        return index.search(query.text, 20);
+    }
+
+    // the query texts only multiply the search runs, and the index is built once before them
+    @State(Scope.Benchmark)
+    public static class Query {
+
+        @Param({"jhon", "smiht", "mari", "kevin doyle", "example"})
+        public String text;
+
+        @Setup(Level.Trial)
+        public void build(CustomerSearchIndexBenchmark benchmark) throws IOException {
+            benchmark.index.rebuild();
+        }
+    }
+}
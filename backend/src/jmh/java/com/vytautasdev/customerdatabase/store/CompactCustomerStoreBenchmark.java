@@ -0,0 +1,132 @@
+package com.vytautasdev.customerdatabase.store;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+// mvn -Pbenchmark test -Dbenchmark.args="CompactCustomerStoreBenchmark [-p customers=1000000]"
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompactCustomerStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Structure {
+
+        @Param({"1000000"})
+        public int customers;
+
+        // "list" is a linear scan per lookup, three orders of magnitude slower than the others;
+        // "copying-map" is what the list DAO did before: hand out a copy so callers cannot modify the stored customer
+        @Param({"list", "map", "copying-map", "compact"})
+        public String structure;
+
+        private LongFunction<Customer> lookup;
+        private long retainedBytes;
+
+        @Setup(Level.Trial)
+        public void build() {
+            var before = usedHeap();
+            switch (structure) {
+                case "list" -> {
+                    var list = new ArrayList<Customer>(customers);
+                    for (long id = 1; id <= customers; id++) {
+                        list.add(customer(id));
+                    }
+                    lookup = id -> list.stream().filter(customer -> customer.getId() == id).findFirst().orElseThrow();
+                }
+                case "map", "copying-map" -> {
+                    var map = new HashMap<Long, Customer>();
+                    for (long id = 1; id <= customers; id++) {
+                        map.put(id, customer(id));
+                    }
+                    lookup = structure.equals("map") ? map::get : id -> copyOf(map.get(id));
+                }
+                case "compact" -> {
+                    var store = new CompactCustomerStore();
+                    for (long id = 1; id <= customers; id++) {
+                        store.put(customer(id));
+                    }
+                    lookup = store::get;
+                }
+                default -> throw new IllegalArgumentException("Unknown structure " + structure);
+            }
+            retainedBytes = usedHeap() - before;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        long next(int customers) {
+            return 1 + random.nextInt(customers);
+        }
+    }
+
+    // reported next to the lookup time: the heap the structure holds on to, measured once when it is built
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long retainedBytes;
+        private long reportedBytes;
+        private boolean reported;
+
+        // events add up over the iterations, so only the first measurement iteration carries the footprint;
+        // JMH zeroes the counter after this runs, which is why the benchmark method sets it
+        @Setup(Level.Iteration)
+        public void report(Structure structure, IterationParams iteration) {
+            var first = iteration.getType() == IterationType.MEASUREMENT && !reported;
+            reportedBytes = first ? structure.retainedBytes : 0;
+            reported |= first;
+        }
+    }
+
+    @Benchmark
+    public int lookupById(Structure structure, Ids ids, Footprint footprint) {
+        footprint.retainedBytes = footprint.reportedBytes;
+        return structure.lookup.apply(ids.next(structure.customers)).getAge();
+    }
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // a few rounds, because one System.gc() does not always collect everything unreachable
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+    }
+
+    private static Customer customer(long id) {
+        return new Customer(id, "Customer " + id, "customer" + id + "@example.com", (int) (18 + id % 80));
+    }
+}
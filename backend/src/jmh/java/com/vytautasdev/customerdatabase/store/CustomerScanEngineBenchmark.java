@@ -0,0 +1,74 @@
+package com.vytautasdev.customerdatabase.store;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark test -Dbenchmark.args="CustomerScanEngineBenchmark [-p customers=10000000] [-p workers=1,2,4,8,16]"
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CustomerScanEngineBenchmark {
+
+    private static final String[] DOMAINS = {"gmail.com", "outlook.com", "example.com", "yahoo.com", "proton.me"};
+
+    @Param({"10000000"})
+    public int customers;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    // selective queries materialize few rows, so they mostly measure the scan itself
+    @Param({"age-and-domain", "name-contains", "domain-limit-100"})
+    public String query;
+
+    private CompactCustomerStore store;
+    private CustomerQuery customerQuery;
+    private ForkJoinPool pool;
+    private CustomerScanEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new CompactCustomerStore(customers);
+        for (int i = 0; i < customers; i++) {
+            store.put(new Customer((long) i + 1, "Customer " + i, "customer" + i + "@" + DOMAINS[i % DOMAINS.length],
+                    18 + i % 80));
+        }
+        customerQuery = switch (query) {
+            case "age-and-domain" -> new CustomerQuery(30, 31, null, "example.com");
+            case "name-contains" -> new CustomerQuery(null, null, "99999", null);
+            case "domain-limit-100" -> new CustomerQuery(null, null, null, "gmail.com", 100);
+            default -> throw new IllegalArgumentException("Unknown query " + query);
+        };
+        pool = new ForkJoinPool(workers);
+        engine = new CustomerScanEngine(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Customer> scan() {
+        return engine.scan(store, customerQuery);
+    }
+}
@@ -0,0 +1,137 @@
+package com.vytautasdev.customerdatabase.wireformat;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javafaker.Faker;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark test -Dbenchmark.args="CustomerWireFormatBenchmark [-p customers=10000]"
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CustomerWireFormatBenchmark {
+
+    private static final TypeReference<List<Customer>> CUSTOMER_LIST = new TypeReference<>() {
+    };
+
+    private interface Codec {
+        byte[] write(List<Customer> customers) throws Exception;
+
+        List<Customer> read(byte[] body) throws Exception;
+    }
+
+    @Param({"10000"})
+    public int customers;
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    public String format;
+
+    private List<Customer> list;
+    private Codec codec;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        list = customers(customers);
+        codec = switch (format) {
+            case "json" -> jackson(Jackson2ObjectMapperBuilder.json().build());
+            case "smile" -> jackson(Jackson2ObjectMapperBuilder.smile().build());
+            case "cbor" -> jackson(Jackson2ObjectMapperBuilder.cbor().build());
+            case "protobuf" -> new Codec() {
+                @Override
+                public byte[] write(List<Customer> customers) {
+                    return CustomerProtoMapper.toProto(customers).toByteArray();
+                }
+
+                @Override
+                public List<Customer> read(byte[] body) throws Exception {
+                    return CustomerProtoMapper.fromProto(CustomerProto.CustomerList.parseFrom(body));
+                }
+            };
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        body = codec.write(list);
+        if (!codec.read(body).equals(list)) {
+            throw new IllegalStateException(format + " does not read back the customers it wrote");
+        }
+    }
+
+    // reported next to the codec time: the size of the body the format writes for the customers
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Payload {
+
+        public long bytes;
+        private long reportedBytes;
+        private boolean reported;
+
+        // events add up over the iterations, so only the first measurement iteration carries the size;
+        // JMH zeroes the counter after this runs, which is why the benchmark method sets it
+        @Setup(Level.Iteration)
+        public void report(CustomerWireFormatBenchmark benchmark, IterationParams iteration) {
+            var first = iteration.getType() == IterationType.MEASUREMENT && !reported;
+            reportedBytes = first ? benchmark.body.length : 0;
+            reported |= first;
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(Payload payload) throws Exception {
+        payload.bytes = payload.reportedBytes;
+        return codec.write(list);
+    }
+
+    @Benchmark
+    public List<Customer> deserialize() throws Exception {
+        return codec.read(body);
+    }
+
+    private static Codec jackson(ObjectMapper mapper) {
+        return new Codec() {
+            @Override
+            public byte[] write(List<Customer> customers) throws Exception {
+                return mapper.writeValueAsBytes(customers);
+            }
+
+            @Override
+            public List<Customer> read(byte[] body) throws Exception {
+                return mapper.readValue(body, CUSTOMER_LIST);
+            }
+        };
+    }
+
+    private static List<Customer> customers(int count) {
+        var faker = new Faker();
+        var customers = new ArrayList<Customer>(count);
+        for (long id = 1; id <= count; id++) {
+            var name = faker.name();
+            customers.add(new Customer(id, name.fullName(),
+                    name.lastName() + "-" + id + "@example.com", 18 + (int) (id % 60)));
+        }
+        return customers;
+    }
+}
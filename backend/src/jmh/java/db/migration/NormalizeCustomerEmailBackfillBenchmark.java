@@ -0,0 +1,86 @@
+package db.migration;
+
+import com.vytautasdev.customerdatabase.BenchmarkDatabase;
+import com.vytautasdev.customerdatabase.migration.BatchedBackfill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbenchmark test -Dbenchmark.args="NormalizeCustomerEmailBackfillBenchmark [-p customers=1000000]"
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class NormalizeCustomerEmailBackfillBenchmark {
+
+    @Param({"1000000"})
+    public int customers;
+
+    private BenchmarkDatabase database;
+    private BatchedBackfill backfill;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        var migration = V7__Normalize_Customer_Email.CUSTOMER_EMAIL_BACKFILL;
+        backfill = new BatchedBackfill(migration.description(), "customer_email_backfill_benchmark",
+                migration.keyColumn(), migration.assignments(), migration.pendingCondition(),
+                migration.chunkSize(), migration.pause());
+    }
+
+    // after V7 normalized_email is customer_email's primary key, so the backfill runs on a copy of the table
+    // as V7 finds it: keyed on email, normalized_email still empty
+    @Setup(Level.Iteration)
+    public void createTable() {
+        var jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.execute("DROP TABLE IF EXISTS customer_email_backfill_benchmark");
+        jdbcTemplate.execute("""
+                CREATE TABLE customer_email_backfill_benchmark
+                (
+                    email            TEXT PRIMARY KEY,
+                    normalized_email TEXT,
+                    customer_id      BIGINT NOT NULL
+                )
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO customer_email_backfill_benchmark(email, customer_id)
+                SELECT 'Bench.' || n || '.' || md5(random()::text) || '@Example.com', n
+                FROM generate_series(1, ?) n
+                """, customers);
+        jdbcTemplate.execute("VACUUM ANALYZE customer_email_backfill_benchmark");
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkTable() {
+        var pending = database.getJdbcTemplate().queryForObject(
+                "SELECT count(*) FROM customer_email_backfill_benchmark WHERE normalized_email IS NULL", Long.class);
+        if (pending != 0) {
+            throw new IllegalStateException(pending + " customer emails were not backfilled");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.getJdbcTemplate().execute("DROP TABLE IF EXISTS customer_email_backfill_benchmark");
+        database.close();
+    }
+
+    @Benchmark
+    public BatchedBackfill.Result backfill() {
+        return backfill.run(database.getJdbcTemplate());
+    }
+}
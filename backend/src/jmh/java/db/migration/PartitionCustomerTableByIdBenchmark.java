@@ -0,0 +1,131 @@
+package db.migration;
+
+import com.vytautasdev.customerdatabase.BenchmarkDatabase;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// mvn -Pbenchmark test -Dbenchmark.args="PartitionCustomerTableByIdBenchmark [-p customers=10000000]"
+@Fork(1)
+@Warmup(iterations = 0)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class PartitionCustomerTableByIdBenchmark {
+
+    private static final String SCHEMA = "partition_benchmark";
+
+    @Param({"1000000"})
+    public int customers;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicBoolean migrated = new AtomicBoolean();
+    private CompletableFuture<Long> writes;
+
+    @Setup(Level.Trial)
+    public void start() {
+        database = BenchmarkDatabase.start();
+        jdbcTemplate = database.getJdbcTemplate(SCHEMA);
+    }
+
+    // customer as V3 finds it, with a writer updating random customers the whole time V3 runs
+    @Setup(Level.Iteration)
+    public void createTable() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        database.flyway(SCHEMA, "2").migrate();
+        jdbcTemplate.update("""
+                INSERT INTO customer(name, email, age)
+                SELECT 'Customer ' || n, 'customer.' || n || '.' || md5(random()::text) || '@example.com', 18 + n % 60
+                FROM generate_series(1, ?) n
+                """, customers);
+        jdbcTemplate.execute("VACUUM ANALYZE customer");
+        migrated.set(false);
+        writes = CompletableFuture.supplyAsync(this::writeUntilMigrated);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkTable() {
+        var partitions = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_inherits WHERE inhparent = 'customer'::regclass", Integer.class);
+        if (partitions == null || partitions != V3__Partition_Customer_Table_By_Id.PARTITIONS) {
+            throw new IllegalStateException("customer has %s partitions".formatted(partitions));
+        }
+        var copied = jdbcTemplate.queryForObject("SELECT count(*) FROM customer", Long.class);
+        if (copied == null || copied != customers) {
+            throw new IllegalStateException("%s of %d customers were copied".formatted(copied, customers));
+        }
+        jdbcTemplate.execute("ANALYZE customer");
+        var scanned = jdbcTemplate.queryForList("EXPLAIN SELECT id, name, email, age FROM customer WHERE id = ?",
+                        String.class, 42L).stream()
+                .filter(line -> line.contains(" on customer_p"))
+                .count();
+        if (scanned != 1) {
+            throw new IllegalStateException("A lookup by id scans %d partitions".formatted(scanned));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        database.close();
+    }
+
+    // reported next to the migration time: the longest a single-row write waited while V3 ran
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WriteStall {
+
+        public long longestWriteMillis;
+        private boolean report;
+        private boolean reported;
+
+        // events add up over the iterations, so only the first measurement iteration carries the stall
+        @Setup(Level.Iteration)
+        public void report(IterationParams iteration) {
+            report = iteration.getType() == IterationType.MEASUREMENT && !reported;
+            reported |= report;
+        }
+    }
+
+    @Benchmark
+    public MigrateResult migrate(WriteStall stall) {
+        var result = database.flyway(SCHEMA, "3").migrate();
+        migrated.set(true);
+        var longestWriteNanos = writes.join();
+        stall.longestWriteMillis = stall.report ? TimeUnit.NANOSECONDS.toMillis(longestWriteNanos) : 0;
+        return result;
+    }
+
+    private long writeUntilMigrated() {
+        var longest = 0L;
+        while (!migrated.get()) {
+            var id = 1 + ThreadLocalRandom.current().nextInt(customers);
+            var start = System.nanoTime();
+            jdbcTemplate.update("UPDATE customer SET age = age + 1 WHERE id = ?", id);
+            longest = Math.max(longest, System.nanoTime() - start);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,211 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//  !! Records who changed which customer fields without waiting for the write: request threads only enqueue !!
+@Component
+public class CustomerAuditLog implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerAuditLog.class);
+
+    static final String SYSTEM_ACTOR = "system";
+
+    public enum OverflowPolicy {
+        // request threads wait up to max-block for room in the buffer and transient sink failures are retried
+        BLOCK,
+        // records that do not fit, and batches the sink fails to write, are counted and dropped
+        DROP
+    }
+
+    private final CustomerAuditSink sink;
+    private final AuditRingBuffer<CustomerAuditRecord> buffer;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final long idleWaitNanos;
+    private final Duration retryDelay;
+    private final Duration maxBlock;
+    private final Clock clock;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Counter batchFailures;
+    private final Timer backpressure;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public CustomerAuditLog(CustomerAuditSink sink,
+                            @Value("${customer.audit.buffer-capacity:8192}") int bufferCapacity,
+                            @Value("${customer.audit.batch-size:256}") int batchSize,
+                            @Value("${customer.audit.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+                            @Value("${customer.audit.idle-wait:10ms}") Duration idleWait,
+                            @Value("${customer.audit.retry-delay:1s}") Duration retryDelay,
+                            @Value("${customer.audit.max-block:1s}") Duration maxBlock,
+                            MeterRegistry meterRegistry) {
+        this.sink = sink;
+        this.buffer = new AuditRingBuffer<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.idleWaitNanos = idleWait.toNanos();
+        this.retryDelay = retryDelay;
+        this.maxBlock = maxBlock;
+        this.clock = Clock.systemUTC();
+        this.written = records(meterRegistry, "written");
+        this.dropped = records(meterRegistry, "dropped");
+        this.rejected = records(meterRegistry, "rejected");
+        this.batchFailures = Counter.builder("customer.audit.batch.failures")
+                .description("Audit batches the sink failed to write")
+                .register(meterRegistry);
+        this.backpressure = Timer.builder("customer.audit.backpressure")
+                .description("Time request threads waited for room in a full audit buffer")
+                .register(meterRegistry);
+        Gauge.builder("customer.audit.buffer.size", buffer, AuditRingBuffer::size)
+                .description("Audit records waiting to be written")
+                .register(meterRegistry);
+        this.writer = new Thread(this::writeLoop, "customer-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static Counter records(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("customer.audit.records")
+                .description("Audit records by whether they reached the sink")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues an audit record for the current caller. Call it after the mutation succeeded, from the thread
+     * that handles the request, since that is where the actor is read from.
+     */
+    public void record(ChangeType operation, Long customerId, Map<String, CustomerAuditRecord.FieldChange> changes) {
+        var request = currentRequest();
+        var record = new CustomerAuditRecord(
+                clock.instant(),
+                request == null ? SYSTEM_ACTOR : ClientIdentity.remoteAddress(request),
+                request == null ? null : ClientIdentity.claimedClientId(request),
+                operation,
+                customerId,
+                Collections.unmodifiableMap(new LinkedHashMap<>(changes)));
+        if (buffer.offer(record)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP || !running) {
+            dropped.increment();
+            return;
+        }
+        var start = System.nanoTime();
+        var deadline = start + maxBlock.toNanos();
+        while (!buffer.offer(record)) {
+            // a writer that cannot keep up must slow requests down, never stall them
+            if (System.nanoTime() - deadline >= 0 || !running) {
+                backpressure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                dropped.increment();
+                LOGGER.warn("Dropped the {} audit record of customer {} after waiting {} for room in the buffer",
+                        operation, customerId, maxBlock);
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        backpressure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // calls from outside a web request are the app's own
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest()
+                : null;
+    }
+
+
+    private void writeLoop() {
+        var batch = new ArrayList<CustomerAuditRecord>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(idleWaitNanos);
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<CustomerAuditRecord> batch) {
+        while (true) {
+            try {
+                sink.write(batch);
+                written.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                batchFailures.increment();
+                if (!isTransient(e)) {
+                    reject(batch, e);
+                    return;
+                }
+                if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                    dropped.increment(batch.size());
+                    LOGGER.error("Dropped {} audit records the sink could not write", batch.size(), e);
+                    return;
+                }
+                // the buffer fills up meanwhile and pushes back on writers instead of losing records
+                LOGGER.warn("Could not write {} audit records, retrying in {}: {}", batch.size(), retryDelay, e.getMessage());
+                LockSupport.parkNanos(retryDelay.toNanos());
+            }
+        }
+    }
+
+    // retrying will not help a batch the database refused for its content, e.g. a constraint violation
+    private void reject(List<CustomerAuditRecord> batch, RuntimeException e) {
+        if (batch.size() > 1) {
+            // find the records at fault so the rest of the batch still gets written
+            for (var record : batch) {
+                write(List.of(record));
+            }
+            return;
+        }
+        rejected.increment();
+        LOGGER.error("Rejected audit record {} the sink can never write", batch.get(0), e);
+    }
+
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                // includes not getting a connection at all
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // the writer drains whatever is still buffered before it stops
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -0,0 +1,24 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record CustomerAuditRecord(
+        Instant recordedAt,
+        // the remote address of the request, or "system" for the app's own changes
+        String actor,
+        // whatever the client sent as X-Client-Id; not verified, so only a hint for investigations
+        String claimedClientId,
+        ChangeType operation,
+        Long customerId,
+        // field name -> before/after, in the order the fields were compared
+        Map<String, FieldChange> changes
+) {
+    public record FieldChange(
+            Object before,
+            Object after
+    ) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import java.util.List;
+
+public interface CustomerAuditSink {
+
+    /**
+     * Persists the whole batch or throws; a batch that throws is retried or dropped as a unit.
+     */
+    void write(List<CustomerAuditRecord> records);
+}
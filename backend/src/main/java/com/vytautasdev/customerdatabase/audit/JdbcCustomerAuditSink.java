@@ -0,0 +1,46 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+//  !! Appends audit batches to the customer_audit table with one batched INSERT per flush !!
+@Component
+public class JdbcCustomerAuditSink implements CustomerAuditSink {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public JdbcCustomerAuditSink(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(List<CustomerAuditRecord> records) {
+        var sql = """
+                INSERT INTO customer_audit(recorded_at, actor, claimed_client_id, operation, customer_id, changes)
+                VALUES (?, ?, ?, ?, ?, ?::jsonb)
+                """;
+        jdbcTemplate.batchUpdate(sql, records, records.size(), (statement, record) -> {
+            statement.setTimestamp(1, Timestamp.from(record.recordedAt()));
+            statement.setString(2, record.actor());
+            statement.setString(3, record.claimedClientId());
+            statement.setString(4, record.operation().name());
+            statement.setObject(5, record.customerId());
+            statement.setString(6, toJson(record));
+        });
+    }
+
+    private String toJson(CustomerAuditRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record.changes());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize audit changes of customer %s.".formatted(record.customerId()), e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.vytautasdev.customerdatabase.bulkhead;
+
+import com.vytautasdev.customerdatabase.datasource.DataSourceRoutingContext;
+import com.vytautasdev.customerdatabase.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Execution bulkhead for heavy reads (full scans, sync pages). They run on their own small pool instead of
+ * Tomcat threads, and since each worker holds at most one connection, the pool size also caps how much of
+ * the Hikari pool heavy reads can take, leaving the rest for point lookups.
+ */
+@Component
+public class CustomerBulkhead implements DisposableBean {
+
+    private final ThreadPoolExecutor heavyExecutor;
+    private final Duration heavyTimeout;
+
+    public CustomerBulkhead(@Value("${customer.bulkhead.heavy.threads:4}") int threads,
+                            @Value("${customer.bulkhead.heavy.queue-capacity:16}") int queueCapacity,
+                            @Value("${customer.bulkhead.heavy.timeout:30s}") Duration heavyTimeout) {
+        var threadCount = new AtomicInteger();
+        this.heavyExecutor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    var thread = new Thread(runnable, "customer-heavy-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.heavyTimeout = heavyTimeout;
+    }
+
+    public <T> DeferredResult<T> heavy(Supplier<T> work) {
+        var result = new DeferredResult<T>(heavyTimeout.toMillis());
+        var cancellation = new QueryCancellation();
+        // a client that just wrote must keep reading from the primary on the worker too
+        var pinnedToPrimary = DataSourceRoutingContext.isPinnedToPrimary();
+        try {
+            var task = heavyExecutor.submit(() -> {
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                QueryCancellation.bind(cancellation);
+                DataSourceRoutingContext.pinToPrimary(pinnedToPrimary);
+                try {
+                    result.setResult(work.get());
+                } catch (RuntimeException e) {
+                    result.setErrorResult(e);
+                } finally {
+                    DataSourceRoutingContext.pinToPrimary(false);
+                    QueryCancellation.unbind();
+                }
+            });
+            result.onTimeout(() -> {
+                cancellation.cancel();
+                task.cancel(false);
+                result.setErrorResult(new ServiceUnavailableException("Request timed out, please retry later."));
+            });
+            // fires when the container reports an I/O error, e.g. the client disconnected
+            result.onError(error -> {
+                cancellation.cancel();
+                task.cancel(false);
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many heavy requests in progress, please retry later.");
+        }
+        return result;
+    }
+
+    public int heavyQueueDepth() {
+        return heavyExecutor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        heavyExecutor.shutdownNow();
+    }
+}
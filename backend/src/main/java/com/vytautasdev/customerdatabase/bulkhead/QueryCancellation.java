@@ -0,0 +1,52 @@
+package com.vytautasdev.customerdatabase.bulkhead;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//  !! Lets the web layer abort a running JDBC statement, e.g. when its request times out or the client goes away !!
+public class QueryCancellation {
+
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private volatile Statement statement;
+    private volatile boolean cancelled;
+
+    public static void bind(QueryCancellation cancellation) {
+        CURRENT.set(cancellation);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    // called by DAOs for every statement they create on a bulkhead thread
+    public static void register(Statement statement) throws SQLException {
+        var cancellation = CURRENT.get();
+        if (cancellation == null) {
+            return;
+        }
+        cancellation.statement = statement;
+        if (cancellation.cancelled) {
+            statement.cancel();
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        var running = statement;
+        if (running == null) {
+            return;
+        }
+        try {
+            if (!running.isClosed()) {
+                running.cancel();
+            }
+        } catch (SQLException ignored) {
+            // the statement finished or its connection is gone, either way nothing is left to cancel
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
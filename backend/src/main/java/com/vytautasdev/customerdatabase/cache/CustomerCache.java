@@ -0,0 +1,137 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.datasource.DataSourceRoutingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+//  !! Two-tier cache for customer point lookups: a bounded in-process L1 in front of the shared L2 !!
+@Component
+public class CustomerCache {
+
+    // long enough to outlive any load that started before the invalidation
+    private static final Duration INVALIDATION_MEMORY = Duration.ofMinutes(1);
+
+    private final SharedCustomerCache shared;
+    private final Cache<Long, Customer> local;
+    // id -> generation of its latest invalidation; a load that started earlier must not fill the cache
+    private final Cache<Long, Long> invalidations;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long clearedAtGeneration;
+
+    private final Counter localHits;
+    private final Counter sharedHits;
+    private final Counter misses;
+
+    public CustomerCache(SharedCustomerCache shared,
+                         @Value("${customer.cache.local.maximum-size:10000}") long localMaximumSize,
+                         @Value("${customer.cache.local.ttl:5m}") Duration localTtl,
+                         MeterRegistry meterRegistry) {
+        this.shared = shared;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl)
+                .build();
+        this.invalidations = Caffeine.newBuilder()
+                .expireAfterWrite(INVALIDATION_MEMORY)
+                .build();
+        this.localHits = lookups(meterRegistry, "local");
+        this.sharedHits = lookups(meterRegistry, "shared");
+        this.misses = lookups(meterRegistry, "miss");
+        Gauge.builder("customer.cache.hit.ratio", this, CustomerCache::hitRatio)
+                .description("Share of customer point lookups answered by either cache tier")
+                .register(meterRegistry);
+        Gauge.builder("customer.cache.local.size", local, Cache::estimatedSize)
+                .description("Customers held in this node's cache")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("customer.cache.lookups")
+                .description("Customer point lookups by the tier that answered them")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Answers from L1, then L2, then the loader; what the loader finds is written to both tiers. Callers get
+     * their own copy, since they may modify it.
+     * <p>
+     * The loader runs pinned to the primary: a lagging replica could return a row older than an update whose
+     * invalidation already happened, and nothing would evict it again until it expires.
+     */
+    public Optional<Customer> getCustomerById(Long id, Function<Long, Optional<Customer>> loader) {
+        var cached = local.getIfPresent(id);
+        if (cached != null) {
+            localHits.increment();
+            return Optional.of(copyOf(cached));
+        }
+        var startGeneration = generation.get();
+        var fromShared = shared.get(id);
+        if (fromShared.isPresent()) {
+            sharedHits.increment();
+            if (unchangedSince(id, startGeneration)) {
+                local.put(id, copyOf(fromShared.get()));
+            }
+            return fromShared;
+        }
+        misses.increment();
+        var loaded = DataSourceRoutingContext.onPrimary(() -> loader.apply(id));
+        loaded.ifPresent(customer -> {
+            if (unchangedSince(id, startGeneration)) {
+                shared.put(customer);
+                local.put(id, copyOf(customer));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Drops a customer this node changed from both tiers.
+     */
+    public void invalidate(Long id) {
+        evictLocal(id);
+        shared.evict(id);
+    }
+
+    /**
+     * Drops a customer another node changed; that node already cleared the shared tier.
+     */
+    public void evictLocal(Long id) {
+        invalidations.put(id, generation.incrementAndGet());
+        local.invalidate(id);
+    }
+
+    /**
+     * Drops everything this node holds, for when it may have missed invalidations.
+     */
+    public void clearLocal() {
+        clearedAtGeneration = generation.incrementAndGet();
+        local.invalidateAll();
+    }
+
+    public double hitRatio() {
+        var hits = localHits.count() + sharedHits.count();
+        var total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private boolean unchangedSince(Long id, long startGeneration) {
+        var invalidatedAt = invalidations.getIfPresent(id);
+        return clearedAtGeneration <= startGeneration && (invalidatedAt == null || invalidatedAt <= startGeneration);
+    }
+
+    static Customer copyOf(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+    }
+}
@@ -0,0 +1,92 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent;
+import com.vytautasdev.customerdatabase.notify.CustomerChangeNotification;
+import com.vytautasdev.customerdatabase.notify.CustomerChangeSubscriber;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+//  !! Keeps every node's cache coherent: own writes are evicted right away, all others arrive through the change bus !!
+@Component
+public class CustomerCacheInvalidator implements CustomerChangeSubscriber {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerCacheInvalidator.class);
+
+    private final CustomerCache customerCache;
+    private final Clock clock;
+
+    private final Counter localInvalidations;
+    private final Counter notifiedInvalidations;
+    private final Counter resyncs;
+    private final Counter evictionFailures;
+    private final Timer invalidationLag;
+
+    public CustomerCacheInvalidator(CustomerCache customerCache, MeterRegistry meterRegistry) {
+        this.customerCache = customerCache;
+        this.clock = Clock.systemUTC();
+        this.localInvalidations = invalidations(meterRegistry, "local");
+        this.notifiedInvalidations = invalidations(meterRegistry, "notification");
+        this.resyncs = Counter.builder("customer.cache.resyncs")
+                .description("Times this node dropped its whole cache because it may have missed invalidations")
+                .register(meterRegistry);
+        this.evictionFailures = Counter.builder("customer.cache.eviction.failures")
+                .description("Shared cache evictions that failed; those entries stay stale until their TTL")
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder("customer.cache.invalidation.lag")
+                .description("Time from a customer row being written to this node evicting it on the notification")
+                .register(meterRegistry);
+    }
+
+    private static Counter invalidations(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("customer.cache.invalidations")
+                .description("Customers evicted from this node's cache, by what reported the change")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    // published after the write returned, i.e. after it committed; the notification for it follows shortly
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.type() == CustomerChangedEvent.ChangeType.CREATED || event.customerId() == null) {
+            return;
+        }
+        localInvalidations.increment();
+        invalidate(event.customerId());
+    }
+
+    // also covers changes made by other nodes or outside the app, so the shared tier is evicted here too
+    @Override
+    public void onCustomerChange(CustomerChangeNotification notification) {
+        if (notification.operation() == CustomerChangeNotification.Operation.INSERT) {
+            return;
+        }
+        notifiedInvalidations.increment();
+        invalidate(notification.customerId());
+        // the database and this node read different clocks, so skew can make the lag look negative
+        var lag = Duration.between(notification.changedAt(), clock.instant());
+        invalidationLag.record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    @Override
+    public void onResync() {
+        resyncs.increment();
+        customerCache.clearLocal();
+    }
+
+    private void invalidate(Long id) {
+        try {
+            customerCache.invalidate(id);
+        } catch (RuntimeException e) {
+            evictionFailures.increment();
+            LOGGER.error("Could not evict customer {} from the shared cache", id, e);
+        }
+    }
+}
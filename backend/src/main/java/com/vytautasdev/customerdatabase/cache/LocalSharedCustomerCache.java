@@ -0,0 +1,35 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+//  !! Stand-in for the shared tier in tests and single-node setups: lives in this JVM, so it is only shared with itself !!
+@Component
+@ConditionalOnProperty(prefix = "customer.cache.shared", name = "type", havingValue = "local", matchIfMissing = true)
+public class LocalSharedCustomerCache implements SharedCustomerCache {
+
+    private final ConcurrentHashMap<Long, Customer> customers = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Customer> get(Long id) {
+        return Optional.ofNullable(customers.get(id)).map(CustomerCache::copyOf);
+    }
+
+    @Override
+    public void put(Customer customer) {
+        customers.put(customer.getId(), CustomerCache.copyOf(customer));
+    }
+
+    @Override
+    public void evict(Long id) {
+        customers.remove(id);
+    }
+
+    public int size() {
+        return customers.size();
+    }
+}
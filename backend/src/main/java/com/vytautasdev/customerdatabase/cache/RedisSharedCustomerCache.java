@@ -0,0 +1,75 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+//  !! Shared tier in Redis: one JSON value per customer with a TTL that bounds staleness if an eviction is lost !!
+@Component
+@ConditionalOnProperty(prefix = "customer.cache.shared", name = "type", havingValue = "redis")
+public class RedisSharedCustomerCache implements SharedCustomerCache, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisSharedCustomerCache.class);
+    private static final String KEY_PREFIX = "customer:";
+
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, String> connection;
+
+    public RedisSharedCustomerCache(ObjectMapper objectMapper,
+                                    @Value("${customer.cache.shared.redis-uri:redis://localhost:6379}") String redisUri,
+                                    @Value("${customer.cache.shared.ttl:30m}") Duration ttl,
+                                    @Value("${customer.cache.shared.timeout:200ms}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.client = RedisClient.create(redisUri);
+        this.client.setDefaultTimeout(timeout);
+        this.connection = client.connect();
+    }
+
+    // the shared tier is an accelerator: when Redis is slow or down, reads fall through to the database
+    @Override
+    public Optional<Customer> get(Long id) {
+        try {
+            var json = connection.sync().get(KEY_PREFIX + id);
+            return json == null ? Optional.empty() : Optional.of(objectMapper.readValue(json, Customer.class));
+        } catch (RedisException | JsonProcessingException e) {
+            LOGGER.warn("Shared customer cache read failed for id {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(Customer customer) {
+        try {
+            connection.sync().setex(KEY_PREFIX + customer.getId(), ttl.toSeconds(), objectMapper.writeValueAsString(customer));
+        } catch (RedisException | JsonProcessingException e) {
+            LOGGER.warn("Shared customer cache write failed for id {}: {}", customer.getId(), e.getMessage());
+        }
+    }
+
+    // unlike reads and writes, a failed eviction is reported: the entry would stay stale until its TTL
+    @Override
+    public void evict(Long id) {
+        connection.sync().del(KEY_PREFIX + id);
+    }
+
+    @Override
+    public void destroy() {
+        connection.close();
+        client.shutdown();
+    }
+}
@@ -0,0 +1,15 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+
+import java.util.Optional;
+
+// second cache tier, shared by every replica; picked with customer.cache.shared.type
+public interface SharedCustomerCache {
+
+    Optional<Customer> get(Long id);
+
+    void put(Customer customer);
+
+    void evict(Long id);
+}
@@ -0,0 +1,37 @@
+package com.vytautasdev.customerdatabase.client;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+//  !! Who a request comes from: the address the server saw, which can be trusted, and the id the client claims, which cannot !!
+public final class ClientIdentity {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private ClientIdentity() {
+    }
+
+    /**
+     * The address of the connection, or with server.forward-headers-strategy set, the client address forwarded by
+     * the trusted proxy. The only identity to enforce limits on or record as responsible for a change.
+     */
+    public static String remoteAddress(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * The X-Client-Id header, or null when it is missing or blank. Any client can send any value.
+     */
+    public static String claimedClientId(HttpServletRequest request) {
+        var clientId = request.getHeader(CLIENT_ID_HEADER);
+        return clientId != null && !clientId.isBlank() ? clientId : null;
+    }
+
+    /**
+     * The claimed client id, or the remote address when there is none. Tells a client's own requests apart from
+     * others behind the same address, so only use it where a false claim hurts nobody but the claimant.
+     */
+    public static String claimedClientKey(HttpServletRequest request) {
+        var clientId = claimedClientId(request);
+        return clientId != null ? clientId : remoteAddress(request);
+    }
+}
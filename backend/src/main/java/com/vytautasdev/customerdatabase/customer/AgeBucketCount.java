@@ -0,0 +1,27 @@
+package com.vytautasdev.customerdatabase.customer;
+
+public record AgeBucketCount(
+        String range,
+        long count
+) {
+    // the buckets of the customer_age_distribution view (V6), youngest first
+    private static final int[] LOWER_BOUNDS = {0, 18, 25, 35, 45, 55, 65};
+    private static final String[] RANGES = {"0-17", "18-24", "25-34", "35-44", "45-54", "55-64", "65+"};
+
+    public static int bucketCount() {
+        return RANGES.length;
+    }
+
+    // -1 for negative ages, which no bucket covers
+    public static int bucketOf(int age) {
+        var bucket = LOWER_BOUNDS.length - 1;
+        while (bucket >= 0 && age < LOWER_BOUNDS[bucket]) {
+            bucket--;
+        }
+        return bucket;
+    }
+
+    public static String range(int bucket) {
+        return RANGES[bucket];
+    }
+}
@@ -0,0 +1,8 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.util.List;
+
+public record CustomerBatchRequest(
+        List<Long> ids
+) {
+}
@@ -0,0 +1,9 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.util.List;
+
+public record CustomerBatchResponse(
+        List<Customer> customers,
+        List<Long> missingIds
+) {
+}
@@ -0,0 +1,12 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.time.Instant;
+
+public record CustomerChange(
+        long position,
+        Long customerId,
+        String operation,
+        Customer customer,
+        Instant changedAt
+) {
+}
@@ -0,0 +1,157 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.vytautasdev.customerdatabase.exception.ResourceGoneException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+//  !! Change feed over the customer_outbox table: sequences committed rows and serves them by resumable position !!
+@Component
+public class CustomerChangeFeed {
+
+    private static final RowMapper<CustomerChange> CHANGE_ROW_MAPPER = (rs, rowNum) -> {
+        var operation = rs.getString("operation");
+        var customer = "DELETE".equals(operation) ? null : new Customer(
+                rs.getLong("customer_id"),
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getInt("age"));
+        return new CustomerChange(
+                rs.getLong("position"),
+                rs.getLong("customer_id"),
+                operation,
+                customer,
+                rs.getTimestamp("changed_at").toInstant());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public CustomerChangeFeed(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${customer.change-feed.retention:7d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+    }
+
+    /**
+     * @throws ResourceGoneException if changes right after the position were purged, since serving the rest
+     *                               would silently skip them
+     */
+    public CustomerChangeFeedPage read(long afterPosition, int limit) {
+        var sql = """
+                SELECT position, customer_id, operation,
+                       payload ->> 'name' AS name,
+                       payload ->> 'email' AS email,
+                       (payload ->> 'age')::int AS age,
+                       changed_at
+                FROM customer_outbox
+                WHERE position > ?
+                ORDER BY position
+                LIMIT ?
+                """;
+        var changes = jdbcTemplate.query(sql, CHANGE_ROW_MAPPER, afterPosition, limit);
+        // positions have no gaps and purge only removes the oldest, so only a page that does not start right after
+        // the position can have lost changes; checked after the read so a purge racing it cannot go unnoticed
+        if (changes.isEmpty() || changes.get(0).position() != afterPosition + 1) {
+            var oldest = jdbcTemplate.queryForObject("SELECT min(position) FROM customer_outbox", Long.class);
+            if (oldest != null && afterPosition < oldest - 1) {
+                throw new ResourceGoneException(("Changes after feed position [%s] were purged, "
+                        + "reload the customers and resume from a current position.").formatted(afterPosition));
+            }
+        }
+        var nextPosition = changes.isEmpty() ? afterPosition : changes.get(changes.size() - 1).position();
+        return new CustomerChangeFeedPage(changes, nextPosition);
+    }
+
+    /**
+     * Long-poll read: answers right away when changes after the position exist,
+     * otherwise parks the request until the relay sequences new rows or the wait elapses.
+     */
+    public DeferredResult<CustomerChangeFeedPage> poll(long afterPosition, int limit, Duration maxWait) {
+        var emptyPage = new CustomerChangeFeedPage(List.of(), afterPosition);
+        var result = new DeferredResult<CustomerChangeFeedPage>(maxWait.toMillis(), emptyPage);
+        if (maxWait.isZero()) {
+            result.setResult(read(afterPosition, limit));
+            return result;
+        }
+        // registered before reading, so a relay that runs in between wakes this request instead of missing it
+        var waiter = new Waiter(afterPosition, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        var page = read(afterPosition, limit);
+        if (!page.changes().isEmpty()) {
+            // a no-op if the relay already answered
+            result.setResult(page);
+        }
+        return result;
+    }
+
+    /**
+     * Assigns feed positions to outbox rows whose transactions are older than every running one,
+     * in (txid, id) order, so a position is never handed out behind one a consumer may already have read.
+     */
+    @Scheduled(fixedDelayString = "${customer.change-feed.relay-interval:PT0.2S}")
+    public void relay() {
+        var sql = """
+                UPDATE customer_outbox o
+                SET position = ready.position
+                FROM (SELECT id,
+                             (SELECT coalesce(max(position), 0) FROM customer_outbox)
+                                 + row_number() OVER (ORDER BY txid, id) AS position
+                      FROM customer_outbox
+                      WHERE position IS NULL
+                        AND txid < pg_snapshot_xmin(pg_current_snapshot())) ready
+                WHERE o.id = ready.id
+                """;
+        Integer sequenced = transactionTemplate.execute(status -> {
+            // one relay at a time across app replicas
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext('customer_outbox_relay'))", rs -> null);
+            return jdbcTemplate.update(sql);
+        });
+        if (sequenced != null && sequenced > 0) {
+            wakeWaiters();
+        }
+    }
+
+    // keeps the newest sequenced row, since the relay continues numbering from max(position)
+    @Scheduled(fixedDelayString = "${customer.change-feed.purge-interval:PT1H}")
+    public void purge() {
+        var sql = """
+                DELETE
+                FROM customer_outbox
+                WHERE position < (SELECT max(position) FROM customer_outbox)
+                  AND changed_at < now() - ?::interval
+                """;
+        jdbcTemplate.update(sql, "%d seconds".formatted(retention.toSeconds()));
+    }
+
+    private void wakeWaiters() {
+        // consumers that are caught up tend to wait on the same position, so share the read between them
+        var pages = new HashMap<List<Long>, CustomerChangeFeedPage>();
+        for (var waiter : waiters) {
+            var page = pages.computeIfAbsent(
+                    List.of(waiter.afterPosition(), (long) waiter.limit()),
+                    key -> read(waiter.afterPosition(), waiter.limit()));
+            if (!page.changes().isEmpty()) {
+                waiter.result().setResult(page);
+            }
+        }
+    }
+
+    private record Waiter(long afterPosition, int limit, DeferredResult<CustomerChangeFeedPage> result) {
+    }
+}
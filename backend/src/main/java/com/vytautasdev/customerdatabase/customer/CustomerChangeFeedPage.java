@@ -0,0 +1,9 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.util.List;
+
+public record CustomerChangeFeedPage(
+        List<CustomerChange> changes,
+        long nextPosition
+) {
+}
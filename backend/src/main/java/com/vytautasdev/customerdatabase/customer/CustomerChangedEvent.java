@@ -0,0 +1,13 @@
+package com.vytautasdev.customerdatabase.customer;
+
+public record CustomerChangedEvent(
+        ChangeType type,
+        Long customerId,
+        Customer customer
+) {
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
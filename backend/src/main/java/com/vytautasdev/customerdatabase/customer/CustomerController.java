@@ -1,7 +1,15 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import com.vytautasdev.customerdatabase.bulkhead.CustomerBulkhead;
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.Duration;
 import java.util.List;
 
 
@@ -10,16 +18,67 @@ import java.util.List;
 @RequestMapping("api/v1/customers/")
 public class CustomerController {
 
+    private static final int MAX_FEED_PAGE_SIZE = 1000;
+    private static final Duration MAX_FEED_WAIT = Duration.ofSeconds(30);
+
     private final CustomerService customerService;
+    private final CustomerChangeFeed customerChangeFeed;
+    private final CustomerEventBroadcaster customerEventBroadcaster;
+    private final CustomerBulkhead customerBulkhead;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerChangeFeed customerChangeFeed,
+                              CustomerEventBroadcaster customerEventBroadcaster,
+                              CustomerBulkhead customerBulkhead) {
         this.customerService = customerService;
+        this.customerChangeFeed = customerChangeFeed;
+        this.customerEventBroadcaster = customerEventBroadcaster;
+        this.customerBulkhead = customerBulkhead;
     }
 
     //    @RequestMapping(value = "/api/v1/customers", method = RequestMethod.GET)
+    // full scans run in the heavy-read bulkhead so they cannot starve point lookups of threads or connections
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public DeferredResult<List<Customer>> getCustomers() {
+        return customerBulkhead.heavy(customerService::getAllCustomers);
+    }
+
+    @GetMapping(params = "ids")
+    public CustomerBatchResponse getCustomersByIds(@RequestParam("ids") List<Long> ids) {
+        return customerService.getCustomers(ids);
+    }
+
+    @PostMapping("batch")
+    public CustomerBatchResponse getCustomersByIds(@RequestBody CustomerBatchRequest batchRequest) {
+        return customerService.getCustomers(batchRequest.ids());
+    }
+
+    // incremental sync: pass the nextSince of the previous page, or 0 for a full initial sync
+    @GetMapping("changes")
+    public DeferredResult<CustomerSyncPage> getChangesSince(
+            @RequestParam(value = "since", defaultValue = "0") String since,
+            @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        return customerBulkhead.heavy(() -> customerService.getChangesSince(since, limit));
+    }
+
+    // long-poll change feed; resume with the nextPosition of the previous page, or reload on 410 after a purge
+    @GetMapping("feed")
+    public DeferredResult<CustomerChangeFeedPage> getChangeFeed(
+            @RequestParam(value = "after", defaultValue = "0") long afterPosition,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "waitSeconds", defaultValue = "0") long waitSeconds) {
+        var maxWait = Duration.ofSeconds(waitSeconds);
+        if (limit < 1 || limit > MAX_FEED_PAGE_SIZE || waitSeconds < 0 || maxWait.compareTo(MAX_FEED_WAIT) > 0) {
+            throw new RequestValidationException(
+                    "limit must be 1-%s and waitSeconds 0-%s.".formatted(MAX_FEED_PAGE_SIZE, MAX_FEED_WAIT.toSeconds()));
+        }
+        return customerChangeFeed.poll(afterPosition, limit, maxWait);
+    }
+
+    // live CREATED/UPDATED/DELETED events; a RESYNC event means the client fell behind and should reload
+    @GetMapping(path = "events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        return customerEventBroadcaster.subscribe();
     }
 
     @GetMapping("{customerId}")
@@ -27,10 +86,16 @@ public class CustomerController {
         return customerService.getCustomer(customerId);
     }
 
+    // answers with the stored customer, so clients need no lookup to learn its id
     @PostMapping
-    public void registerCustomer(
+    public ResponseEntity<Customer> registerCustomer(
             @RequestBody CustomerRegistrationRequest registrationRequest) {
-        customerService.addCustomer(registrationRequest);
+        var customer = customerService.addCustomer(registrationRequest);
+        var location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/customers/{customerId}")
+                .buildAndExpand(customer.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(customer);
     }
 
     @DeleteMapping("{customerId}")
@@ -1,5 +1,6 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,6 +11,12 @@ public interface CustomerDao {
 
     Optional<Customer> getCustomerById(Long id);
 
+    List<Customer> getCustomersByIds(Collection<Long> ids);
+
+    // up to limit customers with an id above afterId, in id order
+    List<Customer> getCustomersAfterId(long afterId, int limit);
+
+    // sets the id the customer was stored under on the given instance
     void addCustomer(Customer customer);
 
     boolean existsCustomerWithEmail(String email);
@@ -19,4 +26,8 @@ public interface CustomerDao {
     void deleteCustomerById(Long customerId);
 
     void updateCustomer(Customer updatedCustomer);
+
+    List<CustomerSyncChange> getCustomerChangesSince(CustomerSyncCursor cursor, int limit);
+
+    CustomerStats getCustomerStats(int topDomains);
 }
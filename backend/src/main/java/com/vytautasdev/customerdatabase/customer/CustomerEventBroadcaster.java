@@ -0,0 +1,172 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//  !! One shared broadcaster for all SSE subscribers: each event is serialized once and queued per subscriber !!
+@Component
+public class CustomerEventBroadcaster implements DisposableBean {
+
+    static final String RESYNC_EVENT = "RESYNC";
+
+    public enum SlowConsumerPolicy {
+        // drop buffered events and tell the client to reload the customer list
+        RESYNC,
+        // disconnect the client
+        DROP
+    }
+
+    public interface EventSink {
+        void send(String name, String data) throws IOException;
+
+        void close();
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final Duration emitterTimeout;
+    private final ExecutorService deliveryExecutor;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    public CustomerEventBroadcaster(
+            ObjectMapper objectMapper,
+            @Value("${customer.events.buffer-size:256}") int bufferSize,
+            @Value("${customer.events.slow-consumer-policy:RESYNC}") SlowConsumerPolicy slowConsumerPolicy,
+            @Value("${customer.events.emitter-timeout:30m}") Duration emitterTimeout,
+            @Value("${customer.events.delivery-threads:4}") int deliveryThreads) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.emitterTimeout = emitterTimeout;
+        this.deliveryExecutor = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            var thread = new Thread(runnable, "customer-sse-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe() {
+        var emitter = new SseEmitter(emitterTimeout.toMillis());
+        var subscriber = subscribe(new EventSink() {
+            @Override
+            public void send(String name, String data) throws IOException {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    Subscriber subscribe(EventSink sink) {
+        var subscriber = new Subscriber(sink, new ArrayBlockingQueue<>(bufferSize));
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize customer event.", e);
+        }
+        broadcast(new Message(event.type().name(), data));
+    }
+
+    @Scheduled(fixedDelayString = "${customer.events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        // keeps idle connections open through proxies and flushes out disconnected clients
+        broadcast(new Message("HEARTBEAT", "{}"));
+    }
+
+    private void broadcast(Message message) {
+        for (var subscriber : subscribers) {
+            if (!subscriber.buffer().offer(message)) {
+                onOverflow(subscriber);
+            }
+            scheduleDelivery(subscriber);
+        }
+    }
+
+    private void onOverflow(Subscriber subscriber) {
+        subscriber.buffer().clear();
+        if (slowConsumerPolicy == SlowConsumerPolicy.DROP) {
+            disconnect(subscriber);
+            return;
+        }
+        subscriber.buffer().offer(new Message(RESYNC_EVENT, "{}"));
+    }
+
+    private void scheduleDelivery(Subscriber subscriber) {
+        // at most one delivery task per subscriber, so a slow client ties up a single delivery thread
+        if (subscriber.delivering().compareAndSet(false, true)) {
+            deliveryExecutor.execute(() -> deliver(subscriber));
+        }
+    }
+
+    private void deliver(Subscriber subscriber) {
+        try {
+            Message message;
+            while ((message = subscriber.buffer().poll()) != null) {
+                subscriber.sink().send(message.name(), message.data());
+            }
+        } catch (IOException | IllegalStateException e) {
+            disconnect(subscriber);
+        } finally {
+            subscriber.delivering().set(false);
+        }
+        if (!subscriber.buffer().isEmpty() && subscribers.contains(subscriber)) {
+            scheduleDelivery(subscriber);
+        }
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.buffer().clear();
+        subscriber.sink().close();
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach(this::disconnect);
+        deliveryExecutor.shutdownNow();
+    }
+
+    record Message(String name, String data) {
+    }
+
+    record Subscriber(EventSink sink, BlockingQueue<Message> buffer, AtomicBoolean delivering) {
+        Subscriber(EventSink sink, BlockingQueue<Message> buffer) {
+            this(sink, buffer, new AtomicBoolean());
+        }
+    }
+}
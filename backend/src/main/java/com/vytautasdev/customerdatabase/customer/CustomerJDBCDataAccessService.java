@@ -1,20 +1,34 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import com.vytautasdev.customerdatabase.bulkhead.QueryCancellation;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import static com.vytautasdev.customerdatabase.datasource.DataSourceRoutingContext.onReplica;
+
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final CustomerSyncChangeRowMapper customerSyncChangeRowMapper;
+    private final CustomerQueryTimeouts queryTimeouts;
 
-    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate,
+                                         CustomerRowMapper customerRowMapper,
+                                         CustomerSyncChangeRowMapper customerSyncChangeRowMapper,
+                                         CustomerQueryTimeouts queryTimeouts) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.customerSyncChangeRowMapper = customerSyncChangeRowMapper;
+        this.queryTimeouts = queryTimeouts;
     }
 
     @Override
@@ -24,7 +38,7 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 FROM customer
                 """;
 
-        return jdbcTemplate.query(sql, customerRowMapper);
+        return onReplica(() -> jdbcTemplate.query(scan(sql), customerRowMapper));
     }
 
     @Override
@@ -35,29 +49,59 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 WHERE id = ?
                 """;
 
-        return jdbcTemplate.query(sql, customerRowMapper, id)
+        return onReplica(() -> jdbcTemplate.query(pointLookup(sql, id), customerRowMapper))
                 .stream()
                 .findFirst();
     }
 
+    @Override
+    public List<Customer> getCustomersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var sql = """
+                SELECT id, name, email, age
+                FROM customer
+                WHERE id = ANY(?)
+                """;
+
+        return onReplica(() -> jdbcTemplate.query(
+                statement(sql, queryTimeouts.pointLookupSeconds(),
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()))),
+                customerRowMapper));
+    }
+
+    @Override
+    public List<Customer> getCustomersAfterId(long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return onReplica(() -> jdbcTemplate.query(scan(sql, afterId, limit), customerRowMapper));
+    }
+
     @Override
     public void addCustomer(Customer customer) {
         var sql = """
                 INSERT INTO customer(name, email, age)
                 VALUES (?, ?, ?)
+                RETURNING id
                 """;
-        jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge());
+        customer.setId(jdbcTemplate.queryForObject(sql, Long.class, customer.getName(), customer.getEmail(), customer.getAge()));
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
         var sql = """
-                SELECT count(id)
-                FROM customer
-                WHERE email = ?
+                SELECT count(customer_id)
+                FROM customer_email
+                WHERE normalized_email = lower(btrim(?))
                 """;
-        var count = jdbcTemplate.queryForObject(sql, Integer.class, email);
-        return count != null && count > 0;
+        return onReplica(() -> jdbcTemplate.query(pointLookup(sql, email), rs -> rs.next() && rs.getInt(1) > 0));
     }
 
     @Override
@@ -67,8 +111,7 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 FROM customer
                 WHERE id = ?
                 """;
-        var count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        return count != null && count > 0;
+        return onReplica(() -> jdbcTemplate.query(pointLookup(sql, id), rs -> rs.next() && rs.getInt(1) > 0));
     }
 
     @Override
@@ -83,17 +126,106 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
 
     @Override
     public void updateCustomer(Customer updatedCustomer) {
-        if (updatedCustomer.getName() != null) {
-            var sql = "UPDATE customer SET name = ? WHERE id = ?";
-            var result = jdbcTemplate.update(sql, updatedCustomer.getName(), updatedCustomer.getId());
-        }
-        if (updatedCustomer.getAge() != null) {
-            var sql = "UPDATE customer SET age = ? WHERE id = ?";
-            var result = jdbcTemplate.update(sql, updatedCustomer.getAge(), updatedCustomer.getId());
-        }
-        if (updatedCustomer.getEmail() != null) {
-            var sql = "UPDATE customer SET email = ? WHERE id = ?";
-            var result = jdbcTemplate.update(sql, updatedCustomer.getEmail(), updatedCustomer.getId());
-        }
+        // one statement, so the row changes (and is logged to the outbox) once per update
+        var sql = """
+                UPDATE customer
+                SET name  = coalesce(?, name),
+                    email = coalesce(?, email),
+                    age   = coalesce(?, age)
+                WHERE id = ?
+                """;
+        jdbcTemplate.update(sql,
+                updatedCustomer.getName(),
+                updatedCustomer.getEmail(),
+                updatedCustomer.getAge(),
+                updatedCustomer.getId());
+    }
+
+    @Override
+    public List<CustomerSyncChange> getCustomerChangesSince(CustomerSyncCursor cursor, int limit) {
+        // rows written by transactions still running (or newer) are held back until they are safe to pass
+        var sql = """
+                SELECT id, name, email, age, changed_at, change_txid::text::bigint AS change_txid, deleted
+                FROM (SELECT id, name, email, age, updated_at AS changed_at, change_txid, false AS deleted
+                      FROM customer
+                      WHERE (change_txid, id) > (?::text::xid8, ?)
+                        AND change_txid < pg_snapshot_xmin(pg_current_snapshot())
+                      UNION ALL
+                      SELECT id, NULL, NULL, NULL, deleted_at, change_txid, true
+                      FROM customer_tombstone
+                      WHERE (change_txid, id) > (?::text::xid8, ?)
+                        AND change_txid < pg_snapshot_xmin(pg_current_snapshot())) changes
+                ORDER BY changes.change_txid, id
+                LIMIT ?
+                """;
+        var txid = Long.toString(cursor.txid());
+        return onReplica(() -> jdbcTemplate.query(
+                scan(sql, txid, cursor.id(), txid, cursor.id(), limit), customerSyncChangeRowMapper));
+    }
+
+    @Override
+    public CustomerStats getCustomerStats(int topDomains) {
+        // reads the materialized views from V6 only; they are refreshed by CustomerStatsViewRefresher
+        var populatedSql = """
+                SELECT count(*) = 3 AND bool_and(ispopulated)
+                FROM pg_matviews
+                WHERE matviewname IN ('customer_stats_summary', 'customer_age_distribution', 'customer_email_domain_counts')
+                """;
+        var summarySql = """
+                SELECT total_customers, refreshed_at
+                FROM customer_stats_summary
+                """;
+        var ageSql = """
+                SELECT age_range, customer_count
+                FROM customer_age_distribution
+                ORDER BY bucket_order
+                """;
+        var domainSql = """
+                SELECT domain, customer_count
+                FROM customer_email_domain_counts
+                ORDER BY customer_count DESC, domain
+                LIMIT ?
+                """;
+        return onReplica(() -> {
+            // a view created or refreshed WITH NO DATA cannot be read at all until its first refresh
+            var populated = jdbcTemplate.query(pointLookup(populatedSql), rs -> rs.next() && rs.getBoolean(1));
+            if (!populated) {
+                return CustomerStats.EMPTY;
+            }
+            var ageDistribution = jdbcTemplate.query(pointLookup(ageSql), (rs, rowNum) -> new AgeBucketCount(
+                    rs.getString("age_range"),
+                    rs.getLong("customer_count")));
+            var topEmailDomains = jdbcTemplate.query(pointLookup(domainSql, topDomains), (rs, rowNum) ->
+                    new EmailDomainCount(rs.getString("domain"), rs.getLong("customer_count")));
+            return jdbcTemplate.query(pointLookup(summarySql), rs -> {
+                if (!rs.next()) {
+                    return CustomerStats.EMPTY;
+                }
+                return new CustomerStats(
+                        rs.getLong("total_customers"),
+                        ageDistribution,
+                        topEmailDomains,
+                        rs.getTimestamp("refreshed_at").toInstant());
+            });
+        });
+    }
+
+    private PreparedStatementCreator pointLookup(String sql, Object... args) {
+        return statement(sql, queryTimeouts.pointLookupSeconds(), new ArgumentPreparedStatementSetter(args));
+    }
+
+    private PreparedStatementCreator scan(String sql, Object... args) {
+        return statement(sql, queryTimeouts.scanSeconds(), new ArgumentPreparedStatementSetter(args));
+    }
+
+    // every read gets its own statement timeout and can be cancelled by the bulkhead running it
+    private static PreparedStatementCreator statement(String sql, int timeoutSeconds, PreparedStatementSetter setter) {
+        return connection -> {
+            var statement = connection.prepareStatement(sql);
+            statement.setQueryTimeout(timeoutSeconds);
+            setter.setValues(statement);
+            QueryCancellation.register(statement);
+            return statement;
+        };
     }
 }
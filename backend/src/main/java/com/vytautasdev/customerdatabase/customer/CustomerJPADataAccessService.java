@@ -1,7 +1,9 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,14 +27,25 @@ public class CustomerJPADataAccessService implements CustomerDao {
 
     }
 
+    @Override
+    public List<Customer> getCustomersByIds(Collection<Long> ids) {
+        return customerRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<Customer> getCustomersAfterId(long afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
     @Override
     public void addCustomer(Customer customer) {
-        customerRepository.save(customer);
+        // save may hand back a different instance than it was given, so copy the generated id over
+        customer.setId(customerRepository.save(customer).getId());
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
-        return customerRepository.existsCustomerByEmail(email);
+        return customerRepository.existsCustomerWithNormalizedEmail(email);
     }
 
     @Override
@@ -50,4 +63,40 @@ public class CustomerJPADataAccessService implements CustomerDao {
     public void updateCustomer(Customer updatedCustomer) {
         customerRepository.save(updatedCustomer);
     }
+
+    @Override
+    public List<CustomerSyncChange> getCustomerChangesSince(CustomerSyncCursor cursor, int limit) {
+        return customerRepository.findChangesSince(cursor.txid(), cursor.id(), limit)
+                .stream()
+                .map(change -> new CustomerSyncChange(
+                        change.getId(),
+                        change.getDeleted() ? null : new Customer(
+                                change.getId(), change.getName(), change.getEmail(), change.getAge()),
+                        change.getDeleted(),
+                        change.getChangedAt(),
+                        new CustomerSyncCursor(change.getChangeTxid(), change.getId())))
+                .toList();
+    }
+
+    @Override
+    public CustomerStats getCustomerStats(int topDomains) {
+        if (!customerRepository.areStatsViewsPopulated()) {
+            return CustomerStats.EMPTY;
+        }
+        var summary = customerRepository.findStatsSummary();
+        if (summary == null) {
+            return CustomerStats.EMPTY;
+        }
+        return new CustomerStats(
+                summary.getTotalCustomers(),
+                customerRepository.findAgeDistribution()
+                        .stream()
+                        .map(bucket -> new AgeBucketCount(bucket.getAgeRange(), bucket.getCustomerCount()))
+                        .toList(),
+                customerRepository.findTopEmailDomains(topDomains)
+                        .stream()
+                        .map(domain -> new EmailDomainCount(domain.getDomain(), domain.getCustomerCount()))
+                        .toList(),
+                summary.getRefreshedAt());
+    }
 }
@@ -1,64 +1,416 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import com.vytautasdev.customerdatabase.journal.CustomerJournal;
+import com.vytautasdev.customerdatabase.store.CompactCustomerStore;
+import com.vytautasdev.customerdatabase.store.CustomerQuery;
+import com.vytautasdev.customerdatabase.store.CustomerScanEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
+//  !! In-memory DAO for running without Postgres; with the journal enabled it survives restarts !!
 @Repository("list")
-public class CustomerListDataAccessService implements CustomerDao {
+public class CustomerListDataAccessService implements CustomerDao, DisposableBean {
 
-    private static List<Customer> customers;
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerListDataAccessService.class);
+    private static final Comparator<CustomerSyncCursor> CURSOR_ORDER =
+            Comparator.comparingLong(CustomerSyncCursor::txid).thenComparingLong(CustomerSyncCursor::id);
 
-    static {
-        customers = new ArrayList<>();
-        var customer1 = new Customer(1L, "John", "Doe", 28);
-        var customer2 = new Customer(2L, "Jane", "Doe", 25);
+    // rows live as primitive columns; every read materializes fresh Customer objects
+    private final CompactCustomerStore customers = new CompactCustomerStore();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CustomerJournal journal;
+    private final long compactAfterBytes;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // null when scans share the common pool
+    private final ForkJoinPool scanPool;
+    private final CustomerScanEngine scanEngine;
+    private long nextId = 1;
+    // sync cursors count changes: the journal sequence when journaling, a counter otherwise
+    private long lastSequence;
+    // rows loaded at startup carry no sequence of their own and read as having changed here
+    private final long historyStart;
+    private final Instant startedAt = Instant.now();
+    // deletes since startup in sequence order, which is also cursor order
+    private final List<CustomerSyncChange> tombstones = new ArrayList<>();
 
-        customers.add(customer1);
-        customers.add(customer2);
+    @Autowired
+    public CustomerListDataAccessService(
+            @Value("${customer.list.journal.enabled:false}") boolean journalEnabled,
+            @Value("${customer.list.journal.directory:${java.io.tmpdir}/customer-journal}") Path directory,
+            @Value("${customer.list.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${customer.list.journal.sync-mode:GROUP}") CustomerJournal.SyncMode syncMode,
+            @Value("${customer.list.journal.sync-interval:10ms}") Duration syncInterval,
+            @Value("${customer.list.journal.compact-after:256MB}") DataSize compactAfter,
+            @Value("${customer.list.scan.parallelism:0}") int scanParallelism) {
+        this(journalEnabled ? directory : null, (int) segmentSize.toBytes(), syncMode, syncInterval, compactAfter.toBytes(),
+                scanParallelism);
+    }
+
+    // purely in memory, starting with the sample customers
+    public CustomerListDataAccessService() {
+        this(null, 0, CustomerJournal.SyncMode.NONE, Duration.ZERO, 0, 0);
+    }
+
+    CustomerListDataAccessService(Path journalDirectory, int segmentSize, CustomerJournal.SyncMode syncMode,
+                                  Duration syncInterval, long compactAfterBytes, int scanParallelism) {
+        this.compactAfterBytes = compactAfterBytes;
+        this.scanPool = scanParallelism > 0 ? new ForkJoinPool(scanParallelism) : null;
+        this.scanEngine = new CustomerScanEngine(scanPool != null ? scanPool : ForkJoinPool.commonPool());
+        if (journalDirectory == null) {
+            this.journal = null;
+            this.compactor = null;
+            this.historyStart = 0;
+            put(new Customer(1L, "John", "Doe", 28));
+            put(new Customer(2L, "Jane", "Doe", 25));
+            return;
+        }
+        try {
+            this.journal = CustomerJournal.open(journalDirectory, segmentSize, syncMode, syncInterval,
+                    new CustomerJournal.Visitor() {
+                        @Override
+                        public void put(Customer customer) {
+                            CustomerListDataAccessService.this.put(customer);
+                        }
+
+                        @Override
+                        public void delete(long id) {
+                            customers.remove(id);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the customer journal in %s.".formatted(journalDirectory), e);
+        }
+        var recovery = journal.recovery();
+        nextId = Math.max(nextId, recovery.highestId() + 1);
+        this.historyStart = journal.checkpoint().sequence();
+        this.lastSequence = historyStart;
+        LOGGER.info("Recovered {} customers from {} snapshot rows and {} journal records in {} ms",
+                customers.size(), recovery.snapshotRecords(), recovery.replayedRecords(), recovery.elapsed().toMillis());
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "customer-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void put(Customer customer) {
+        customers.put(customer);
+        nextId = Math.max(nextId, customer.getId() + 1);
     }
 
     @Override
     public List<Customer> getAllCustomers() {
-        return customers;
+        return read(() -> List.copyOf(customers.customers()));
     }
 
     @Override
     public Optional<Customer> getCustomerById(Long id) {
-        return customers.stream()
-                .filter(customer -> customer.getId().equals(id))
-                .findFirst();
+        return read(() -> Optional.ofNullable(customers.get(id)));
     }
 
+    @Override
+    public List<Customer> getCustomersByIds(Collection<Long> ids) {
+        return read(() -> {
+            var found = new ArrayList<Customer>(ids.size());
+            for (var id : ids) {
+                var customer = customers.get(id);
+                if (customer != null) {
+                    found.add(customer);
+                }
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public List<Customer> getCustomersAfterId(long afterId, int limit) {
+        return read(() -> {
+            // keeps the limit lowest ids past afterId, evicting the highest
+            var lowest = new PriorityQueue<Integer>(Comparator.comparingLong(customers::id).reversed());
+            for (int row = 0; row < customers.rowCount(); row++) {
+                if (!customers.isLive(row) || customers.id(row) <= afterId) {
+                    continue;
+                }
+                lowest.add(row);
+                if (lowest.size() > limit) {
+                    lowest.poll();
+                }
+            }
+            var page = new ArrayList<Customer>(lowest.size());
+            while (!lowest.isEmpty()) {
+                page.add(customers.customer(lowest.poll()));
+            }
+            Collections.reverse(page);
+            return page;
+        });
+    }
+
+    // assigns the next id when the customer has none, like the database sequence would
     @Override
     public void addCustomer(Customer customer) {
-        customers.add(customer);
+        // a journaled write the store then rejects would fail every later recovery
+        CompactCustomerStore.validate(customer);
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            if (customer.getId() == null) {
+                customer.setId(nextId);
+            }
+            sequence = journal == null ? lastSequence + 1 : journal.appendAdd(customer);
+            lastSequence = sequence;
+            customers.put(customer, sequence, System.currentTimeMillis());
+            nextId = Math.max(nextId, customer.getId() + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite(sequence);
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
-        return customers.stream()
-                .anyMatch(customer -> customer.getEmail().equals(email));
+        var normalizedEmail = EmailNormalizer.normalize(email);
+        return read(() -> {
+            for (int row = 0; row < customers.rowCount(); row++) {
+                if (customers.isLive(row) && EmailNormalizer.normalize(customers.email(row)).equals(normalizedEmail)) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     @Override
     public boolean existsCustomerWithId(Long id) {
-        return customers.stream()
-                .anyMatch(customer -> customer.getId().equals(id));
+        return read(() -> customers.contains(id));
     }
 
     @Override
     public void deleteCustomerById(Long customerId) {
-        customers.stream()
-                .filter(customer -> customer.getId().equals(customerId))
-                .findFirst()
-                .ifPresent(customers::remove);
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            if (!customers.contains(customerId)) {
+                return;
+            }
+            sequence = journal == null ? lastSequence + 1 : journal.appendDelete(customerId);
+            lastSequence = sequence;
+            customers.remove(customerId);
+            tombstones.add(new CustomerSyncChange(
+                    customerId, null, true, Instant.now(), new CustomerSyncCursor(sequence, customerId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite(sequence);
     }
 
     @Override
     public void updateCustomer(Customer updatedCustomer) {
-        customers.add(updatedCustomer);
+        CompactCustomerStore.validate(updatedCustomer);
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            if (!customers.contains(updatedCustomer.getId())) {
+                return;
+            }
+            sequence = journal == null ? lastSequence + 1 : journal.appendUpdate(updatedCustomer);
+            lastSequence = sequence;
+            customers.put(updatedCustomer, sequence, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite(sequence);
+    }
+
+    /**
+     * Filters all customers with a parallel scan. Writers wait until it finishes, so keep limits tight on large
+     * stores.
+     */
+    public List<Customer> findCustomers(CustomerQuery query) {
+        return read(() -> scanEngine.scan(customers, query));
+    }
+
+    /**
+     * Same contract as the database DAOs, with change sequences standing in for transaction ids. The history only
+     * goes back to startup, so older cursors (and ones from another process) are rejected and the client has to
+     * sync again from the start.
+     */
+    @Override
+    public List<CustomerSyncChange> getCustomerChangesSince(CustomerSyncCursor cursor, int limit) {
+        return read(() -> {
+            if (!cursor.equals(CustomerSyncCursor.START)
+                    && (cursor.txid() < historyStart || cursor.txid() > lastSequence)) {
+                throw new RequestValidationException(
+                        "Sync cursor [%s] is outside the retained change history, sync again from 0.".formatted(cursor));
+            }
+            // keeps the limit lowest rows past the cursor, evicting the highest
+            var rowOrder = Comparator.comparing(this::cursorOf, CURSOR_ORDER);
+            var lowest = new PriorityQueue<>(rowOrder.reversed());
+            for (int row = 0; row < customers.rowCount(); row++) {
+                if (!customers.isLive(row) || CURSOR_ORDER.compare(cursorOf(row), cursor) <= 0) {
+                    continue;
+                }
+                lowest.add(row);
+                if (lowest.size() > limit) {
+                    lowest.poll();
+                }
+            }
+            var changes = new ArrayList<CustomerSyncChange>(lowest.size() + limit);
+            for (var row : lowest) {
+                var changedAtMillis = customers.changedAtMillis(row);
+                changes.add(new CustomerSyncChange(
+                        customers.id(row),
+                        customers.customer(row),
+                        false,
+                        changedAtMillis == 0 ? startedAt : Instant.ofEpochMilli(changedAtMillis),
+                        cursorOf(row)));
+            }
+            // first tombstone past the cursor
+            int from = 0;
+            int to = tombstones.size();
+            while (from < to) {
+                var middle = (from + to) >>> 1;
+                if (CURSOR_ORDER.compare(tombstones.get(middle).cursor(), cursor) <= 0) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            changes.addAll(tombstones.subList(from, Math.min(tombstones.size(), from + limit)));
+            changes.sort(Comparator.comparing(CustomerSyncChange::cursor, CURSOR_ORDER));
+            return List.copyOf(changes.subList(0, Math.min(limit, changes.size())));
+        });
+    }
+
+    private CustomerSyncCursor cursorOf(int row) {
+        return new CustomerSyncCursor(Math.max(customers.changeSequence(row), historyStart), customers.id(row));
+    }
+
+    // computed on the spot with one pass over the store, with the same buckets and domains as the V6 views
+    @Override
+    public CustomerStats getCustomerStats(int topDomains) {
+        return read(() -> {
+            var ageCounts = new long[AgeBucketCount.bucketCount()];
+            var domainCounts = new HashMap<String, Long>();
+            for (int row = 0; row < customers.rowCount(); row++) {
+                if (!customers.isLive(row)) {
+                    continue;
+                }
+                var age = customers.age(row);
+                var bucket = age == null ? -1 : AgeBucketCount.bucketOf(age);
+                if (bucket >= 0) {
+                    ageCounts[bucket]++;
+                }
+                domainCounts.merge(emailDomain(customers.email(row)), 1L, Long::sum);
+            }
+            var ageDistribution = new ArrayList<AgeBucketCount>(ageCounts.length);
+            for (int bucket = 0; bucket < ageCounts.length; bucket++) {
+                ageDistribution.add(new AgeBucketCount(AgeBucketCount.range(bucket), ageCounts[bucket]));
+            }
+            var topEmailDomains = domainCounts.entrySet()
+                    .stream()
+                    .map(domain -> new EmailDomainCount(domain.getKey(), domain.getValue()))
+                    .sorted(Comparator.comparingLong(EmailDomainCount::count).reversed()
+                            .thenComparing(EmailDomainCount::domain))
+                    .limit(topDomains)
+                    .toList();
+            return new CustomerStats(customers.size(), ageDistribution, topEmailDomains, Instant.now());
+        });
+    }
+
+    private static String emailDomain(String email) {
+        var at = email == null ? -1 : email.lastIndexOf('@');
+        return at < 0 ? "" : email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // group fsync waits outside the lock, so concurrent writers can share one
+    private void afterWrite(long sequence) {
+        if (journal == null) {
+            return;
+        }
+        journal.awaitDurable(sequence);
+        if (journal.bytesSinceSnapshot() >= compactAfterBytes && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Customer journal compaction failed, will retry after more writes", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Snapshots the current state and drops the journal segments it covers. Writes are only blocked while the
+     * state is copied, not while the snapshot is written.
+     */
+    public void compact() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        CustomerJournal.Checkpoint checkpoint;
+        CompactCustomerStore state;
+        lock.writeLock().lock();
+        try {
+            checkpoint = journal.checkpoint();
+            state = customers.copy();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.writeSnapshot(checkpoint, state.customers());
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // a snapshot on the way down keeps the next startup from replaying the whole journal
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        if (scanPool != null) {
+            scanPool.shutdown();
+        }
+        if (journal == null) {
+            return;
+        }
+        compactor.shutdown();
+        compactor.awaitTermination(30, TimeUnit.SECONDS);
+        compact();
+        journal.close();
     }
 }
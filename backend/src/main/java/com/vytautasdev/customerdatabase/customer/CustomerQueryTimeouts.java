@@ -0,0 +1,36 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// statement timeouts per kind of DAO query, applied with setQueryTimeout (whole seconds, minimum one)
+@Component
+public class CustomerQueryTimeouts {
+
+    private final Duration pointLookup;
+    private final Duration scan;
+
+    public CustomerQueryTimeouts(@Value("${customer.query-timeouts.point-lookup:2s}") Duration pointLookup,
+                                 @Value("${customer.query-timeouts.scan:30s}") Duration scan) {
+        this.pointLookup = pointLookup;
+        this.scan = scan;
+    }
+
+    public static CustomerQueryTimeouts defaults() {
+        return new CustomerQueryTimeouts(Duration.ofSeconds(2), Duration.ofSeconds(30));
+    }
+
+    public int pointLookupSeconds() {
+        return toSeconds(pointLookup);
+    }
+
+    public int scanSeconds() {
+        return toSeconds(scan);
+    }
+
+    private static int toSeconds(Duration timeout) {
+        return (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+    }
+}
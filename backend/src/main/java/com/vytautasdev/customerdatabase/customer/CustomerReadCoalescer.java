@@ -0,0 +1,75 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+//  !! Single-flight for point lookups: concurrent reads of the same id share one in-flight query !!
+@Component
+public class CustomerReadCoalescer {
+
+    private final ConcurrentHashMap<Long, CompletableFuture<Optional<Customer>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter lookups;
+    private final Counter coalesced;
+
+    public CustomerReadCoalescer(MeterRegistry meterRegistry) {
+        this.lookups = Counter.builder("customer.read.lookups")
+                .description("Customer point lookups requested")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("customer.read.coalesced")
+                .description("Customer point lookups served by another caller's in-flight query")
+                .register(meterRegistry);
+        Gauge.builder("customer.read.coalescing.ratio", this, CustomerReadCoalescer::coalescingRatio)
+                .description("Share of customer point lookups that did not hit the database")
+                .register(meterRegistry);
+    }
+
+    public Optional<Customer> getCustomerById(Long id, Function<Long, Optional<Customer>> loader) {
+        lookups.increment();
+        var ours = new CompletableFuture<Optional<Customer>>();
+        var existing = inFlight.putIfAbsent(id, ours);
+        if (existing != null) {
+            coalesced.increment();
+            // callers may mutate what they get back (see updateCustomer), so followers receive their own copy
+            return await(existing).map(CustomerReadCoalescer::copyOf);
+        }
+        try {
+            var result = loader.apply(id);
+            // followers copy from a snapshot, never from the instance handed back to the leader
+            ours.complete(result.map(CustomerReadCoalescer::copyOf));
+            return result;
+        } catch (RuntimeException e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, ours);
+        }
+    }
+
+    public double coalescingRatio() {
+        var total = lookups.count();
+        return total == 0 ? 0 : coalesced.count() / total;
+    }
+
+    private static Optional<Customer> await(CompletableFuture<Optional<Customer>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+    }
+}
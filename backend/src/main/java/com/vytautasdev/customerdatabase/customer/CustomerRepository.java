@@ -1,11 +1,93 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     boolean existsCustomerByEmail(String email);
     boolean existsCustomerById(Long id);
 
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // case-insensitive, through the normalized email key of the customer_email lookup table
+    @Query(nativeQuery = true, value = """
+            SELECT EXISTS (SELECT 1 FROM customer_email WHERE normalized_email = lower(btrim(:email)))
+            """)
+    boolean existsCustomerWithNormalizedEmail(String email);
+
+    @Query(nativeQuery = true, value = """
+            SELECT id, name, email, age, changed_at AS changedAt, CAST(CAST(change_txid AS text) AS bigint) AS changeTxid, deleted
+            FROM (SELECT id, name, email, age, updated_at AS changed_at, change_txid, false AS deleted
+                  FROM customer
+                  WHERE (change_txid, id) > (CAST(CAST(:txid AS text) AS xid8), :id)
+                    AND change_txid < pg_snapshot_xmin(pg_current_snapshot())
+                  UNION ALL
+                  SELECT id, NULL, NULL, NULL, deleted_at, change_txid, true
+                  FROM customer_tombstone
+                  WHERE (change_txid, id) > (CAST(CAST(:txid AS text) AS xid8), :id)
+                    AND change_txid < pg_snapshot_xmin(pg_current_snapshot())) changes
+            ORDER BY changes.change_txid, id
+            LIMIT :limit
+            """)
+    List<CustomerChangeView> findChangesSince(long txid, long id, int limit);
+
+    // a view created or refreshed WITH NO DATA cannot be read at all until its first refresh
+    @Query(nativeQuery = true, value = """
+            SELECT count(*) = 3 AND bool_and(ispopulated)
+            FROM pg_matviews
+            WHERE matviewname IN ('customer_stats_summary', 'customer_age_distribution', 'customer_email_domain_counts')
+            """)
+    boolean areStatsViewsPopulated();
+
+    @Query(nativeQuery = true, value = """
+            SELECT total_customers AS totalCustomers, refreshed_at AS refreshedAt
+            FROM customer_stats_summary
+            """)
+    CustomerStatsSummaryView findStatsSummary();
+
+    @Query(nativeQuery = true, value = """
+            SELECT age_range AS ageRange, customer_count AS customerCount
+            FROM customer_age_distribution
+            ORDER BY bucket_order
+            """)
+    List<AgeBucketView> findAgeDistribution();
+
+    @Query(nativeQuery = true, value = """
+            SELECT domain, customer_count AS customerCount
+            FROM customer_email_domain_counts
+            ORDER BY customer_count DESC, domain
+            LIMIT :limit
+            """)
+    List<EmailDomainView> findTopEmailDomains(int limit);
+
+    interface CustomerChangeView {
+        Long getId();
+        String getName();
+        String getEmail();
+        Integer getAge();
+        Instant getChangedAt();
+        Long getChangeTxid();
+        boolean getDeleted();
+    }
+
+    interface CustomerStatsSummaryView {
+        Long getTotalCustomers();
+        Instant getRefreshedAt();
+    }
+
+    interface AgeBucketView {
+        String getAgeRange();
+        Long getCustomerCount();
+    }
+
+    interface EmailDomainView {
+        String getDomain();
+        Long getCustomerCount();
+    }
 
 }
@@ -1,21 +1,53 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import com.vytautasdev.customerdatabase.audit.CustomerAuditLog;
+import com.vytautasdev.customerdatabase.audit.CustomerAuditRecord.FieldChange;
+import com.vytautasdev.customerdatabase.cache.CustomerCache;
 import com.vytautasdev.customerdatabase.exception.DuplicateResourceException;
 import com.vytautasdev.customerdatabase.exception.RequestValidationException;
 import com.vytautasdev.customerdatabase.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.*;
 
 //  !! Service classes are responsible for the business logic (N tier architecture --  Business Layer ) !!
 @Service
 public class CustomerService {
 
+    static final int MAX_BATCH_LOOKUP_SIZE = 1000;
+    static final int MAX_SYNC_PAGE_SIZE = 5000;
+    static final int MAX_LIST_PAGE_SIZE = 5000;
+
     private final CustomerDao customerDao;
+    private final CustomerWriteBatcher writeBatcher;
+    private final CustomerReadCoalescer readCoalescer;
+    private final CustomerCache customerCache;
+    private final CustomerAuditLog auditLog;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
+    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao,
+                           CustomerWriteBatcher writeBatcher,
+                           CustomerReadCoalescer readCoalescer,
+                           CustomerCache customerCache,
+                           CustomerAuditLog auditLog,
+                           ApplicationEventPublisher eventPublisher) {
         this.customerDao = customerDao;
+        this.writeBatcher = writeBatcher;
+        this.readCoalescer = readCoalescer;
+        this.customerCache = customerCache;
+        this.auditLog = auditLog;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Customer> getAllCustomers() {
@@ -23,12 +55,69 @@ public class CustomerService {
     }
 
     public Customer getCustomer(Long id) {
-        return customerDao
-                .getCustomerById(id)
+        return readCoalescer
+                .getCustomerById(id, customerId -> customerCache.getCustomerById(customerId, customerDao::getCustomerById))
+                .orElseThrow(() -> new ResourceNotFoundException("Customer with id [%s] not found.".formatted(id)));
+    }
+
+    // updates write the whole row back, so they start from the database rather than a possibly stale cache entry
+    private Customer getCustomerForUpdate(Long id) {
+        return customerDao.getCustomerById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer with id [%s] not found.".formatted(id)));
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+    public CustomerBatchResponse getCustomers(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RequestValidationException("At least one customer id is required.");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new RequestValidationException("Customer ids must not be null.");
+        }
+        var distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > MAX_BATCH_LOOKUP_SIZE) {
+            throw new RequestValidationException(
+                    "At most %s customer ids can be requested at once.".formatted(MAX_BATCH_LOOKUP_SIZE));
+        }
+        var found = customerDao.getCustomersByIds(distinctIds)
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        // answer in request order, reporting ids the DAO did not return
+        var customers = new ArrayList<Customer>(found.size());
+        var missingIds = new ArrayList<Long>();
+        for (var id : distinctIds) {
+            var customer = found.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new CustomerBatchResponse(customers, missingIds);
+    }
+
+    // keyset paging by id: unlike the sync feed, a customer changed while a client pages through is not seen twice
+    public List<Customer> getCustomersAfterId(long afterId, int limit) {
+        if (limit < 1 || limit > MAX_LIST_PAGE_SIZE) {
+            throw new RequestValidationException("limit must be 1-%s.".formatted(MAX_LIST_PAGE_SIZE));
+        }
+        return customerDao.getCustomersAfterId(afterId, limit);
+    }
+
+    public CustomerSyncPage getChangesSince(String since, int limit) {
+        if (limit < 1 || limit > MAX_SYNC_PAGE_SIZE) {
+            throw new RequestValidationException("limit must be 1-%s.".formatted(MAX_SYNC_PAGE_SIZE));
+        }
+        var cursor = CustomerSyncCursor.parse(since);
+        // one extra row tells the client whether to keep paging
+        var changes = customerDao.getCustomerChangesSince(cursor, limit + 1);
+        var hasMore = changes.size() > limit;
+        var page = hasMore ? changes.subList(0, limit) : changes;
+        var next = page.isEmpty() ? cursor : page.get(page.size() - 1).cursor();
+        return new CustomerSyncPage(page, next.toString(), hasMore);
+    }
+
+    public Customer addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
         // check if email already exists
         var email = customerRegistrationRequest.email();
         if (customerDao.existsCustomerWithEmail(email)) {
@@ -39,42 +128,69 @@ public class CustomerService {
                 customerRegistrationRequest.name(),
                 customerRegistrationRequest.email(),
                 customerRegistrationRequest.age());
-        customerDao.addCustomer(customer);
+        try {
+            writeBatcher.addCustomer(customer);
+        } catch (DuplicateKeyException e) {
+            // a concurrent registration won the race between the exists-check and the insert
+            throw new DuplicateResourceException("This email is already taken.");
+        }
+        eventPublisher.publishEvent(new CustomerChangedEvent(CREATED, customer.getId(), customer));
+        var created = new LinkedHashMap<String, FieldChange>();
+        created.put("name", new FieldChange(null, customer.getName()));
+        created.put("email", new FieldChange(null, customer.getEmail()));
+        created.put("age", new FieldChange(null, customer.getAge()));
+        auditLog.record(CREATED, customer.getId(), created);
+        return customer;
     }
 
     public void deleteCustomerById(Long customerId) {
-        if (!customerDao.existsCustomerWithId(customerId)) {
-            throw new ResourceNotFoundException("Customer with id [%s] not found.".formatted(customerId));
-        }
-        customerDao.deleteCustomerById(customerId);
+        // the row is read rather than just checked for, so the audit keeps what was deleted
+        var customer = getCustomerForUpdate(customerId);
+        writeBatcher.deleteCustomerById(customerId);
+        eventPublisher.publishEvent(new CustomerChangedEvent(DELETED, customerId, null));
+        var deleted = new LinkedHashMap<String, FieldChange>();
+        deleted.put("name", new FieldChange(customer.getName(), null));
+        deleted.put("email", new FieldChange(customer.getEmail(), null));
+        deleted.put("age", new FieldChange(customer.getAge(), null));
+        auditLog.record(DELETED, customerId, deleted);
     }
 
     public void updateCustomer(Long customerId, CustomerUpdateRequest updateRequest) {
-        var customer = getCustomer(customerId);
-        var changes = false;
+        var customer = getCustomerForUpdate(customerId);
+        // field -> before/after, which is also the audit diff
+        var changes = new LinkedHashMap<String, FieldChange>();
 
         if (updateRequest.name() != null && !updateRequest.name().equals(customer.getName())) {
+            changes.put("name", new FieldChange(customer.getName(), updateRequest.name()));
             customer.setName(updateRequest.name());
-            changes = true;
         }
 
         if (updateRequest.age() != null && !updateRequest.age().equals(customer.getAge())) {
+            changes.put("age", new FieldChange(customer.getAge(), updateRequest.age()));
             customer.setAge(updateRequest.age());
-            changes = true;
         }
 
         if (updateRequest.email() != null && !updateRequest.email().equals(customer.getEmail())) {
-            if (customerDao.existsCustomerWithEmail(updateRequest.email())) {
+            // changing only case or surrounding spaces keeps the normalized email this customer already holds
+            var sameNormalizedEmail = EmailNormalizer.normalize(updateRequest.email())
+                    .equals(EmailNormalizer.normalize(customer.getEmail()));
+            if (!sameNormalizedEmail && customerDao.existsCustomerWithEmail(updateRequest.email())) {
                 throw new DuplicateResourceException("This email is already taken.");
             }
+            changes.put("email", new FieldChange(customer.getEmail(), updateRequest.email()));
             customer.setEmail(updateRequest.email());
-            changes = true;
         }
 
-        if (!changes) {
+        if (changes.isEmpty()) {
             throw new RequestValidationException("No data changes found.");
         }
 
-        customerDao.updateCustomer(customer);
+        try {
+            writeBatcher.updateCustomer(customer);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("This email is already taken.");
+        }
+        eventPublisher.publishEvent(new CustomerChangedEvent(UPDATED, customerId, customer));
+        auditLog.record(UPDATED, customerId, changes);
     }
 }
@@ -0,0 +1,14 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.time.Instant;
+import java.util.List;
+
+public record CustomerStats(
+        long totalCustomers,
+        List<AgeBucketCount> ageDistribution,
+        List<EmailDomainCount> topEmailDomains,
+        // null until the stats are first computed
+        Instant asOf
+) {
+    public static final CustomerStats EMPTY = new CustomerStats(0, List.of(), List.of(), null);
+}
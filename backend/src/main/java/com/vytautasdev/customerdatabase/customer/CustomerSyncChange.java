@@ -0,0 +1,12 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.time.Instant;
+
+public record CustomerSyncChange(
+        Long id,
+        Customer customer,
+        boolean deleted,
+        Instant changedAt,
+        CustomerSyncCursor cursor
+) {
+}
@@ -0,0 +1,29 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Component
+public class CustomerSyncChangeRowMapper implements RowMapper<CustomerSyncChange> {
+    @Override
+    public CustomerSyncChange mapRow(ResultSet rs, int rowNum) throws SQLException {
+        var id = rs.getLong("id");
+        var deleted = rs.getBoolean("deleted");
+        var customer = deleted ? null : new Customer(
+                id,
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getInt("age")
+        );
+        return new CustomerSyncChange(
+                id,
+                customer,
+                deleted,
+                rs.getTimestamp("changed_at").toInstant(),
+                new CustomerSyncCursor(rs.getLong("change_txid"), id)
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+
+// resume point for incremental sync, rendered as "<txid>.<id>"; "0" starts from the beginning
+public record CustomerSyncCursor(
+        long txid,
+        long id
+) {
+    public static final CustomerSyncCursor START = new CustomerSyncCursor(0, 0);
+
+    public static CustomerSyncCursor parse(String since) {
+        if (since == null || since.isBlank() || since.equals("0")) {
+            return START;
+        }
+        var parts = since.split("\\.");
+        try {
+            if (parts.length != 2) {
+                throw new NumberFormatException(since);
+            }
+            return new CustomerSyncCursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new RequestValidationException("Invalid sync cursor [%s].".formatted(since));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return txid + "." + id;
+    }
+}
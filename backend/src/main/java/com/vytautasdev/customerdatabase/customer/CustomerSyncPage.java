@@ -0,0 +1,10 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.util.List;
+
+public record CustomerSyncPage(
+        List<CustomerSyncChange> changes,
+        String nextSince,
+        boolean hasMore
+) {
+}
@@ -0,0 +1,258 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.vytautasdev.customerdatabase.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+//  !! Write-behind pipeline in front of the DAO: coalesces writes from concurrent requests into group-committed batches !!
+@Component
+public class CustomerWriteBatcher implements DisposableBean {
+
+    private final CustomerDao customerDao;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long commitTimeoutNanos;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread worker;
+    private volatile boolean running;
+
+    @Autowired
+    public CustomerWriteBatcher(
+            @Qualifier("jdbc") CustomerDao customerDao,
+            PlatformTransactionManager transactionManager,
+            @Value("${customer.write-batching.enabled:false}") boolean enabled,
+            @Value("${customer.write-batching.max-batch-size:64}") int maxBatchSize,
+            @Value("${customer.write-batching.max-delay:5ms}") Duration maxDelay,
+            @Value("${customer.write-batching.queue-capacity:4096}") int queueCapacity,
+            @Value("${customer.write-batching.commit-timeout:30s}") Duration commitTimeout) {
+        this.customerDao = customerDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.commitTimeoutNanos = commitTimeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::drainLoop, "customer-write-batcher");
+        this.worker.setDaemon(true);
+        if (enabled) {
+            running = true;
+            worker.start();
+        }
+    }
+
+    // writes go straight to the DAO, e.g. for unit tests or when batching is switched off
+    public static CustomerWriteBatcher direct(CustomerDao customerDao) {
+        return new CustomerWriteBatcher(customerDao);
+    }
+
+    private CustomerWriteBatcher(CustomerDao customerDao) {
+        this.customerDao = customerDao;
+        this.transactionTemplate = null;
+        this.enabled = false;
+        this.maxBatchSize = 1;
+        this.maxDelayNanos = 0;
+        this.commitTimeoutNanos = 0;
+        this.queue = null;
+        this.worker = null;
+    }
+
+    public void addCustomer(Customer customer) {
+        execute(dao -> dao.addCustomer(customer));
+    }
+
+    public void updateCustomer(Customer customer) {
+        execute(dao -> dao.updateCustomer(customer));
+    }
+
+    public void deleteCustomerById(Long customerId) {
+        execute(dao -> dao.deleteCustomerById(customerId));
+    }
+
+    /**
+     * Queues the write and returns a future that completes once the batch containing it has committed.
+     * Fails with the exception thrown by this write only, never with one caused by another caller's write.
+     */
+    public CompletableFuture<Void> submit(Consumer<CustomerDao> operation) {
+        return submit(new PendingWrite(operation, new CompletableFuture<>()), System.nanoTime() + commitTimeoutNanos);
+    }
+
+    private CompletableFuture<Void> submit(PendingWrite write, long deadline) {
+        var operation = write.operation();
+        var result = write.result();
+        if (!enabled) {
+            try {
+                operation.accept(customerDao);
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        if (!running) {
+            result.completeExceptionally(shutDown());
+            return result;
+        }
+        try {
+            // blocks when the queue is full, pushing back on request threads instead of growing without bound
+            if (!queue.offer(write, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                result.completeExceptionally(
+                        new ServiceUnavailableException("Too many customer writes in progress, please retry later."));
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+        // the worker may have stopped between the check above and the offer; whoever takes the write off the
+        // queue completes it, so if it is still there nobody else will
+        if (!running && queue.remove(write)) {
+            result.completeExceptionally(shutDown());
+        }
+        return result;
+    }
+
+    private void execute(Consumer<CustomerDao> operation) {
+        if (!enabled) {
+            operation.accept(customerDao);
+            return;
+        }
+        // queueing and committing share one deadline, so a caller never waits longer than commit-timeout
+        var deadline = System.nanoTime() + commitTimeoutNanos;
+        var write = new PendingWrite(operation, new CompletableFuture<>());
+        try {
+            submit(write, deadline).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (write.claim()) {
+                // the worker never picked the write up and now never will, so retrying cannot apply it twice
+                queue.remove(write);
+                write.result().completeExceptionally(e);
+                throw new ServiceUnavailableException("Customer write did not commit in time, please retry later.");
+            }
+            throw new ServiceUnavailableException(
+                    "Customer write is still being committed and may yet succeed, check before retrying.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for customer write to commit.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void drainLoop() {
+        var batch = new ArrayList<PendingWrite>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                var deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    var remaining = deadline - System.nanoTime();
+                    var next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // skips writes whose callers gave up waiting before the worker got to them
+                batch.removeIf(write -> !write.claim());
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+                failPending();
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                // fails writes that were drained but never flushed, e.g. when interrupted mid-collection
+                batch.stream()
+                        .filter(write -> !write.result().isDone())
+                        .forEach(write -> write.result().completeExceptionally(shutDown()));
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<PendingWrite> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    batch.forEach(write -> write.operation().accept(customerDao)));
+            batch.forEach(write -> write.result().complete(null));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            // the group commit rolled back, so replay each write on its own to pin the failure on its caller
+            batch.forEach(this::flushSingle);
+        }
+    }
+
+    private void flushSingle(PendingWrite write) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write.operation().accept(customerDao));
+            write.result().complete(null);
+        } catch (RuntimeException e) {
+            write.result().completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        failPending();
+    }
+
+    private void failPending() {
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            write.result().completeExceptionally(shutDown());
+        }
+    }
+
+    private static IllegalStateException shutDown() {
+        return new IllegalStateException("Customer write batcher is shut down.");
+    }
+
+    // claimed exactly once: by the worker before it runs the write, or by a caller that gave up waiting
+    record PendingWrite(Consumer<CustomerDao> operation, CompletableFuture<Void> result, AtomicBoolean claimed) {
+
+        PendingWrite(Consumer<CustomerDao> operation, CompletableFuture<Void> result) {
+            this(operation, result, new AtomicBoolean());
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
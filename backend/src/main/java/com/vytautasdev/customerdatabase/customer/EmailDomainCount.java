@@ -0,0 +1,7 @@
+package com.vytautasdev.customerdatabase.customer;
+
+public record EmailDomainCount(
+        String domain,
+        long count
+) {
+}
@@ -0,0 +1,22 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import java.util.Locale;
+
+// the Java side of lower(btrim(email)), which the database uses to enforce unique emails (see V7)
+public final class EmailNormalizer {
+
+    private EmailNormalizer() {
+    }
+
+    public static String normalize(String email) {
+        var start = 0;
+        var end = email.length();
+        while (start < end && email.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && email.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return email.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+}
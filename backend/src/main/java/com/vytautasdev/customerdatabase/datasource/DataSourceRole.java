@@ -0,0 +1,6 @@
+package com.vytautasdev.customerdatabase.datasource;
+
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,61 @@
+package com.vytautasdev.customerdatabase.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+//  !! Thread-bound routing hints: DAOs mark replica-safe reads, the web layer pins clients that just wrote !!
+public final class DataSourceRoutingContext {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    private DataSourceRoutingContext() {
+    }
+
+    public static <T> T onReplica(Supplier<T> read) {
+        var outer = REPLICA_READ.get();
+        REPLICA_READ.set(true);
+        try {
+            return read.get();
+        } finally {
+            REPLICA_READ.set(outer);
+        }
+    }
+
+    // for reads whose result outlives the request, e.g. cache fills, which must never be older than a write
+    public static <T> T onPrimary(Supplier<T> read) {
+        var outer = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(true);
+        try {
+            return read.get();
+        } finally {
+            pinToPrimary(outer);
+        }
+    }
+
+    public static void pinToPrimary(boolean pinned) {
+        if (pinned) {
+            PINNED_TO_PRIMARY.set(true);
+        } else {
+            PINNED_TO_PRIMARY.remove();
+        }
+    }
+
+    // lets work handed to another thread carry the pin along
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get();
+    }
+
+    public static DataSourceRole currentRole() {
+        if (!REPLICA_READ.get() || PINNED_TO_PRIMARY.get()) {
+            return DataSourceRole.PRIMARY;
+        }
+        // reads inside a read-write transaction must see that transaction's own writes
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+}
@@ -0,0 +1,53 @@
+package com.vytautasdev.customerdatabase.datasource;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+//  !! Keeps a client on the primary for a short window after it writes, so it never reads its own stale data !!
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+
+    private final ConcurrentHashMap<String, Long> lastWriteNanos = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        // claiming another client's id only sends reads to the primary, so the claim is good enough here
+        var client = ClientIdentity.claimedClientKey(request);
+        var now = System.nanoTime();
+        var lastWrite = lastWriteNanos.get(client);
+        DataSourceRoutingContext.pinToPrimary(lastWrite != null && now - lastWrite < windowNanos);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceRoutingContext.pinToPrimary(false);
+            if (!SAFE_METHODS.contains(request.getMethod()) && response.getStatus() < 400) {
+                recordWrite(client, System.nanoTime());
+            }
+        }
+    }
+
+    private void recordWrite(String client, long now) {
+        if (lastWriteNanos.size() >= MAX_TRACKED_CLIENTS) {
+            lastWriteNanos.values().removeIf(written -> now - written >= windowNanos);
+        }
+        lastWriteNanos.put(client, now);
+    }
+}
@@ -0,0 +1,83 @@
+package com.vytautasdev.customerdatabase.grpc;
+
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+//  !! Runs the gRPC API on its own port inside the same application; port 0 picks a free one !!
+@Component
+public class CustomerGrpcServer implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerGrpcServer.class);
+
+    private final CustomerGrpcService customerGrpcService;
+    private final int port;
+    private final Duration shutdownGracePeriod;
+    private final int maxInboundMessageSize;
+    private volatile Server server;
+
+    public CustomerGrpcServer(CustomerGrpcService customerGrpcService,
+                              @Value("${customer.grpc.port:9090}") int port,
+                              @Value("${customer.grpc.shutdown-grace-period:PT10S}") Duration shutdownGracePeriod,
+                              @Value("${customer.grpc.max-inbound-message-size:4194304}") int maxInboundMessageSize) {
+        this.customerGrpcService = customerGrpcService;
+        this.port = port;
+        this.shutdownGracePeriod = shutdownGracePeriod;
+        this.maxInboundMessageSize = maxInboundMessageSize;
+    }
+
+    @Override
+    public void start() {
+        try {
+            server = NettyServerBuilder.forPort(port)
+                    .addService(customerGrpcService)
+                    .maxInboundMessageSize(maxInboundMessageSize)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the gRPC server on port %s.".formatted(port), e);
+        }
+        LOGGER.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        var running = server;
+        if (running == null) {
+            return;
+        }
+        // in-flight calls get the grace period to finish, then are cancelled
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(shutdownGracePeriod.toMillis(), TimeUnit.MILLISECONDS)) {
+                running.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            running.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        var running = server;
+        if (running == null) {
+            throw new IllegalStateException("The gRPC server is not running.");
+        }
+        return running.getPort();
+    }
+}
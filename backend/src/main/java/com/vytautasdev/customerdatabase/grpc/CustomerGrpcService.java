@@ -0,0 +1,204 @@
+package com.vytautasdev.customerdatabase.grpc;
+
+import com.google.protobuf.Empty;
+import com.vytautasdev.customerdatabase.customer.CustomerService;
+import com.vytautasdev.customerdatabase.customer.CustomerUpdateRequest;
+import com.vytautasdev.customerdatabase.exception.DuplicateResourceException;
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import com.vytautasdev.customerdatabase.exception.ResourceNotFoundException;
+import com.vytautasdev.customerdatabase.exception.ServiceUnavailableException;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import com.vytautasdev.customerdatabase.proto.CustomerServiceGrpc;
+import com.vytautasdev.customerdatabase.proto.CustomerServiceProto;
+import com.vytautasdev.customerdatabase.wireformat.CustomerProtoMapper;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+//  !! gRPC API Layer: same operations as CustomerController, backed by the same CustomerService and DAO !!
+@Component
+public class CustomerGrpcService extends CustomerServiceGrpc.CustomerServiceImplBase {
+
+    private final CustomerService customerService;
+    private final int listPageSize;
+
+    public CustomerGrpcService(CustomerService customerService,
+                               @Value("${customer.grpc.list-page-size:1000}") int listPageSize) {
+        this.customerService = customerService;
+        this.listPageSize = listPageSize;
+    }
+
+    @Override
+    public void getCustomer(CustomerServiceProto.GetCustomerRequest request,
+                            StreamObserver<CustomerProto.Customer> responseObserver) {
+        respond(responseObserver, () -> CustomerProtoMapper.toProto(customerService.getCustomer(request.getId())));
+    }
+
+    @Override
+    public void getCustomers(CustomerProto.CustomerBatchRequest request,
+                             StreamObserver<CustomerProto.CustomerBatchResponse> responseObserver) {
+        respond(responseObserver, () -> CustomerProtoMapper.toProto(customerService.getCustomers(request.getIdsList())));
+    }
+
+    @Override
+    public void listCustomers(CustomerServiceProto.ListCustomersRequest request,
+                              StreamObserver<CustomerProto.Customer> responseObserver) {
+        var pageSize = request.getPageSize() == 0 ? listPageSize : request.getPageSize();
+        var call = (ServerCallStreamObserver<CustomerProto.Customer>) responseObserver;
+        var stream = new CustomerListStream(call, pageSize);
+        call.setOnCancelHandler(stream::cancel);
+        call.setOnReadyHandler(stream::drain);
+    }
+
+    @Override
+    public void registerCustomer(CustomerProto.CustomerRegistrationRequest request,
+                                 StreamObserver<CustomerProto.Customer> responseObserver) {
+        respond(responseObserver, () -> CustomerProtoMapper.toProto(
+                customerService.addCustomer(CustomerProtoMapper.fromProto(request))));
+    }
+
+    @Override
+    public StreamObserver<CustomerProto.CustomerRegistrationRequest> registerCustomers(
+            StreamObserver<CustomerServiceProto.RegisterCustomersResponse> responseObserver) {
+        var response = CustomerServiceProto.RegisterCustomersResponse.newBuilder();
+        return new StreamObserver<>() {
+            private int index;
+
+            @Override
+            public void onNext(CustomerProto.CustomerRegistrationRequest request) {
+                try {
+                    customerService.addCustomer(CustomerProtoMapper.fromProto(request));
+                    response.setRegistered(response.getRegistered() + 1);
+                } catch (RuntimeException e) {
+                    var status = toStatus(e).getStatus();
+                    response.addFailures(CustomerServiceProto.RegistrationFailure.newBuilder()
+                            .setIndex(index)
+                            .setCode(status.getCode().name())
+                            .setMessage(String.valueOf(status.getDescription())));
+                }
+                index++;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // the client gave up; what was registered so far stays registered
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onNext(response.build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    @Override
+    public void updateCustomer(CustomerServiceProto.UpdateCustomerRequest request,
+                               StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            customerService.updateCustomer(request.getId(), new CustomerUpdateRequest(
+                    request.hasName() ? request.getName() : null,
+                    request.hasEmail() ? request.getEmail() : null,
+                    request.hasAge() ? request.getAge() : null));
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    public void deleteCustomer(CustomerServiceProto.DeleteCustomerRequest request,
+                               StreamObserver<Empty> responseObserver) {
+        respond(responseObserver, () -> {
+            customerService.deleteCustomerById(request.getId());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    private static <T> void respond(StreamObserver<T> responseObserver, Supplier<T> call) {
+        T response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    // the same exceptions the REST layer turns into 400/404/409/503
+    static StatusRuntimeException toStatus(RuntimeException e) {
+        Status status;
+        if (e instanceof ResourceNotFoundException) {
+            status = Status.NOT_FOUND;
+        } else if (e instanceof DuplicateResourceException) {
+            status = Status.ALREADY_EXISTS;
+        } else if (e instanceof RequestValidationException) {
+            status = Status.INVALID_ARGUMENT;
+        } else if (e instanceof ServiceUnavailableException) {
+            status = Status.UNAVAILABLE;
+        } else {
+            return Status.INTERNAL.withDescription("Internal error.").withCause(e).asRuntimeException();
+        }
+        return status.withDescription(e.getMessage()).asRuntimeException();
+    }
+
+    /**
+     * Walks the customer table in id order one page at a time and only sends while the client's transport buffer
+     * has room, so a slow reader holds one page in memory instead of the whole table. Paging by id rather than by
+     * sync cursor sends every customer once, even one that is updated while the stream runs.
+     */
+    private class CustomerListStream {
+
+        private final ServerCallStreamObserver<CustomerProto.Customer> call;
+        private final int pageSize;
+        private final Queue<CustomerProto.Customer> page = new ArrayDeque<>();
+        private long afterId;
+        private boolean hasMore = true;
+        private boolean done;
+
+        CustomerListStream(ServerCallStreamObserver<CustomerProto.Customer> call, int pageSize) {
+            this.call = call;
+            this.pageSize = pageSize;
+        }
+
+        synchronized void drain() {
+            try {
+                while (!done && call.isReady()) {
+                    if (page.isEmpty() && !nextPage()) {
+                        done = true;
+                        call.onCompleted();
+                        return;
+                    }
+                    call.onNext(page.poll());
+                }
+            } catch (RuntimeException e) {
+                done = true;
+                call.onError(toStatus(e));
+            }
+        }
+
+        private boolean nextPage() {
+            while (page.isEmpty() && hasMore) {
+                var customers = customerService.getCustomersAfterId(afterId, pageSize);
+                customers.forEach(customer -> page.add(CustomerProtoMapper.toProto(customer)));
+                if (!customers.isEmpty()) {
+                    afterId = customers.get(customers.size() - 1).getId();
+                }
+                hasMore = customers.size() == pageSize;
+            }
+            return !page.isEmpty();
+        }
+
+        synchronized void cancel() {
+            done = true;
+            page.clear();
+        }
+    }
+}
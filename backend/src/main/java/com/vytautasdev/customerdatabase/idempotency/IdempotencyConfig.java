@@ -0,0 +1,23 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyStore idempotencyStore,
+            MeterRegistry meterRegistry,
+            @Value("${customer.idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        var registration = new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyStore, waitTimeout, meterRegistry));
+        registration.addUrlPatterns("/api/v1/customers/*", "/api/v1/customers");
+        return registration;
+    }
+}
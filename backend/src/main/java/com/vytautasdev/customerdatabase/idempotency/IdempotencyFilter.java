@@ -0,0 +1,298 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//  !! Makes customer registration safe to retry: a repeated Idempotency-Key gets the first outcome back instead of running again !!
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final Duration waitTimeout;
+    private final MeterRegistry meterRegistry;
+    // requests on this node that own a key, so duplicates arriving meanwhile wait for them instead of the store
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyFilter(IdempotencyStore store, Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.waitTimeout = waitTimeout;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // only registration creates something a retry would duplicate; POST .../batch is a read
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"POST".equals(request.getMethod())
+                || !(path.equals("/api/v1/customers") || path.equals("/api/v1/customers/"))
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        var idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    "%s must be 1-%s characters.".formatted(IDEMPOTENCY_KEY_HEADER, MAX_KEY_LENGTH));
+            return;
+        }
+        var body = request.getInputStream().readAllBytes();
+        // keys are scoped per claimed client so that clients picking the same key do not collide; the claim is not
+        // verified, so only an unguessable key (e.g. a UUID) keeps other clients from replaying the response
+        var client = ClientIdentity.claimedClientKey(request);
+        var key = client.length() + ":" + client + ":" + idempotencyKey;
+        var fingerprint = fingerprint(request, body);
+
+        while (true) {
+            var ours = new CompletableFuture<IdempotencyRecord>();
+            var leader = inFlight.putIfAbsent(key, ours);
+            if (leader != null) {
+                var shared = await(leader, fingerprint);
+                if (shared == null) {
+                    // the leader failed without an outcome to share; try to become the leader
+                    continue;
+                }
+                respond(shared, fingerprint, "coalesced", response);
+                return;
+            }
+            try {
+                var existing = store.claim(key, fingerprint);
+                if (existing.isPresent()) {
+                    ours.complete(existing.get().completed() ? existing.get() : null);
+                    respond(existing.get(), fingerprint, "replayed", response);
+                    return;
+                }
+                var outcome = execute(key, fingerprint, new CachedBodyRequest(request, body), response, filterChain);
+                ours.complete(outcome);
+                return;
+            } finally {
+                // a no-op when completed above; otherwise followers must not wait for the timeout
+                ours.complete(null);
+                inFlight.remove(key, ours);
+            }
+        }
+    }
+
+    private IdempotencyRecord execute(String key, String fingerprint, HttpServletRequest request,
+                                      HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var recording = new RecordingResponse(response);
+        try {
+            filterChain.doFilter(request, recording);
+        } catch (ServletException | IOException | RuntimeException e) {
+            release(key);
+            throw e;
+        }
+        var outcome = new IdempotentResponse(recording.getStatus(), recording.errorSent, recording.errorMessage,
+                recording.getContentType(), recording.getHeader(HttpHeaders.LOCATION), recording.getContentAsByteArray());
+        if (isFinal(outcome.status())) {
+            try {
+                store.complete(key, fingerprint, outcome);
+            } catch (RuntimeException e) {
+                // the customer was created either way; a retry just runs into the duplicate check
+                LOGGER.error("Could not store the outcome for an idempotency key, releasing it", e);
+                release(key);
+            }
+        } else {
+            release(key);
+        }
+        recording.copyBodyToResponse();
+        meterRegistry.counter("customer.idempotency.requests", "outcome", "executed").increment();
+        return new IdempotencyRecord(fingerprint, outcome);
+    }
+
+    // rate limiting, timeouts and server errors say nothing about the request, so retries run it again
+    static boolean isFinal(int status) {
+        return status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()
+                && status != HttpStatus.REQUEST_TIMEOUT.value();
+    }
+
+    private void respond(IdempotencyRecord record, String fingerprint, String outcome, HttpServletResponse response)
+            throws IOException {
+        if (!record.fingerprint().equals(fingerprint)) {
+            meterRegistry.counter("customer.idempotency.requests", "outcome", "mismatch").increment();
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                    "This %s was already used for a different request.".formatted(IDEMPOTENCY_KEY_HEADER));
+            return;
+        }
+        if (!record.completed()) {
+            // claimed by a request on another replica that has not finished yet
+            meterRegistry.counter("customer.idempotency.requests", "outcome", "in_progress").increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.CONFLICT.value(),
+                    "A request with this %s is still in progress.".formatted(IDEMPOTENCY_KEY_HEADER));
+            return;
+        }
+        meterRegistry.counter("customer.idempotency.requests", "outcome", outcome).increment();
+        var stored = record.response();
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.error()) {
+            response.sendError(stored.status(), stored.message());
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.body() != null && stored.body().length > 0) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> leader, String fingerprint) {
+        try {
+            return leader.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // still running: answer like a claim held by another replica
+            return new IdempotencyRecord(fingerprint, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request", e);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void release(String key) {
+        try {
+            store.release(key);
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not release an idempotency key; it stays blocked until its claim times out", e);
+        }
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // ContentCachingResponseWrapper forgets the message of sendError, which the error page renders
+    private static final class RecordingResponse extends ContentCachingResponseWrapper {
+
+        private boolean errorSent;
+        private String errorMessage;
+
+        RecordingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            errorSent = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            errorSent = true;
+            errorMessage = msg;
+            super.sendError(sc, msg);
+        }
+    }
+
+    // the body was read for the fingerprint, so the controller reads this copy of it
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            var encoding = getCharacterEncoding();
+            var charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+// response is null while the request that claimed the key is still running
+public record IdempotencyRecord(
+        String fingerprint,
+        IdempotentResponse response
+) {
+
+    public boolean completed() {
+        return response != null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Remembers the outcome of requests by idempotency key. Keys expire after a while, so a retry much later runs
+ * again.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a request with the given fingerprint. Returns empty when the caller now owns the key and
+     * must {@link #complete} or {@link #release} it; otherwise returns what is already stored under it.
+     */
+    Optional<IdempotencyRecord> claim(String key, String fingerprint);
+
+    void complete(String key, String fingerprint, IdempotentResponse response);
+
+    // gives up a claim without a stored outcome, so the next attempt runs the request again
+    void release(String key);
+}
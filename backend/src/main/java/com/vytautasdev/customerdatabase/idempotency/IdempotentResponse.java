@@ -0,0 +1,15 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+/**
+ * What a request produced, as far as a retry needs to see it. {@code error} responses were sent with
+ * {@code sendError}, so their body is rendered by the error page from {@code message} again on replay.
+ */
+public record IdempotentResponse(
+        int status,
+        boolean error,
+        String message,
+        String contentType,
+        String location,
+        byte[] body
+) {
+}
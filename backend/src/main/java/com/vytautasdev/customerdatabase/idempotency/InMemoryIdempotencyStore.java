@@ -0,0 +1,46 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+//  !! Keeps idempotency keys on this node only: a retry that lands on another replica runs the request again !!
+@Component
+@ConditionalOnProperty(prefix = "customer.idempotency", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, IdempotencyRecord> records;
+
+    public InMemoryIdempotencyStore(@Value("${customer.idempotency.max-keys:100000}") long maxKeys,
+                                    @Value("${customer.idempotency.ttl:24h}") Duration ttl) {
+        this.records = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> claim(String key, String fingerprint) {
+        return Optional.ofNullable(records.asMap().putIfAbsent(key, new IdempotencyRecord(fingerprint, null)));
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, IdempotentResponse response) {
+        records.put(key, new IdempotencyRecord(fingerprint, response));
+    }
+
+    @Override
+    public void release(String key) {
+        records.asMap().computeIfPresent(key, (ignored, record) -> record.completed() ? record : null);
+    }
+
+    long size() {
+        records.cleanUp();
+        return records.estimatedSize();
+    }
+}
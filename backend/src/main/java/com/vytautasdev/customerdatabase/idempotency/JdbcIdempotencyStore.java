@@ -0,0 +1,116 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+//  !! Shares idempotency keys between replicas through the customer_idempotency_key table (see V10) !!
+@Component
+@ConditionalOnProperty(prefix = "customer.idempotency", name = "store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                @Value("${customer.idempotency.ttl:24h}") Duration ttl,
+                                @Value("${customer.idempotency.claim-timeout:1m}") Duration claimTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+    }
+
+    // takes over expired keys, and claims whose owner died before completing them
+    @Override
+    public Optional<IdempotencyRecord> claim(String key, String fingerprint) {
+        var sql = """
+                INSERT INTO customer_idempotency_key(idempotency_key, fingerprint, created_at, expires_at)
+                VALUES (?, ?, now(), now() + ?::interval)
+                ON CONFLICT (idempotency_key) DO UPDATE
+                    SET fingerprint   = excluded.fingerprint,
+                        created_at    = excluded.created_at,
+                        expires_at    = excluded.expires_at,
+                        status        = NULL,
+                        error         = NULL,
+                        error_message = NULL,
+                        content_type  = NULL,
+                        location      = NULL,
+                        body          = NULL
+                WHERE customer_idempotency_key.expires_at < now()
+                   OR (customer_idempotency_key.status IS NULL
+                    AND customer_idempotency_key.created_at < now() - ?::interval)
+                """;
+        while (true) {
+            if (jdbcTemplate.update(sql, key, fingerprint, interval(ttl), interval(claimTimeout)) == 1) {
+                return Optional.empty();
+            }
+            var existing = find(key);
+            // otherwise the row was purged between the two statements, so claim again
+            if (existing.isPresent()) {
+                return existing;
+            }
+        }
+    }
+
+    private Optional<IdempotencyRecord> find(String key) {
+        var sql = """
+                SELECT fingerprint, status, error, error_message, content_type, location, body
+                FROM customer_idempotency_key
+                WHERE idempotency_key = ?
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            var status = (Integer) rs.getObject("status");
+            var response = status == null ? null : new IdempotentResponse(
+                    status,
+                    rs.getBoolean("error"),
+                    rs.getString("error_message"),
+                    rs.getString("content_type"),
+                    rs.getString("location"),
+                    rs.getBytes("body"));
+            return new IdempotencyRecord(rs.getString("fingerprint"), response);
+        }, key).stream().findFirst();
+    }
+
+    @Override
+    public void complete(String key, String fingerprint, IdempotentResponse response) {
+        var sql = """
+                UPDATE customer_idempotency_key
+                SET status        = ?,
+                    error         = ?,
+                    error_message = ?,
+                    content_type  = ?,
+                    location      = ?,
+                    body          = ?
+                WHERE idempotency_key = ?
+                  AND fingerprint = ?
+                """;
+        jdbcTemplate.update(sql, response.status(), response.error(), response.message(), response.contentType(),
+                response.location(), response.body(), key, fingerprint);
+    }
+
+    @Override
+    public void release(String key) {
+        var sql = """
+                DELETE
+                FROM customer_idempotency_key
+                WHERE idempotency_key = ?
+                  AND status IS NULL
+                """;
+        jdbcTemplate.update(sql, key);
+    }
+
+    @Scheduled(fixedDelayString = "${customer.idempotency.purge-interval:PT1H}")
+    public void purge() {
+        jdbcTemplate.update("DELETE FROM customer_idempotency_key WHERE expires_at < now()");
+    }
+
+    private static String interval(Duration duration) {
+        return "%d milliseconds".formatted(duration.toMillis());
+    }
+}
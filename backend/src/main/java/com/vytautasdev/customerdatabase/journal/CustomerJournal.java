@@ -0,0 +1,559 @@
+package com.vytautasdev.customerdatabase.journal;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only journal of customer changes in memory-mapped segment files, compacted by snapshots.
+ * <p>
+ * Every record is {@code [int length][int crc32][long sequence][byte op][long id][payload]}; a zero length marks the
+ * end of a segment, since mapped files start out zero-filled. Recovery loads the newest snapshot and replays the
+ * records after its sequence, stopping at the first torn record at the tail of the last segment.
+ */
+public class CustomerJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerJournal.class);
+
+    public enum SyncMode {
+        // writers wait until their record is on disk; concurrent writers share one msync
+        GROUP,
+        // a background thread forces the journal every sync interval; a power loss can cost that much
+        INTERVAL,
+        // the OS writes pages back when it wants to; a process crash still loses nothing
+        NONE
+    }
+
+    /**
+     * Receives the recovered state: the snapshot rows first, then the journal records after it.
+     */
+    public interface Visitor {
+        void put(Customer customer);
+
+        void delete(long id);
+    }
+
+    // highestId covers deleted customers too, so their ids are not handed out again
+    public record Recovery(long snapshotRecords, long replayedRecords, long highestId, Duration elapsed) {
+    }
+
+    public record Checkpoint(long sequence, long highestId) {
+    }
+
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    // length, crc
+    private static final int RECORD_HEADER = 8;
+    // sequence, op, id
+    private static final int BODY_HEADER = 17;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final int SNAPSHOT_MAGIC = 0x43534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final SyncMode syncMode;
+    private final FileChannel lockChannel;
+    private final Recovery recovery;
+    private final ScheduledExecutorService syncer;
+    private final Object syncLock = new Object();
+    private final AtomicLong syncedSequence = new AtomicLong();
+
+    // guarded by this
+    private Path activePath;
+    private MappedByteBuffer active;
+    private int writePosition;
+    private int syncedPosition;
+    private long lastSequence;
+    private long highestId;
+    private long bytesSinceSnapshot;
+    private boolean closed;
+
+    private CustomerJournal(Path directory, int segmentSize, SyncMode syncMode, Duration syncInterval,
+                            Visitor visitor) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Journal segments must be at least 1KB.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncMode = syncMode;
+        Files.createDirectories(directory);
+        // a second process appending to the same segments would corrupt them
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (lockChannel.tryLock() == null) {
+                throw new IllegalStateException("Customer journal %s is in use by another process.".formatted(directory));
+            }
+            this.recovery = recover(visitor);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        this.syncedSequence.set(lastSequence);
+        if (syncMode == SyncMode.INTERVAL) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "customer-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var intervalNanos = syncInterval.toNanos();
+            syncer.scheduleWithFixedDelay(this::syncQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Opens the journal in {@code directory}, creating it if needed, and replays what it holds into {@code visitor}
+     * before returning.
+     */
+    public static CustomerJournal open(Path directory, int segmentSize, SyncMode syncMode, Duration syncInterval,
+                                       Visitor visitor) throws IOException {
+        return new CustomerJournal(directory, segmentSize, syncMode, syncInterval, visitor);
+    }
+
+    public Recovery recovery() {
+        return recovery;
+    }
+
+    public long appendAdd(Customer customer) {
+        return append(ADD, customer.getId(), customer);
+    }
+
+    public long appendUpdate(Customer customer) {
+        return append(UPDATE, customer.getId(), customer);
+    }
+
+    public long appendDelete(long id) {
+        return append(DELETE, id, null);
+    }
+
+    /**
+     * Returns once the record with this sequence is on disk in {@link SyncMode#GROUP}; a no-op otherwise.
+     */
+    public void awaitDurable(long sequence) {
+        if (syncMode == SyncMode.GROUP) {
+            sync(sequence);
+        }
+    }
+
+    private long append(byte op, long id, Customer customer) {
+        // encode outside the lock; only the sequence and the copy into the segment are serialized
+        var name = customer == null ? null : utf8(customer.getName());
+        var email = customer == null ? null : utf8(customer.getEmail());
+        var bodyLength = BODY_HEADER + (customer == null ? 0 : 4 + 4 + length(name) + 4 + length(email));
+        var record = ByteBuffer.allocate(RECORD_HEADER + bodyLength);
+        record.putInt(0, 4 + bodyLength);
+        record.position(RECORD_HEADER + 8);
+        record.put(op).putLong(id);
+        if (customer != null) {
+            record.putInt(customer.getAge() == null ? Integer.MIN_VALUE : customer.getAge());
+            putBytes(record, name);
+            putBytes(record, email);
+        }
+        if (record.capacity() > segmentSize) {
+            throw new IllegalArgumentException("Customer %s does not fit in a journal segment.".formatted(id));
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Customer journal is closed.");
+            }
+            if (writePosition + record.capacity() > segmentSize) {
+                roll();
+            }
+            var sequence = ++lastSequence;
+            highestId = Math.max(highestId, id);
+            record.putLong(RECORD_HEADER, sequence);
+            var crc = new CRC32();
+            crc.update(record.slice(RECORD_HEADER, bodyLength));
+            record.putInt(4, (int) crc.getValue());
+            active.put(writePosition, record.array());
+            writePosition += record.capacity();
+            bytesSinceSnapshot += record.capacity();
+            return sequence;
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk, unless a concurrent call already covered {@code sequence}.
+     */
+    public void sync(long sequence) {
+        if (syncedSequence.get() >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSequence.get() >= sequence) {
+                return;
+            }
+            MappedByteBuffer segment;
+            int from;
+            int to;
+            long covered;
+            synchronized (this) {
+                segment = active;
+                from = syncedPosition;
+                to = writePosition;
+                covered = lastSequence;
+                syncedPosition = to;
+            }
+            if (to > from) {
+                segment.force(from, to - from);
+            }
+            syncedSequence.accumulateAndGet(covered, Math::max);
+        }
+    }
+
+    public void sync() {
+        long sequence;
+        synchronized (this) {
+            sequence = lastSequence;
+        }
+        sync(sequence);
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not sync the customer journal", e);
+        }
+    }
+
+    public synchronized long bytesSinceSnapshot() {
+        return bytesSinceSnapshot;
+    }
+
+    /**
+     * Starts a new segment so everything before it can be dropped once a snapshot at the returned checkpoint is
+     * written. Call it while no appends can happen, together with copying the state to snapshot.
+     */
+    public synchronized Checkpoint checkpoint() {
+        if (writePosition > 0) {
+            roll();
+        }
+        bytesSinceSnapshot = 0;
+        return new Checkpoint(lastSequence, highestId);
+    }
+
+    /**
+     * Writes the state as of the checkpoint and deletes the segments and snapshots it replaces. Appends can
+     * continue meanwhile.
+     */
+    public void writeSnapshot(Checkpoint checkpoint, Collection<Customer> customers) throws IOException {
+        var sequence = checkpoint.sequence();
+        var snapshot = directory.resolve(fileName(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        var temp = directory.resolve(snapshot.getFileName() + TEMP_SUFFIX);
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            var checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16),
+                    new CRC32());
+            var out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(sequence);
+            out.writeLong(checkpoint.highestId());
+            out.writeLong(customers.size());
+            for (var customer : customers) {
+                out.writeLong(customer.getId());
+                out.writeInt(customer.getAge() == null ? Integer.MIN_VALUE : customer.getAge());
+                writeBytes(out, utf8(customer.getName()));
+                writeBytes(out, utf8(customer.getEmail()));
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        Path activeSegment;
+        synchronized (this) {
+            activeSegment = activePath;
+        }
+        var segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            var segment = segments.get(i);
+            // everything in a segment comes before the first record of the next one
+            if (!segment.equals(activeSegment) && fileSequence(segments.get(i + 1)) <= sequence + 1) {
+                Files.deleteIfExists(segment);
+            }
+        }
+        for (var older : files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (fileSequence(older) < sequence) {
+                Files.deleteIfExists(older);
+            }
+        }
+    }
+
+    private Recovery recover(Visitor visitor) throws IOException {
+        var start = System.nanoTime();
+        try (var leftovers = Files.list(directory)) {
+            for (var leftover : leftovers.filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX)).toList()) {
+                Files.delete(leftover);
+            }
+        }
+        var snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        var snapshotRecords = 0L;
+        if (!snapshots.isEmpty()) {
+            snapshotRecords = loadSnapshot(snapshots.get(snapshots.size() - 1), visitor);
+        }
+        var replayed = 0L;
+        var segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size(); i++) {
+            var last = i == segments.size() - 1;
+            replayed += replaySegment(segments.get(i), last, visitor);
+        }
+        if (active == null) {
+            openSegment(lastSequence + 1);
+        }
+        return new Recovery(snapshotRecords, replayed, highestId, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private long loadSnapshot(Path snapshot, Visitor visitor) throws IOException {
+        try (var checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16),
+                new CRC32())) {
+            var in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("%s is not a customer journal snapshot.".formatted(snapshot));
+            }
+            var sequence = in.readLong();
+            var snapshotHighestId = in.readLong();
+            var count = in.readLong();
+            for (long i = 0; i < count; i++) {
+                var id = in.readLong();
+                var age = in.readInt();
+                var name = readString(in);
+                var email = readString(in);
+                visitor.put(new Customer(id, name, email, age == Integer.MIN_VALUE ? null : age));
+            }
+            var expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Customer journal snapshot %s is corrupt.".formatted(snapshot));
+            }
+            lastSequence = sequence;
+            highestId = snapshotHighestId;
+            return count;
+        }
+    }
+
+    private long replaySegment(Path segment, boolean last, Visitor visitor) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the last segment is appended to, so map all of it even if it was written with a smaller size
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    last ? Math.max(segmentSize, channel.size()) : channel.size());
+        }
+        var replayed = 0L;
+        var position = 0;
+        var crc = new CRC32();
+        while (position + RECORD_HEADER <= buffer.capacity()) {
+            var length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            var bodyLength = length - 4;
+            var valid = bodyLength >= BODY_HEADER && position + RECORD_HEADER + bodyLength <= buffer.capacity();
+            if (valid) {
+                crc.reset();
+                crc.update(buffer.slice(position + RECORD_HEADER, bodyLength));
+                valid = (int) crc.getValue() == buffer.getInt(position + 4);
+            }
+            var sequence = valid ? buffer.getLong(position + RECORD_HEADER) : -1;
+            if (valid && sequence > lastSequence + 1) {
+                throw new IOException("Customer journal is missing records %s-%s.".formatted(lastSequence + 1, sequence - 1));
+            }
+            if (!valid) {
+                if (!last) {
+                    throw new IOException("Customer journal segment %s is corrupt at %s.".formatted(segment, position));
+                }
+                // a write torn by a crash: everything from here on never happened
+                LOGGER.warn("Truncating torn customer journal record in {} at {}", segment, position);
+                for (int i = position; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+            if (sequence == lastSequence + 1) {
+                highestId = Math.max(highestId, buffer.getLong(position + RECORD_HEADER + 9));
+                apply(buffer, position + RECORD_HEADER, visitor);
+                lastSequence = sequence;
+                replayed++;
+            }
+            position += RECORD_HEADER + bodyLength;
+        }
+        if (last) {
+            activePath = segment;
+            active = buffer;
+            writePosition = position;
+            syncedPosition = position;
+        }
+        return replayed;
+    }
+
+    private static void apply(ByteBuffer buffer, int body, Visitor visitor) {
+        var op = buffer.get(body + 8);
+        var id = buffer.getLong(body + 9);
+        if (op == DELETE) {
+            visitor.delete(id);
+            return;
+        }
+        var position = body + BODY_HEADER;
+        var age = buffer.getInt(position);
+        position += 4;
+        var nameLength = buffer.getInt(position);
+        var name = readString(buffer, position + 4, nameLength);
+        position += 4 + Math.max(0, nameLength);
+        var emailLength = buffer.getInt(position);
+        var email = readString(buffer, position + 4, emailLength);
+        visitor.put(new Customer(id, name, email, age == Integer.MIN_VALUE ? null : age));
+    }
+
+    private void roll() {
+        if (syncMode != SyncMode.NONE) {
+            active.force();
+            syncedSequence.accumulateAndGet(lastSequence, Math::max);
+        }
+        try {
+            openSegment(lastSequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start a new customer journal segment.", e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        var segment = directory.resolve(fileName(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try (var channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        syncDirectory();
+        activePath = segment;
+        writePosition = 0;
+        syncedPosition = 0;
+    }
+
+    private void syncDirectory() throws IOException {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private List<Path> files(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        var name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted(Comparator.comparingLong(CustomerJournal::fileSequence))
+                    .toList();
+        }
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return "%s%020d%s".formatted(prefix, sequence, suffix);
+    }
+
+    private static long fileSequence(Path file) {
+        var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            buffer.put(bytes);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer, int position, int length) {
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            active.force();
+            syncedSequence.accumulateAndGet(lastSequence, Math::max);
+            closed = true;
+        }
+        try {
+            // releases the lock too
+            lockChannel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not release the customer journal lock", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Backfills a column in keyset order over a unique key, one short autocommitted UPDATE per chunk, so no row
+ * stays locked for longer than its chunk and replicas and vacuum keep up. Only rows matching the pending
+ * condition are written, which makes a re-run after an interruption skip finished chunks cheaply.
+ *
+ * @param description      shown in progress logs
+ * @param table            table to update
+ * @param keyColumn        unique, indexed column to walk in order
+ * @param assignments      SET clause, e.g. {@code normalized_email = lower(btrim(email))}
+ * @param pendingCondition rows still to do, e.g. {@code normalized_email IS NULL}
+ * @param chunkSize        rows per UPDATE
+ * @param pause            sleep between chunks, the throttle
+ */
+public record BatchedBackfill(
+        String description,
+        String table,
+        String keyColumn,
+        String assignments,
+        String pendingCondition,
+        int chunkSize,
+        Duration pause
+) {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchedBackfill.class);
+
+    public record Result(long scanned, long updated, Duration elapsed) {
+    }
+
+    public Result run(JdbcTemplate jdbcTemplate) {
+        var updateFirstChunk = """
+                UPDATE %1$s SET %3$s WHERE %2$s <= ? AND (%4$s)
+                """.formatted(table, keyColumn, assignments, pendingCondition);
+        var updateNextChunk = """
+                UPDATE %1$s SET %3$s WHERE %2$s > ? AND %2$s <= ? AND (%4$s)
+                """.formatted(table, keyColumn, assignments, pendingCondition);
+
+        var progress = KeysetWalk.walk(jdbcTemplate, LOGGER, "Backfill '%s'".formatted(description), table,
+                keyColumn, chunkSize, pause, KeysetWalk.estimateRows(jdbcTemplate, table),
+                (afterKey, lastKey) -> afterKey == null
+                        ? jdbcTemplate.update(updateFirstChunk, lastKey)
+                        : jdbcTemplate.update(updateNextChunk, afterKey, lastKey));
+        LOGGER.info("Backfill '{}' done: {} rows updated in {} ms",
+                description, progress.written(), progress.elapsed().toMillis());
+        return new Result(progress.scanned(), progress.written(), progress.elapsed());
+    }
+}
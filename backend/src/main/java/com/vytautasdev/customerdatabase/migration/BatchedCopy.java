@@ -0,0 +1,61 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Copies a table into a new one in keyset order over a unique key, one short autocommitted INSERT ... SELECT per
+ * chunk. Meant to run while a trigger on the source mirrors every write into the target: source rows are read
+ * FOR SHARE, so a concurrent update or delete either commits first (and the copy sees its result) or waits for the
+ * chunk and is then mirrored over the copied row. Rows the target already holds are skipped, which keeps mirrored
+ * writes and makes a re-run after an interruption cheap.
+ *
+ * @param description  shown in progress logs
+ * @param sourceTable  table to copy from
+ * @param targetTable  table to copy into, with a unique key on {@code conflictKey}
+ * @param keyColumn    unique, indexed column of the source to walk in order
+ * @param columns      columns to copy, the same in both tables, e.g. {@code id, name, email, age}
+ * @param conflictKey  unique key of the target, e.g. {@code id}
+ * @param chunkSize    rows per INSERT
+ * @param pause        sleep between chunks, the throttle
+ */
+public record BatchedCopy(
+        String description,
+        String sourceTable,
+        String targetTable,
+        String keyColumn,
+        String columns,
+        String conflictKey,
+        int chunkSize,
+        Duration pause
+) {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchedCopy.class);
+
+    public record Result(long scanned, long copied, Duration elapsed) {
+    }
+
+    public Result run(JdbcTemplate jdbcTemplate) {
+        var copyFirstChunk = """
+                INSERT INTO %2$s (%4$s)
+                SELECT %4$s FROM %1$s WHERE %3$s <= ? FOR SHARE
+                ON CONFLICT (%5$s) DO NOTHING
+                """.formatted(sourceTable, targetTable, keyColumn, columns, conflictKey);
+        var copyNextChunk = """
+                INSERT INTO %2$s (%4$s)
+                SELECT %4$s FROM %1$s WHERE %3$s > ? AND %3$s <= ? FOR SHARE
+                ON CONFLICT (%5$s) DO NOTHING
+                """.formatted(sourceTable, targetTable, keyColumn, columns, conflictKey);
+
+        var progress = KeysetWalk.walk(jdbcTemplate, LOGGER, "Copy '%s'".formatted(description), sourceTable,
+                keyColumn, chunkSize, pause, KeysetWalk.estimateRows(jdbcTemplate, sourceTable),
+                (afterKey, lastKey) -> afterKey == null
+                        ? jdbcTemplate.update(copyFirstChunk, lastKey)
+                        : jdbcTemplate.update(copyNextChunk, afterKey, lastKey));
+        LOGGER.info("Copy '{}' done: {} rows copied in {} ms",
+                description, progress.written(), progress.elapsed().toMillis());
+        return new Result(progress.scanned(), progress.written(), progress.elapsed());
+    }
+}
@@ -0,0 +1,18 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class FlywayConfig {
+
+    // Flyway's default Postgres lock keeps a transaction open on a second connection for the whole run,
+    // and CREATE INDEX CONCURRENTLY in the online migrations would wait on it forever
+    @Bean
+    public FlywayConfigurationCustomizer sessionLevelMigrationLock() {
+        return configuration -> configuration.configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+    }
+}
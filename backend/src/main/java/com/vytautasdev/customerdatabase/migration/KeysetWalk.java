@@ -0,0 +1,105 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import org.slf4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+
+/**
+ * Walks a table in keyset order over a unique key and runs one short autocommitted statement per chunk, logging
+ * progress and sleeping between chunks. The chunk loop behind {@link BatchedBackfill} and {@link BatchedCopy}.
+ */
+final class KeysetWalk {
+
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+    private static final RowMapper<Chunk> CHUNK_MAPPER = (rs, rowNum) -> new Chunk(rs.getObject(1), rs.getLong(2));
+
+    /**
+     * Writes the rows of one chunk: those with a key above {@code afterKey} (null for the first chunk) up to and
+     * including {@code lastKey}. Returns how many rows it wrote.
+     */
+    interface ChunkStatement {
+        int run(Object afterKey, Object lastKey);
+    }
+
+    record Progress(long scanned, long written, Duration elapsed) {
+    }
+
+    private record Chunk(Object lastKey, long rows) {
+    }
+
+    private KeysetWalk() {
+    }
+
+    /**
+     * @param logger        logs progress on behalf of the caller
+     * @param label         names the work in the logs, e.g. {@code Backfill 'customer_email.normalized_email'}
+     * @param estimatedRows rows expected in total, only for the progress logs; zero if unknown
+     */
+    static Progress walk(JdbcTemplate jdbcTemplate, Logger logger, String label, String table, String keyColumn,
+                         int chunkSize, Duration pause, long estimatedRows, ChunkStatement statement) {
+        var firstChunkEnd = """
+                SELECT max(%2$s), count(*) FROM (SELECT %2$s FROM %1$s ORDER BY %2$s LIMIT ?) chunk
+                """.formatted(table, keyColumn);
+        var nextChunkEnd = """
+                SELECT max(%2$s), count(*) FROM (SELECT %2$s FROM %1$s WHERE %2$s > ? ORDER BY %2$s LIMIT ?) chunk
+                """.formatted(table, keyColumn);
+
+        var start = System.nanoTime();
+        var nextReport = start + PROGRESS_INTERVAL.toNanos();
+        var scanned = 0L;
+        var written = 0L;
+        Object lastKey = null;
+        while (true) {
+            var chunk = lastKey == null
+                    ? jdbcTemplate.queryForObject(firstChunkEnd, CHUNK_MAPPER, chunkSize)
+                    : jdbcTemplate.queryForObject(nextChunkEnd, CHUNK_MAPPER, lastKey, chunkSize);
+            if (chunk == null || chunk.rows() == 0) {
+                break;
+            }
+            written += statement.run(lastKey, chunk.lastKey());
+            scanned += chunk.rows();
+            lastKey = chunk.lastKey();
+
+            if (System.nanoTime() >= nextReport) {
+                logProgress(logger, label, scanned, written, estimatedRows, start);
+                nextReport = System.nanoTime() + PROGRESS_INTERVAL.toNanos();
+            }
+            throttle(label, pause);
+        }
+        return new Progress(scanned, written, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // planner statistics, summed over partitions for partitioned tables; only used for progress logs
+    static long estimateRows(JdbcTemplate jdbcTemplate, String table) {
+        var estimate = jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(reltuples) FILTER (WHERE reltuples > 0), 0)::bigint
+                FROM pg_class
+                WHERE oid = to_regclass(?)
+                   OR oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = to_regclass(?))
+                """, Long.class, table, table);
+        return estimate == null ? 0 : estimate;
+    }
+
+    private static void logProgress(Logger logger, String label, long scanned, long written, long estimatedRows,
+                                    long start) {
+        var seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+        var percent = estimatedRows > 0 ? Math.min(100, scanned * 100 / estimatedRows) : -1;
+        logger.info("{}: {} rows scanned ({}), {} written, {} rows/s",
+                label, scanned, percent >= 0 ? "~" + percent + "%" : "size unknown", written,
+                Math.round(scanned / seconds));
+    }
+
+    private static void throttle(String label, Duration pause) {
+        if (pause.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("%s interrupted.".formatted(label), e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+//  !! Base for schema changes on live tables: runs in autocommit, so no step holds locks for the whole migration !!
+
+/**
+ * Schema changes to the customer tables extend this instead of shipping plain SQL. Each step commits on its own
+ * and is written to be re-run after an interruption:
+ * <ul>
+ *     <li>indexes are built with {@link #createIndexConcurrently}, never with a plain CREATE INDEX</li>
+ *     <li>checks and foreign keys are added {@link #addConstraintNotValid NOT VALID} and
+ *     {@link #validateConstraint validated} afterwards, which scans without blocking writes</li>
+ *     <li>unique and primary key constraints are attached {@code USING INDEX} to a concurrently built index</li>
+ *     <li>data is rewritten by a throttled {@link BatchedBackfill}, not by a single UPDATE</li>
+ *     <li>a table that has to be rebuilt (e.g. to partition it) is copied into a new one by a {@link BatchedCopy}
+ *     while a trigger mirrors writes, and the two are swapped {@link #inTransaction in one short transaction}</li>
+ *     <li>DDL that needs an exclusive lock waits at most {@link #LOCK_TIMEOUT}, so a long-running query fails the
+ *     migration instead of queueing every customer read and write behind the migration</li>
+ * </ul>
+ */
+public abstract class OnlineMigration extends BaseJavaMigration {
+
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+    public static final Duration DEFAULT_PAUSE = Duration.ofMillis(10);
+    static final Duration LOCK_TIMEOUT = Duration.ofSeconds(5);
+
+    private Connection connection;
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public final boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public final void migrate(Context context) throws Exception {
+        connection = context.getConnection();
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        var autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        jdbcTemplate.execute("SET lock_timeout = '%dms'".formatted(LOCK_TIMEOUT.toMillis()));
+        try {
+            migrate();
+        } finally {
+            jdbcTemplate.execute("RESET lock_timeout");
+            connection.setAutoCommit(autoCommit);
+            connection = null;
+            jdbcTemplate = null;
+        }
+    }
+
+    protected abstract void migrate() throws SQLException;
+
+    protected JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    protected void execute(String sql) {
+        jdbcTemplate.execute(sql);
+    }
+
+    /**
+     * Builds an index without blocking writes. An invalid index left by an interrupted build is dropped first,
+     * since IF NOT EXISTS would otherwise keep it.
+     *
+     * @param definition everything after the index name, e.g. {@code ON customer_email (normalized_email)}
+     */
+    protected void createIndexConcurrently(String name, boolean unique, String definition) {
+        var invalidIndex = jdbcTemplate.queryForObject("""
+                SELECT count(*)
+                FROM pg_index
+                WHERE indexrelid = to_regclass(?)
+                  AND NOT indisvalid
+                """, Integer.class, name);
+        if (invalidIndex != null && invalidIndex > 0) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY %s".formatted(name));
+        }
+        jdbcTemplate.execute("CREATE %sINDEX CONCURRENTLY IF NOT EXISTS %s %s"
+                .formatted(unique ? "UNIQUE " : "", name, definition));
+    }
+
+    /**
+     * Adds a check or foreign key that only applies to rows written from now on; a brief lock, no table scan.
+     */
+    protected void addConstraintNotValid(String table, String name, String definition) {
+        jdbcTemplate.execute("""
+                ALTER TABLE %1$s
+                    DROP CONSTRAINT IF EXISTS %2$s,
+                    ADD CONSTRAINT %2$s %3$s NOT VALID
+                """.formatted(table, name, definition));
+    }
+
+    /**
+     * Checks existing rows against a NOT VALID constraint while reads and writes carry on.
+     */
+    protected void validateConstraint(String table, String name) {
+        jdbcTemplate.execute("ALTER TABLE %s VALIDATE CONSTRAINT %s".formatted(table, name));
+    }
+
+    protected BatchedBackfill.Result backfill(BatchedBackfill backfill) {
+        return backfill.run(jdbcTemplate);
+    }
+
+    protected BatchedCopy.Result copy(BatchedCopy copy) {
+        return copy.run(jdbcTemplate);
+    }
+
+    /**
+     * Runs the final, short steps of a change (constraint swaps, function replacements) atomically.
+     */
+    protected void inTransaction(Consumer<JdbcTemplate> steps) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            steps.accept(jdbcTemplate);
+            connection.commit();
+        } catch (RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
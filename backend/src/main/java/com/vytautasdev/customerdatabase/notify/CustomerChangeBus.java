@@ -0,0 +1,210 @@
+package com.vytautasdev.customerdatabase.notify;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//  !! Follows the customer_changed channel on a dedicated connection and fans each change out to in-process subscribers !!
+@Component
+public class CustomerChangeBus implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerChangeBus.class);
+
+    // fixed by the customer_notify_change trigger (V8)
+    static final String CHANNEL = "customer_changed";
+    private static final int POLL_MILLIS = 500;
+
+    private final List<CustomerChangeSubscriber> subscribers;
+    private final DataSourceProperties dataSourceProperties;
+    private final Duration reconnectDelay;
+    private final Duration keepAlive;
+    private final Clock clock;
+
+    private final Counter notifications;
+    private final Counter resyncs;
+    private final Counter subscriberFailures;
+    private final Timer lag;
+
+    private volatile Thread listener;
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+
+    @Autowired
+    public CustomerChangeBus(List<CustomerChangeSubscriber> subscribers,
+                             DataSourceProperties dataSourceProperties,
+                             @Value("${customer.changes.reconnect-delay:1s}") Duration reconnectDelay,
+                             @Value("${customer.changes.keep-alive:30s}") Duration keepAlive,
+                             MeterRegistry meterRegistry) {
+        this(subscribers, dataSourceProperties, reconnectDelay, keepAlive, meterRegistry, Clock.systemUTC());
+    }
+
+    CustomerChangeBus(List<CustomerChangeSubscriber> subscribers,
+                      DataSourceProperties dataSourceProperties,
+                      Duration reconnectDelay,
+                      Duration keepAlive,
+                      MeterRegistry meterRegistry,
+                      Clock clock) {
+        this.subscribers = List.copyOf(subscribers);
+        this.dataSourceProperties = dataSourceProperties;
+        this.reconnectDelay = reconnectDelay;
+        this.keepAlive = keepAlive;
+        this.clock = clock;
+        this.notifications = Counter.builder("customer.changes.notifications")
+                .description("Customer change notifications received from the database")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("customer.changes.resyncs")
+                .description("Times subscribers were told to reload because changes may have been missed")
+                .register(meterRegistry);
+        this.subscriberFailures = Counter.builder("customer.changes.subscriber.failures")
+                .description("Notifications a subscriber failed to apply; that subscriber is resynced instead")
+                .register(meterRegistry);
+        this.lag = Timer.builder("customer.changes.lag")
+                .description("Time from a customer row being written to its notification being dispatched here")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        var thread = new Thread(this::listen, "customer-change-bus");
+        thread.setDaemon(true);
+        thread.start();
+        listener = thread;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        var thread = listener;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        var connection = listenConnection;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Could not close the customer change listener connection", e);
+            }
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        listener = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return listener != null;
+    }
+
+    private void listen() {
+        while (running) {
+            try (var connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                listenConnection = connection;
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // nothing sent while we were not listening will ever arrive, so subscribers start over
+                resync();
+                follow(connection);
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Customer change listener lost its connection, reconnecting in {}: {}",
+                        reconnectDelay, e.getMessage());
+                sleep(reconnectDelay);
+            } finally {
+                listenConnection = null;
+            }
+        }
+    }
+
+    private void follow(Connection connection) throws SQLException {
+        var pgConnection = connection.unwrap(PGConnection.class);
+        var lastTraffic = System.nanoTime();
+        while (running) {
+            var received = pgConnection.getNotifications(POLL_MILLIS);
+            if (received != null && received.length > 0) {
+                lastTraffic = System.nanoTime();
+                for (var notification : received) {
+                    dispatch(notification.getParameter());
+                }
+            } else if (System.nanoTime() - lastTraffic > keepAlive.toNanos()) {
+                // a silently dropped connection would otherwise look like a quiet table forever
+                try (var statement = connection.createStatement()) {
+                    statement.setQueryTimeout(Math.max(1, (int) reconnectDelay.toSeconds()));
+                    statement.execute("SELECT 1");
+                }
+                lastTraffic = System.nanoTime();
+            }
+        }
+    }
+
+    void dispatch(String payload) {
+        CustomerChangeNotification notification;
+        try {
+            notification = CustomerChangeNotification.parse(payload);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Ignoring customer change notification: {}", e.getMessage());
+            return;
+        }
+        notifications.increment();
+        lag.record(Math.max(0, clock.millis() - notification.changedAt().toEpochMilli()), TimeUnit.MILLISECONDS);
+        for (var subscriber : subscribers) {
+            try {
+                subscriber.onCustomerChange(notification);
+            } catch (RuntimeException e) {
+                subscriberFailures.increment();
+                LOGGER.error("{} failed to apply {}, resyncing it", subscriber.getClass().getSimpleName(), notification, e);
+                resync(subscriber);
+            }
+        }
+    }
+
+    void resync() {
+        resyncs.increment();
+        subscribers.forEach(this::resync);
+    }
+
+    private void resync(CustomerChangeSubscriber subscriber) {
+        try {
+            subscriber.onResync();
+        } catch (RuntimeException e) {
+            LOGGER.error("{} failed to resync", subscriber.getClass().getSimpleName(), e);
+        }
+    }
+
+    private void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
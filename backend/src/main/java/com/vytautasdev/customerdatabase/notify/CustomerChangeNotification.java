@@ -0,0 +1,32 @@
+package com.vytautasdev.customerdatabase.notify;
+
+import java.time.Instant;
+
+public record CustomerChangeNotification(
+        Operation operation,
+        Long customerId,
+        Instant changedAt
+) {
+    public enum Operation {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    // "<I|U|D>,<id>,<epoch millis>", as sent by the customer_notify_change trigger
+    static CustomerChangeNotification parse(String payload) {
+        var parts = payload.split(",", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed customer change notification [%s]".formatted(payload));
+        }
+        var operation = switch (parts[0]) {
+            case "I" -> Operation.INSERT;
+            case "U" -> Operation.UPDATE;
+            case "D" -> Operation.DELETE;
+            default -> throw new IllegalArgumentException(
+                    "Unknown operation in customer change notification [%s]".formatted(payload));
+        };
+        return new CustomerChangeNotification(
+                operation, Long.parseLong(parts[1]), Instant.ofEpochMilli(Long.parseLong(parts[2])));
+    }
+}
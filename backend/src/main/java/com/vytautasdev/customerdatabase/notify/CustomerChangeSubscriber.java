@@ -0,0 +1,15 @@
+package com.vytautasdev.customerdatabase.notify;
+
+/**
+ * In-memory copy of customer data that follows the {@link CustomerChangeBus}. Both methods run on the bus thread,
+ * so they should hand anything slow off to their own thread.
+ */
+public interface CustomerChangeSubscriber {
+
+    void onCustomerChange(CustomerChangeNotification notification);
+
+    /**
+     * Changes may have been missed: drop or reload everything derived from the customer table.
+     */
+    void onResync();
+}
@@ -0,0 +1,38 @@
+package com.vytautasdev.customerdatabase.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "customer.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${customer.rate-limit.global.permits-per-second:2000}") double globalRate,
+            @Value("${customer.rate-limit.global.burst:4000}") int globalBurst,
+            @Value("${customer.rate-limit.client.permits-per-second:100}") double clientRate,
+            @Value("${customer.rate-limit.client.burst:200}") int clientBurst,
+            @Value("${customer.rate-limit.client.max-tracked:100000}") int maxTrackedClients,
+            @Value("${customer.rate-limit.expensive.initial-limit:16}") int initialLimit,
+            @Value("${customer.rate-limit.expensive.min-limit:2}") int minLimit,
+            @Value("${customer.rate-limit.expensive.max-limit:64}") int maxLimit,
+            @Value("${customer.rate-limit.expensive.target-latency:500ms}") Duration targetLatency) {
+        var filter = new RateLimitFilter(
+                new TokenBucket(globalRate, globalBurst),
+                () -> new TokenBucket(clientRate, clientBurst),
+                maxTrackedClients,
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, targetLatency),
+                meterRegistry);
+        var registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/v1/customers/*", "/api/v1/customers");
+        return registration;
+    }
+}
@@ -0,0 +1,136 @@
+package com.vytautasdev.customerdatabase.ratelimit;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+//  !! Sheds load at the edge: per-client and global token buckets, plus an adaptive limit on expensive reads !!
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final TokenBucket globalBucket;
+    private final Supplier<TokenBucket> clientBucketFactory;
+    private final int maxTrackedClients;
+    private final AdaptiveConcurrencyLimiter expensiveReads;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(TokenBucket globalBucket,
+                           Supplier<TokenBucket> clientBucketFactory,
+                           int maxTrackedClients,
+                           AdaptiveConcurrencyLimiter expensiveReads,
+                           MeterRegistry meterRegistry) {
+        this.globalBucket = globalBucket;
+        this.clientBucketFactory = clientBucketFactory;
+        this.maxTrackedClients = maxTrackedClients;
+        this.expensiveReads = expensiveReads;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("customer.requests.concurrency.limit", expensiveReads, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit for expensive customer reads")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        // never keyed on the claimed client id: a fresh one per request would never run out of tokens
+        var clientWait = clientBucket(ClientIdentity.remoteAddress(request)).tryAcquire();
+        if (clientWait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, clientWait, "client_rate");
+            return;
+        }
+        var globalWait = globalBucket.tryAcquire();
+        if (globalWait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, globalWait, "global_rate");
+            return;
+        }
+        if (!isExpensive(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!expensiveReads.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), "concurrency");
+            return;
+        }
+        var start = System.nanoTime();
+        var released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                expensiveReads.release(System.nanoTime() - start);
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // the response is produced on another thread, so hold the permit until it completes
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    // full list scans and sync pages hit the database hardest; point lookups and streams are left alone
+    static boolean isExpensive(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        var isList = (path.equals("/api/v1/customers") || path.equals("/api/v1/customers/"))
+                && request.getParameter("ids") == null;
+        return isList || path.startsWith("/api/v1/customers/changes");
+    }
+
+    private TokenBucket clientBucket(String client) {
+        if (clientBuckets.size() >= maxTrackedClients) {
+            // a full bucket carries no state worth keeping
+            clientBuckets.values().removeIf(TokenBucket::isIdle);
+        }
+        return clientBuckets.computeIfAbsent(client, key -> clientBucketFactory.get());
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long waitNanos, String reason)
+            throws IOException {
+        meterRegistry.counter("customer.requests.rejected", "reason", reason).increment();
+        var retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.sendError(status.value(), "Too many requests, retry after %s seconds.".formatted(retryAfterSeconds));
+    }
+
+    private record ReleasingAsyncListener(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
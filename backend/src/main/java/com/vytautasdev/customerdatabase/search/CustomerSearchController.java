@@ -0,0 +1,27 @@
+package com.vytautasdev.customerdatabase.search;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api/v1/customers/search")
+public class CustomerSearchController {
+
+    private final CustomerSearchService customerSearchService;
+
+    public CustomerSearchController(CustomerSearchService customerSearchService) {
+        this.customerSearchService = customerSearchService;
+    }
+
+    // typo-tolerant search over names and emails, best matches first
+    @GetMapping
+    public List<CustomerSearchHit> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return customerSearchService.search(query, limit);
+    }
+}
@@ -0,0 +1,9 @@
+package com.vytautasdev.customerdatabase.search;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+
+public record CustomerSearchHit(
+        Customer customer,
+        float score
+) {
+}
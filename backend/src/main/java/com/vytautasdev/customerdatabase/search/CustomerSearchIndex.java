@@ -0,0 +1,291 @@
+package com.vytautasdev.customerdatabase.search;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent;
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import com.vytautasdev.customerdatabase.notify.CustomerChangeNotification;
+import com.vytautasdev.customerdatabase.notify.CustomerChangeSubscriber;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//  !! Embedded Lucene index over customer names and emails, kept current by following the incremental sync feed !!
+@Component
+public class CustomerSearchIndex implements CustomerChangeSubscriber, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerSearchIndex.class);
+
+    static final String CURSOR_COMMIT_KEY = "customer.sync.cursor";
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String EMAIL = "email";
+    private static final String AGE = "age";
+    private static final List<String> SEARCH_FIELDS = List.of(NAME, EMAIL);
+
+    private final CustomerDao customerDao;
+    private final int pageSize;
+    private final Directory directory;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+    private final ExecutorService syncExecutor;
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile CustomerSyncCursor cursor;
+
+    @Autowired
+    public CustomerSearchIndex(@Qualifier("jdbc") CustomerDao customerDao,
+                               @Value("${customer.search.index-path:${java.io.tmpdir}/customer-search-index}") Path indexPath,
+                               @Value("${customer.search.page-size:5000}") int pageSize) throws IOException {
+        this(customerDao, new MMapDirectory(indexPath), pageSize);
+    }
+
+    CustomerSearchIndex(CustomerDao customerDao, Directory directory, int pageSize) throws IOException {
+        this.customerDao = customerDao;
+        this.pageSize = pageSize;
+        this.directory = directory;
+        this.indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+        this.cursor = committedCursor(indexWriter);
+        this.syncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "customer-search-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<CustomerSearchHit> search(String text, int limit) {
+        var query = buildQuery(text);
+        if (query == null) {
+            return List.of();
+        }
+        try {
+            var searcher = searcherManager.acquire();
+            try {
+                var topDocs = searcher.search(query, limit);
+                var storedFields = searcher.storedFields();
+                var hits = new ArrayList<CustomerSearchHit>(topDocs.scoreDocs.length);
+                for (var scoreDoc : topDocs.scoreDocs) {
+                    var document = storedFields.document(scoreDoc.doc);
+                    hits.add(new CustomerSearchHit(new Customer(
+                            Long.parseLong(document.get(ID)),
+                            document.get(NAME),
+                            document.get(EMAIL),
+                            document.getField(AGE).numericValue().intValue()), scoreDoc.score));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Every search term has to match name or email, either exactly, as a prefix or within a few typos.
+     * Exact matches are boosted above prefix matches, and those above fuzzy ones.
+     */
+    private Query buildQuery(String text) {
+        var terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        var query = new BooleanQuery.Builder();
+        for (var term : terms) {
+            var alternatives = new BooleanQuery.Builder();
+            for (var field : SEARCH_FIELDS) {
+                alternatives.add(new BoostQuery(new TermQuery(new Term(field, term)), 4), BooleanClause.Occur.SHOULD);
+                alternatives.add(new BoostQuery(new PrefixQuery(new Term(field, term)), 2), BooleanClause.Occur.SHOULD);
+                var maxEdits = term.length() <= 2 ? 0 : term.length() <= 5 ? 1 : 2;
+                if (maxEdits > 0) {
+                    // a shared first letter shrinks the fuzzy automaton a lot, and first-letter typos are rare
+                    alternatives.add(new FuzzyQuery(new Term(field, term), maxEdits, 1), BooleanClause.Occur.SHOULD);
+                }
+            }
+            query.add(alternatives.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String text) {
+        var terms = new ArrayList<String>();
+        try (var tokens = analyzer.tokenStream(NAME, text)) {
+            var term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        requestSync();
+    }
+
+    // writes from other app instances and from outside the app
+    @Override
+    public void onCustomerChange(CustomerChangeNotification notification) {
+        requestSync();
+    }
+
+    // the sync feed is cursor based, so catching up already covers any notifications that were missed
+    @Override
+    public void onResync() {
+        requestSync();
+    }
+
+    // fallback for when the change bus is disconnected
+    @Scheduled(fixedDelayString = "${customer.search.sync-interval:PT5S}")
+    public void requestSync() {
+        // one pending sync covers any number of writes that arrive before it runs
+        if (syncRequested.compareAndSet(false, true)) {
+            syncExecutor.execute(() -> {
+                syncRequested.set(false);
+                try {
+                    catchUp();
+                } catch (RuntimeException | IOException e) {
+                    LOGGER.warn("Customer search index sync failed, will retry", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies every change after the committed cursor and commits the new cursor together with the documents,
+     * so a restarted instance resumes where it stopped. Replaying a change is harmless: documents are keyed by id.
+     */
+    public synchronized int catchUp() throws IOException {
+        return catchUp(false);
+    }
+
+    /**
+     * Drops every document and re-reads the whole table.
+     *
+     * @return the number of customers indexed, or empty if another rebuild is already running
+     */
+    public OptionalInt rebuild() throws IOException {
+        // a second full scan queued behind the first would gain nothing
+        if (!rebuilding.compareAndSet(false, true)) {
+            return OptionalInt.empty();
+        }
+        try {
+            synchronized (this) {
+                indexWriter.deleteAll();
+                cursor = CustomerSyncCursor.START;
+                return OptionalInt.of(catchUp(true));
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private int catchUp(boolean forceCommit) throws IOException {
+        var next = cursor;
+        var applied = 0;
+        while (true) {
+            var page = customerDao.getCustomerChangesSince(next, pageSize);
+            for (var change : page) {
+                var id = new Term(ID, change.id().toString());
+                if (change.deleted()) {
+                    indexWriter.deleteDocuments(id);
+                } else {
+                    indexWriter.updateDocument(id, document(change.customer()));
+                }
+            }
+            applied += page.size();
+            if (!page.isEmpty()) {
+                next = page.get(page.size() - 1).cursor();
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        if (applied > 0 || forceCommit) {
+            indexWriter.setLiveCommitData(Map.of(CURSOR_COMMIT_KEY, next.toString()).entrySet());
+            indexWriter.commit();
+            cursor = next;
+            searcherManager.maybeRefresh();
+        }
+        return applied;
+    }
+
+    public CustomerSyncCursor cursor() {
+        return cursor;
+    }
+
+    private static Document document(Customer customer) {
+        var document = new Document();
+        document.add(new StringField(ID, customer.getId().toString(), Field.Store.YES));
+        document.add(new TextField(NAME, customer.getName(), Field.Store.YES));
+        document.add(new TextField(EMAIL, customer.getEmail(), Field.Store.YES));
+        document.add(new StoredField(AGE, customer.getAge()));
+        return document;
+    }
+
+    private static CustomerSyncCursor committedCursor(IndexWriter indexWriter) {
+        var commitData = indexWriter.getLiveCommitData();
+        if (commitData != null) {
+            for (var entry : commitData) {
+                if (CURSOR_COMMIT_KEY.equals(entry.getKey())) {
+                    return CustomerSyncCursor.parse(entry.getValue());
+                }
+            }
+        }
+        return CustomerSyncCursor.START;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        syncExecutor.shutdownNow();
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,32 @@
+package com.vytautasdev.customerdatabase.search;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+//  !! Operator-only index maintenance: a rebuild scans the whole customer table, so it is not part of the public API !!
+@Component
+@Endpoint(id = "customersearchindex")
+public class CustomerSearchIndexEndpoint {
+
+    private final CustomerSearchService customerSearchService;
+
+    public CustomerSearchIndexEndpoint(CustomerSearchService customerSearchService) {
+        this.customerSearchService = customerSearchService;
+    }
+
+    // POST /actuator/customersearchindex once exposed; answers 409 while another rebuild is running
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> rebuild() {
+        var indexed = customerSearchService.rebuildIndex();
+        if (indexed.isEmpty()) {
+            return new WebEndpointResponse<>(
+                    Map.of("message", "A search index rebuild is already running."), HttpStatus.CONFLICT.value());
+        }
+        return new WebEndpointResponse<>(Map.of("indexed", indexed.getAsInt()));
+    }
+}
@@ -0,0 +1,40 @@
+package com.vytautasdev.customerdatabase.search;
+
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.OptionalInt;
+
+@Service
+public class CustomerSearchService {
+
+    private static final int MAX_RESULTS = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final CustomerSearchIndex customerSearchIndex;
+
+    public CustomerSearchService(CustomerSearchIndex customerSearchIndex) {
+        this.customerSearchIndex = customerSearchIndex;
+    }
+
+    public List<CustomerSearchHit> search(String query, int limit) {
+        if (query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH) {
+            throw new RequestValidationException("q must be 1-%s characters.".formatted(MAX_QUERY_LENGTH));
+        }
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new RequestValidationException("limit must be 1-%s.".formatted(MAX_RESULTS));
+        }
+        return customerSearchIndex.search(query, limit);
+    }
+
+    public OptionalInt rebuildIndex() {
+        try {
+            return customerSearchIndex.rebuild();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
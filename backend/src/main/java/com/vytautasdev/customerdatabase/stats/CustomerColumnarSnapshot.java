@@ -0,0 +1,160 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.AgeBucketCount;
+import com.vytautasdev.customerdatabase.customer.CustomerStats;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import com.vytautasdev.customerdatabase.customer.EmailDomainCount;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable column-per-field copy of the customer table, holding only what the aggregates read:
+ * ids (sorted), ages and dictionary-encoded email domains. Refreshes build a new snapshot by merging
+ * sync changes into the old one, so readers never see a half-applied refresh.
+ */
+final class CustomerColumnarSnapshot {
+
+    static final CustomerColumnarSnapshot EMPTY = new CustomerColumnarSnapshot(
+            new long[0], new int[0], new int[0], new String[0], CustomerSyncCursor.START, null);
+
+    // below this many rows splitting the scan costs more than it saves
+    private static final int PARALLEL_SCAN_THRESHOLD = 1 << 16;
+
+    private final long[] ids;
+    private final int[] ages;
+    private final int[] domainCodes;
+    private final String[] domains;
+    private final CustomerSyncCursor cursor;
+    private final Instant refreshedAt;
+
+    private CustomerColumnarSnapshot(long[] ids, int[] ages, int[] domainCodes, String[] domains,
+                                     CustomerSyncCursor cursor, Instant refreshedAt) {
+        this.ids = ids;
+        this.ages = ages;
+        this.domainCodes = domainCodes;
+        this.domains = domains;
+        this.cursor = cursor;
+        this.refreshedAt = refreshedAt;
+    }
+
+    CustomerSyncCursor cursor() {
+        return cursor;
+    }
+
+    boolean isLoaded() {
+        return refreshedAt != null;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns a new snapshot with the latest change per customer applied, in one merge pass over the
+     * sorted id column. Domains new to the dictionary are appended; codes that lose all rows stay unused.
+     */
+    CustomerColumnarSnapshot apply(Collection<CustomerSyncChange> latestChangesById, CustomerSyncCursor nextCursor,
+                                   Instant now) {
+        var changes = latestChangesById.stream()
+                .sorted(Comparator.comparing(CustomerSyncChange::id))
+                .toList();
+        var dictionary = new ArrayList<>(Arrays.asList(domains));
+        var codes = new HashMap<String, Integer>();
+        for (int code = 0; code < domains.length; code++) {
+            codes.put(domains[code], code);
+        }
+
+        var capacity = ids.length + changes.size();
+        var newIds = new long[capacity];
+        var newAges = new int[capacity];
+        var newDomainCodes = new int[capacity];
+        int row = 0;
+        int base = 0;
+        for (var change : changes) {
+            while (base < ids.length && ids[base] < change.id()) {
+                newIds[row] = ids[base];
+                newAges[row] = ages[base];
+                newDomainCodes[row++] = domainCodes[base++];
+            }
+            if (base < ids.length && ids[base] == change.id()) {
+                base++;
+            }
+            if (change.deleted()) {
+                continue;
+            }
+            var domain = emailDomain(change.customer().getEmail());
+            newIds[row] = change.id();
+            newAges[row] = change.customer().getAge();
+            newDomainCodes[row++] = codes.computeIfAbsent(domain, key -> {
+                dictionary.add(key);
+                return dictionary.size() - 1;
+            });
+        }
+        var remaining = ids.length - base;
+        System.arraycopy(ids, base, newIds, row, remaining);
+        System.arraycopy(ages, base, newAges, row, remaining);
+        System.arraycopy(domainCodes, base, newDomainCodes, row, remaining);
+        row += remaining;
+
+        return new CustomerColumnarSnapshot(
+                Arrays.copyOf(newIds, row),
+                Arrays.copyOf(newAges, row),
+                Arrays.copyOf(newDomainCodes, row),
+                dictionary.toArray(String[]::new),
+                nextCursor,
+                now);
+    }
+
+    CustomerStats stats(int topDomains) {
+        var ageCounts = histogram(ages, AgeBucketCount.bucketCount(), CustomerColumnarSnapshot::ageBucket);
+        var ageDistribution = new ArrayList<AgeBucketCount>(AgeBucketCount.bucketCount());
+        for (int bucket = 0; bucket < AgeBucketCount.bucketCount(); bucket++) {
+            ageDistribution.add(new AgeBucketCount(AgeBucketCount.range(bucket), ageCounts[bucket]));
+        }
+
+        var domainCounts = histogram(domainCodes, domains.length, IntUnaryOperator.identity());
+        List<EmailDomainCount> topEmailDomains = IntStream.range(0, domains.length)
+                .filter(code -> domainCounts[code] > 0)
+                .mapToObj(code -> new EmailDomainCount(domains[code], domainCounts[code]))
+                .sorted(Comparator.comparingLong(EmailDomainCount::count).reversed()
+                        .thenComparing(EmailDomainCount::domain))
+                .limit(topDomains)
+                .toList();
+
+        return new CustomerStats(ids.length, ageDistribution, topEmailDomains, refreshedAt);
+    }
+
+    private static long[] histogram(int[] column, int buckets, IntUnaryOperator bucketOf) {
+        var rows = IntStream.range(0, column.length);
+        if (column.length >= PARALLEL_SCAN_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        return rows.collect(
+                () -> new long[buckets],
+                (counts, row) -> counts[bucketOf.applyAsInt(column[row])]++,
+                (left, right) -> {
+                    for (int bucket = 0; bucket < buckets; bucket++) {
+                        left[bucket] += right[bucket];
+                    }
+                });
+    }
+
+    private static int ageBucket(int age) {
+        return Math.max(0, AgeBucketCount.bucketOf(age));
+    }
+
+    static String emailDomain(String email) {
+        var at = email.lastIndexOf('@');
+        return at < 0 ? "" : email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,26 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.CustomerStats;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api/v1/customers/stats")
+public class CustomerStatsController {
+
+    private final CustomerStatsService customerStatsService;
+
+    public CustomerStatsController(CustomerStatsService customerStatsService) {
+        this.customerStatsService = customerStatsService;
+    }
+
+    // both sources lag the table: the snapshot by one refresh interval, the views until their next refresh
+    @GetMapping
+    public CustomerStats getStats(
+            @RequestParam(value = "source", defaultValue = "SNAPSHOT") CustomerStatsSource source,
+            @RequestParam(value = "topDomains", defaultValue = "10") int topDomains) {
+        return customerStatsService.getStats(source, topDomains);
+    }
+}
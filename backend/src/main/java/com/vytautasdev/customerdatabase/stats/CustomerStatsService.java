@@ -0,0 +1,32 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerStats;
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CustomerStatsService {
+
+    private static final int MAX_TOP_DOMAINS = 100;
+
+    private final CustomerStatsSnapshot customerStatsSnapshot;
+    private final CustomerDao customerDao;
+
+    public CustomerStatsService(CustomerStatsSnapshot customerStatsSnapshot,
+                                @Qualifier("jdbc") CustomerDao customerDao) {
+        this.customerStatsSnapshot = customerStatsSnapshot;
+        this.customerDao = customerDao;
+    }
+
+    public CustomerStats getStats(CustomerStatsSource source, int topDomains) {
+        if (topDomains < 1 || topDomains > MAX_TOP_DOMAINS) {
+            throw new RequestValidationException("topDomains must be 1-%s.".formatted(MAX_TOP_DOMAINS));
+        }
+        return switch (source) {
+            case SNAPSHOT -> customerStatsSnapshot.stats(topDomains);
+            case DATABASE -> customerDao.getCustomerStats(topDomains);
+        };
+    }
+}
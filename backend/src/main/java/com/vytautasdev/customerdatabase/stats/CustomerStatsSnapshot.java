@@ -0,0 +1,75 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerStats;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.TreeMap;
+
+//  !! Keeps a columnar snapshot of the customer table current by pulling incremental sync changes !!
+@Component
+public class CustomerStatsSnapshot {
+
+    private final CustomerDao customerDao;
+    private final int pageSize;
+    private final int maxPendingChanges;
+    private final Clock clock;
+    private volatile CustomerColumnarSnapshot snapshot = CustomerColumnarSnapshot.EMPTY;
+
+    @Autowired
+    public CustomerStatsSnapshot(@Qualifier("jdbc") CustomerDao customerDao,
+                                 @Value("${customer.stats.snapshot.page-size:5000}") int pageSize,
+                                 @Value("${customer.stats.snapshot.max-pending-changes:100000}") int maxPendingChanges) {
+        this(customerDao, pageSize, maxPendingChanges, Clock.systemUTC());
+    }
+
+    CustomerStatsSnapshot(CustomerDao customerDao, int pageSize, int maxPendingChanges, Clock clock) {
+        this.customerDao = customerDao;
+        this.pageSize = pageSize;
+        this.maxPendingChanges = maxPendingChanges;
+        this.clock = clock;
+    }
+
+    public CustomerStats stats(int topDomains) {
+        if (!snapshot.isLoaded()) {
+            refresh();
+        }
+        return snapshot.stats(topDomains);
+    }
+
+    /**
+     * Pulls everything changed since the snapshot's cursor (the whole table on the first run) and merges it in.
+     * Changes are buffered per customer, latest wins, and merged whenever the buffer fills up,
+     * so the first load of a large table never holds more than a bounded number of rows as objects.
+     */
+    @Scheduled(fixedDelayString = "${customer.stats.snapshot.refresh-interval:PT30S}")
+    public synchronized void refresh() {
+        var current = snapshot;
+        var cursor = current.cursor();
+        var pending = new TreeMap<Long, CustomerSyncChange>();
+        while (true) {
+            var page = customerDao.getCustomerChangesSince(cursor, pageSize);
+            for (var change : page) {
+                pending.put(change.id(), change);
+            }
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1).cursor();
+            }
+            var lastPage = page.size() < pageSize;
+            if (lastPage || pending.size() >= maxPendingChanges) {
+                current = current.apply(pending.values(), cursor, clock.instant());
+                pending.clear();
+            }
+            if (lastPage) {
+                break;
+            }
+        }
+        snapshot = current;
+    }
+}
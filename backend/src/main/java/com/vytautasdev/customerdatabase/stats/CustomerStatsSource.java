@@ -0,0 +1,8 @@
+package com.vytautasdev.customerdatabase.stats;
+
+public enum CustomerStatsSource {
+    // in-memory columnar snapshot, refreshed from the sync feed
+    SNAPSHOT,
+    // materialized views in Postgres
+    DATABASE
+}
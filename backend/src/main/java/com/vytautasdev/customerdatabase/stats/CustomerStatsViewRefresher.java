@@ -0,0 +1,81 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+//  !! Refreshes the customer stats materialized views once enough writes have happened or they get too stale !!
+@Component
+public class CustomerStatsViewRefresher {
+
+    static final List<String> VIEWS = List.of(
+            "customer_stats_summary",
+            "customer_age_distribution",
+            "customer_email_domain_counts");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long writeThreshold;
+    private final Duration maxStaleness;
+    private final Clock clock;
+    private final AtomicLong pendingWrites = new AtomicLong();
+    private volatile Instant lastRefresh;
+
+    public CustomerStatsViewRefresher(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${customer.stats.views.write-threshold:1000}") long writeThreshold,
+                                      @Value("${customer.stats.views.max-staleness:5m}") Duration maxStaleness) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writeThreshold = writeThreshold;
+        this.maxStaleness = maxStaleness;
+        this.clock = Clock.systemUTC();
+        this.lastRefresh = clock.instant();
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        pendingWrites.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${customer.stats.views.check-interval:PT5S}")
+    public void refreshIfDue() {
+        var stale = Duration.between(lastRefresh, clock.instant()).compareTo(maxStaleness) >= 0;
+        if (pendingWrites.get() >= writeThreshold || (stale && pendingWrites.get() > 0)) {
+            refresh();
+        }
+    }
+
+    /**
+     * Refreshes concurrently, so stats reads keep being served from the old contents meanwhile.
+     * Skipped when another app instance is already refreshing; its refresh covers our writes too.
+     */
+    public void refresh() {
+        var writes = pendingWrites.getAndSet(0);
+        Boolean refreshed = transactionTemplate.execute(status -> {
+            var locked = jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(hashtext('customer_stats_views_refresh'))", Boolean.class);
+            if (!Boolean.TRUE.equals(locked)) {
+                return false;
+            }
+            VIEWS.forEach(view -> jdbcTemplate.execute("REFRESH MATERIALIZED VIEW CONCURRENTLY " + view));
+            return true;
+        });
+        if (Boolean.TRUE.equals(refreshed)) {
+            lastRefresh = clock.instant();
+        } else {
+            pendingWrites.addAndGet(writes);
+        }
+    }
+}
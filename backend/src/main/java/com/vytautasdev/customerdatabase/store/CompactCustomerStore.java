@@ -0,0 +1,417 @@
+package com.vytautasdev.customerdatabase.store;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.EmailNormalizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+//  !! Customers as columns of primitive arrays plus one UTF-8 byte arena: a row costs a few dozen bytes plus its text, not five objects !!
+/**
+ * Rows keep insertion order. Deleted rows become tombstones until enough of them pile up, then the columns and the
+ * arena are rewritten without them. {@link Customer} objects are only created when a row is read.
+ * <p>
+ * Not thread-safe: the owner guards it, e.g. with a read-write lock.
+ */
+public final class CompactCustomerStore {
+
+    // a string never spans two pages, so a row's text is one contiguous slice of one page
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // lengths are packed into 16 bits each; the all-ones value marks a null string
+    static final int MAX_STRING_BYTES = 0xFFFE;
+    private static final int NULL_LENGTH = 0xFFFF;
+    private static final int NULL_AGE = Integer.MIN_VALUE;
+
+    private static final int MIN_ROWS_TO_COMPACT = 1024;
+
+    private long[] ids;
+    private int[] ages;
+    private long[] offsets;
+    // name length in the high 16 bits, email length in the low 16 bits
+    private int[] lengths;
+    // when and by which change the row was last written, as told by the owner; 0 when it did not say
+    private long[] changeSequences;
+    private long[] changedAtMillis;
+    private final BitSet deleted = new BitSet();
+    private int rows;
+    private int live;
+
+    private byte[][] pages = new byte[1][];
+    private long arenaEnd;
+    private long garbageBytes;
+
+    private LongIntHashIndex index;
+
+    public CompactCustomerStore() {
+        this(16);
+    }
+
+    public CompactCustomerStore(int expectedSize) {
+        var capacity = Math.max(16, expectedSize);
+        ids = new long[capacity];
+        ages = new int[capacity];
+        offsets = new long[capacity];
+        lengths = new int[capacity];
+        changeSequences = new long[capacity];
+        changedAtMillis = new long[capacity];
+        index = new LongIntHashIndex(capacity);
+    }
+
+    public int size() {
+        return live;
+    }
+
+    public boolean contains(long id) {
+        return index.get(id) != LongIntHashIndex.ABSENT;
+    }
+
+    public Customer get(long id) {
+        var row = index.get(id);
+        return row == LongIntHashIndex.ABSENT ? null : customer(row);
+    }
+
+    /**
+     * Throws the exception {@link #put} would for the customer's text, for owners that must not record a write
+     * (e.g. in a journal) the store is going to reject.
+     */
+    public static void validate(Customer customer) {
+        encode(customer.getName());
+        encode(customer.getEmail());
+    }
+
+    /**
+     * Inserts the customer, or overwrites the row with its id. An overwrite keeps the row's position and reuses
+     * its arena slice when the new text fits.
+     */
+    public void put(Customer customer) {
+        put(customer, 0, 0);
+    }
+
+    // like put(Customer), recording which change wrote the row and when, e.g. for incremental sync
+    public void put(Customer customer, long changeSequence, long changedAtMillis) {
+        var id = customer.getId();
+        if (id == null) {
+            throw new IllegalArgumentException("Only customers with an id can be stored.");
+        }
+        var name = encode(customer.getName());
+        var email = encode(customer.getEmail());
+        var textBytes = byteLength(name) + byteLength(email);
+        var row = index.get(id);
+        if (row == LongIntHashIndex.ABSENT) {
+            row = appendRow(id);
+            offsets[row] = allocate(textBytes);
+        } else {
+            var oldBytes = textBytes(row);
+            if (textBytes <= oldBytes) {
+                garbageBytes += oldBytes - textBytes;
+            } else {
+                garbageBytes += oldBytes;
+                offsets[row] = allocate(textBytes);
+            }
+        }
+        ages[row] = customer.getAge() == null ? NULL_AGE : customer.getAge();
+        lengths[row] = lengthOf(name) << 16 | lengthOf(email);
+        changeSequences[row] = changeSequence;
+        this.changedAtMillis[row] = changedAtMillis;
+        var page = pages[(int) (offsets[row] >>> PAGE_SHIFT)];
+        var position = (int) (offsets[row] & PAGE_MASK);
+        if (name != null) {
+            System.arraycopy(name, 0, page, position, name.length);
+            position += name.length;
+        }
+        if (email != null) {
+            System.arraycopy(email, 0, page, position, email.length);
+        }
+        compactIfWasteful();
+    }
+
+    public boolean remove(long id) {
+        var row = index.remove(id);
+        if (row == LongIntHashIndex.ABSENT) {
+            return false;
+        }
+        deleted.set(row);
+        garbageBytes += textBytes(row);
+        live--;
+        compactIfWasteful();
+        return true;
+    }
+
+    // row-level access for scans that want to skip materializing customers; rows run from 0 to rowCount() - 1
+    public int rowCount() {
+        return rows;
+    }
+
+    public boolean isLive(int row) {
+        return !deleted.get(row);
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public Integer age(int row) {
+        return ages[row] == NULL_AGE ? null : ages[row];
+    }
+
+    public String name(int row) {
+        var length = lengths[row] >>> 16;
+        return decode(offsets[row], length);
+    }
+
+    public String email(int row) {
+        var nameLength = lengths[row] >>> 16;
+        var skip = nameLength == NULL_LENGTH ? 0 : nameLength;
+        return decode(offsets[row] + skip, lengths[row] & 0xFFFF);
+    }
+
+    public long changeSequence(int row) {
+        return changeSequences[row];
+    }
+
+    public long changedAtMillis(int row) {
+        return changedAtMillis[row];
+    }
+
+    public Customer customer(int row) {
+        return new Customer(id(row), name(row), email(row), age(row));
+    }
+
+    // the predicates below work on the stored bytes, so scans only materialize the rows that match
+
+    boolean ageBetween(int row, int min, int max) {
+        var age = ages[row];
+        return age != NULL_AGE && age >= min && age <= max;
+    }
+
+    // the needle must be lower case; only names with non-ASCII bytes are decoded, to fold their case properly
+    boolean nameContains(int row, byte[] needle, String lowerCaseNeedle) {
+        var length = lengths[row] >>> 16;
+        if (length == NULL_LENGTH) {
+            return false;
+        }
+        var page = pages[(int) (offsets[row] >>> PAGE_SHIFT)];
+        var start = (int) (offsets[row] & PAGE_MASK);
+        var last = start + length - needle.length;
+        for (int from = start; from <= last; from++) {
+            if (regionMatches(page, from, needle)) {
+                return true;
+            }
+        }
+        return !isAscii(page, start, length) && name(row).toLowerCase(Locale.ROOT).contains(lowerCaseNeedle);
+    }
+
+    // the suffix must be lower case; compares like EmailNormalizer, which trims spaces and lower-cases
+    boolean emailEndsWith(int row, byte[] suffix, String lowerCaseSuffix) {
+        var length = lengths[row] & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return false;
+        }
+        var nameLength = lengths[row] >>> 16;
+        var page = pages[(int) (offsets[row] >>> PAGE_SHIFT)];
+        var start = (int) (offsets[row] & PAGE_MASK) + (nameLength == NULL_LENGTH ? 0 : nameLength);
+        if (!isAscii(page, start, length)) {
+            return EmailNormalizer.normalize(email(row)).endsWith(lowerCaseSuffix);
+        }
+        var end = start + length;
+        while (end > start && page[end - 1] == ' ') {
+            end--;
+        }
+        return end - start >= suffix.length && regionMatches(page, end - suffix.length, suffix);
+    }
+
+    private static boolean isAscii(byte[] page, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            if (page[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(byte[] page, int from, byte[] lowerCase) {
+        for (int i = 0; i < lowerCase.length; i++) {
+            var b = page[from + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A read-only view of the live customers in insertion order, materialized one at a time while iterating.
+     * It must not be iterated while the store changes.
+     */
+    public Collection<Customer> customers() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Customer> iterator() {
+                return new Iterator<>() {
+                    private int next = deleted.nextClearBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < rows;
+                    }
+
+                    @Override
+                    public Customer next() {
+                        if (next >= rows) {
+                            throw new NoSuchElementException();
+                        }
+                        var customer = customer(next);
+                        next = deleted.nextClearBit(next + 1);
+                        return customer;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return live;
+            }
+        };
+    }
+
+    /**
+     * A compacted, independent copy, cheap enough to take under the owner's lock: it copies bytes, not objects.
+     */
+    public CompactCustomerStore copy() {
+        var copy = new CompactCustomerStore(live);
+        copy.rewriteFrom(this);
+        return copy;
+    }
+
+    // approximate retained size of the columns, arena and index, for gauges and benchmarks
+    public long footprintBytes() {
+        long arena = 0;
+        for (var page : pages) {
+            arena += page == null ? 0 : page.length;
+        }
+        return (long) ids.length * (4 * Long.BYTES + 2 * Integer.BYTES)
+                + deleted.size() / 8 + arena + index.footprintBytes();
+    }
+
+    private int appendRow(long id) {
+        if (rows == ids.length) {
+            var capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            changeSequences = Arrays.copyOf(changeSequences, capacity);
+            changedAtMillis = Arrays.copyOf(changedAtMillis, capacity);
+        }
+        var row = rows++;
+        ids[row] = id;
+        index.put(id, row);
+        live++;
+        return row;
+    }
+
+    private long allocate(int bytes) {
+        var page = (int) (arenaEnd >>> PAGE_SHIFT);
+        if ((arenaEnd & PAGE_MASK) + bytes > PAGE_SIZE) {
+            // the tail of the page stays unused rather than splitting the text
+            garbageBytes += PAGE_SIZE - (arenaEnd & PAGE_MASK);
+            page++;
+            arenaEnd = (long) page << PAGE_SHIFT;
+        }
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        if (pages[page] == null) {
+            pages[page] = new byte[PAGE_SIZE];
+        }
+        var offset = arenaEnd;
+        arenaEnd += bytes;
+        return offset;
+    }
+
+    private int textBytes(int row) {
+        var packed = lengths[row];
+        return byteLength(packed >>> 16) + byteLength(packed & 0xFFFF);
+    }
+
+    private String decode(long offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        return new String(pages[(int) (offset >>> PAGE_SHIFT)], (int) (offset & PAGE_MASK), length, StandardCharsets.UTF_8);
+    }
+
+    // a quarter of the rows dead or half of the arena garbage is worth one linear rewrite
+    private void compactIfWasteful() {
+        var deadRows = rows >= MIN_ROWS_TO_COMPACT && rows - live > rows / 4;
+        var deadText = garbageBytes > PAGE_SIZE && garbageBytes > arenaEnd / 2;
+        if (deadRows || deadText) {
+            var compacted = new CompactCustomerStore(live);
+            compacted.rewriteFrom(this);
+            ids = compacted.ids;
+            ages = compacted.ages;
+            offsets = compacted.offsets;
+            lengths = compacted.lengths;
+            changeSequences = compacted.changeSequences;
+            changedAtMillis = compacted.changedAtMillis;
+            deleted.clear();
+            rows = compacted.rows;
+            live = compacted.live;
+            pages = compacted.pages;
+            arenaEnd = compacted.arenaEnd;
+            garbageBytes = compacted.garbageBytes;
+            index = compacted.index;
+        }
+    }
+
+    // fills this empty store with the live rows of source, copying bytes instead of going through Customer objects
+    private void rewriteFrom(CompactCustomerStore source) {
+        for (var row = source.deleted.nextClearBit(0); row < source.rows; row = source.deleted.nextClearBit(row + 1)) {
+            var target = appendRow(source.ids[row]);
+            var bytes = source.textBytes(row);
+            var offset = allocate(bytes);
+            System.arraycopy(source.pages[(int) (source.offsets[row] >>> PAGE_SHIFT)], (int) (source.offsets[row] & PAGE_MASK),
+                    pages[(int) (offset >>> PAGE_SHIFT)], (int) (offset & PAGE_MASK), bytes);
+            offsets[target] = offset;
+            ages[target] = source.ages[row];
+            lengths[target] = source.lengths[row];
+            changeSequences[target] = source.changeSequences[row];
+            changedAtMillis[target] = source.changedAtMillis[row];
+        }
+    }
+
+    private static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Customer text longer than %d bytes cannot be stored.".formatted(MAX_STRING_BYTES));
+        }
+        return bytes;
+    }
+
+    private static int byteLength(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static int byteLength(int length) {
+        return length == NULL_LENGTH ? 0 : length;
+    }
+
+    private static int lengthOf(byte[] value) {
+        return value == null ? NULL_LENGTH : value.length;
+    }
+}
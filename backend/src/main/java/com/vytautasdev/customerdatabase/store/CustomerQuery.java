@@ -0,0 +1,29 @@
+package com.vytautasdev.customerdatabase.store;
+
+/**
+ * Filters for a scan of the in-memory customers; null filters match everything. {@code nameContains} ignores case,
+ * {@code emailDomain} matches the part after the {@code @} of the normalized email.
+ */
+public record CustomerQuery(
+        Integer minAge,
+        Integer maxAge,
+        String nameContains,
+        String emailDomain,
+        int limit
+) {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    public CustomerQuery {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive, was %d.".formatted(limit));
+        }
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            throw new IllegalArgumentException("minAge %d is above maxAge %d.".formatted(minAge, maxAge));
+        }
+    }
+
+    public CustomerQuery(Integer minAge, Integer maxAge, String nameContains, String emailDomain) {
+        this(minAge, maxAge, nameContains, emailDomain, NO_LIMIT);
+    }
+}
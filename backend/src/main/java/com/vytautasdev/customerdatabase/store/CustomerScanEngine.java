@@ -0,0 +1,148 @@
+package com.vytautasdev.customerdatabase.store;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//  !! Filters a CompactCustomerStore with a fork-join scan: row ranges are split until every worker has a share !!
+/**
+ * Ranges are matched on the stored bytes and only matching rows become {@link Customer} objects. Results come back
+ * in row order. A query with a limit stops every range once that many customers matched, so which customers it
+ * returns is unspecified, like LIMIT without ORDER BY.
+ * <p>
+ * The caller must keep the store from changing during the scan, e.g. by holding the owner's read lock.
+ */
+public final class CustomerScanEngine {
+
+    // below this many rows, forking costs more than it saves
+    private static final int MIN_SPLIT_ROWS = 8192;
+    // ranges per worker, so that workers finishing early can steal the rest
+    private static final int RANGES_PER_WORKER = 4;
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    private final ForkJoinPool pool;
+
+    public CustomerScanEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public List<Customer> scan(CompactCustomerStore store, CustomerQuery query) {
+        var rows = store.rowCount();
+        var splitRows = Math.max(MIN_SPLIT_ROWS, rows / (pool.getParallelism() * RANGES_PER_WORKER));
+        var matched = pool.invoke(new ScanTask(store, Filter.of(query), query.limit(), new AtomicInteger(), 0, rows, splitRows));
+        // ranges finishing at the same time can overshoot the limit by a few rows
+        return matched.size() > query.limit()
+                ? List.copyOf(matched.subList(0, query.limit()))
+                : Collections.unmodifiableList(matched);
+    }
+
+    private record Filter(int minAge, int maxAge, boolean checksAge,
+                          String name, byte[] nameBytes, String emailSuffix, byte[] emailSuffixBytes) {
+
+        static Filter of(CustomerQuery query) {
+            var name = query.nameContains() == null ? null : query.nameContains().toLowerCase(Locale.ROOT);
+            var emailSuffix = query.emailDomain() == null
+                    ? null
+                    : "@" + stripAt(query.emailDomain().strip()).toLowerCase(Locale.ROOT);
+            return new Filter(
+                    query.minAge() == null ? Integer.MIN_VALUE : query.minAge(),
+                    query.maxAge() == null ? Integer.MAX_VALUE : query.maxAge(),
+                    query.minAge() != null || query.maxAge() != null,
+                    name, utf8(name),
+                    emailSuffix, utf8(emailSuffix));
+        }
+
+        boolean matches(CompactCustomerStore store, int row) {
+            return store.isLive(row)
+                    && (!checksAge || store.ageBetween(row, minAge, maxAge))
+                    && (name == null || store.nameContains(row, nameBytes, name))
+                    && (emailSuffix == null || store.emailEndsWith(row, emailSuffixBytes, emailSuffix));
+        }
+
+        private static String stripAt(String domain) {
+            return domain.startsWith("@") ? domain.substring(1) : domain;
+        }
+
+        private static byte[] utf8(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<List<Customer>> {
+
+        private final CompactCustomerStore store;
+        private final Filter filter;
+        private final int limit;
+        private final AtomicInteger matchCount;
+        private final int from;
+        private final int to;
+        private final int splitRows;
+
+        ScanTask(CompactCustomerStore store, Filter filter, int limit, AtomicInteger matchCount,
+                 int from, int to, int splitRows) {
+            this.store = store;
+            this.filter = filter;
+            this.limit = limit;
+            this.matchCount = matchCount;
+            this.from = from;
+            this.to = to;
+            this.splitRows = splitRows;
+        }
+
+        @Override
+        protected List<Customer> compute() {
+            if (limitReached()) {
+                return List.of();
+            }
+            if (to - from <= splitRows) {
+                return scanRange();
+            }
+            var middle = (from + to) >>> 1;
+            var left = new ScanTask(store, filter, limit, matchCount, from, middle, splitRows);
+            var right = new ScanTask(store, filter, limit, matchCount, middle, to, splitRows);
+            right.fork();
+            var leftMatches = left.compute();
+            var rightMatches = right.join();
+            if (rightMatches.isEmpty()) {
+                return leftMatches;
+            }
+            if (leftMatches.isEmpty()) {
+                return rightMatches;
+            }
+            var merged = new ArrayList<Customer>(leftMatches.size() + rightMatches.size());
+            merged.addAll(leftMatches);
+            merged.addAll(rightMatches);
+            return merged;
+        }
+
+        private List<Customer> scanRange() {
+            List<Customer> matches = null;
+            for (int row = from; row < to; row++) {
+                if ((row - from) % STOP_CHECK_INTERVAL == 0 && limitReached()) {
+                    break;
+                }
+                if (filter.matches(store, row)) {
+                    if (matches == null) {
+                        matches = new ArrayList<>();
+                    }
+                    matches.add(store.customer(row));
+                    if (limit != CustomerQuery.NO_LIMIT && matchCount.incrementAndGet() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return matches == null ? List.of() : matches;
+        }
+
+        private boolean limitReached() {
+            return limit != CustomerQuery.NO_LIMIT && matchCount.get() >= limit;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.vytautasdev.customerdatabase.store;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from long keys to int values with linear probing, so lookups touch two primitive arrays
+ * instead of boxed keys and entry objects. Removal shifts the following entries back instead of leaving tombstones.
+ */
+final class LongIntHashIndex {
+
+    static final int ABSENT = -1;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashIndex(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    int get(long key) {
+        for (var slot = slot(key); ; slot = (slot + 1) & mask) {
+            var current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return ABSENT;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("%s cannot be used as a key.".formatted(key));
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        for (var slot = slot(key); ; slot = (slot + 1) & mask) {
+            var current = keys[slot];
+            if (current == key) {
+                values[slot] = value;
+                return;
+            }
+            if (current == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return;
+            }
+        }
+    }
+
+    int remove(long key) {
+        for (var slot = slot(key); ; slot = (slot + 1) & mask) {
+            var current = keys[slot];
+            if (current == EMPTY) {
+                return ABSENT;
+            }
+            if (current == key) {
+                var value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long footprintBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    // moves later entries of the probe run into the gap, so lookups never stop early at it
+    private void shiftBack(int gap) {
+        var slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            var key = keys[slot];
+            if (key == EMPTY) {
+                break;
+            }
+            var home = slot(key);
+            // the entry may move into the gap only if the gap lies between its home slot and where it is now
+            var movable = gap <= slot ? home <= gap || home > slot : home <= gap && home > slot;
+            if (movable) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private int slot(long key) {
+        // fibonacci hashing spreads sequential ids over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void resize(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,101 @@
+package com.vytautasdev.customerdatabase.wireformat;
+
+import com.google.protobuf.Timestamp;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchResponse;
+import com.vytautasdev.customerdatabase.customer.CustomerRegistrationRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncPage;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+
+import java.util.List;
+
+// maps the API's records to the messages in customer.proto and back
+public final class CustomerProtoMapper {
+
+    private CustomerProtoMapper() {
+    }
+
+    public static CustomerProto.Customer toProto(Customer customer) {
+        return CustomerProto.Customer.newBuilder()
+                .setId(customer.getId())
+                .setName(customer.getName())
+                .setEmail(customer.getEmail())
+                .setAge(customer.getAge())
+                .build();
+    }
+
+    public static Customer fromProto(CustomerProto.Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+    }
+
+    public static CustomerProto.CustomerList toProto(List<Customer> customers) {
+        var list = CustomerProto.CustomerList.newBuilder();
+        customers.forEach(customer -> list.addCustomers(toProto(customer)));
+        return list.build();
+    }
+
+    public static List<Customer> fromProto(CustomerProto.CustomerList customers) {
+        return customers.getCustomersList().stream().map(CustomerProtoMapper::fromProto).toList();
+    }
+
+    public static CustomerProto.CustomerBatchResponse toProto(CustomerBatchResponse response) {
+        var batch = CustomerProto.CustomerBatchResponse.newBuilder().addAllMissingIds(response.missingIds());
+        response.customers().forEach(customer -> batch.addCustomers(toProto(customer)));
+        return batch.build();
+    }
+
+    public static CustomerBatchResponse fromProto(CustomerProto.CustomerBatchResponse response) {
+        return new CustomerBatchResponse(
+                response.getCustomersList().stream().map(CustomerProtoMapper::fromProto).toList(),
+                response.getMissingIdsList());
+    }
+
+    public static CustomerProto.CustomerSyncPage toProto(CustomerSyncPage page) {
+        var syncPage = CustomerProto.CustomerSyncPage.newBuilder()
+                .setNextSince(page.nextSince())
+                .setHasMore(page.hasMore());
+        page.changes().forEach(change -> syncPage.addChanges(toProto(change)));
+        return syncPage.build();
+    }
+
+    private static CustomerProto.CustomerSyncChange toProto(CustomerSyncChange change) {
+        var syncChange = CustomerProto.CustomerSyncChange.newBuilder()
+                .setId(change.id())
+                .setDeleted(change.deleted())
+                .setChangedAt(Timestamp.newBuilder()
+                        .setSeconds(change.changedAt().getEpochSecond())
+                        .setNanos(change.changedAt().getNano()))
+                .setCursor(change.cursor().toString());
+        if (change.customer() != null) {
+            syncChange.setCustomer(toProto(change.customer()));
+        }
+        return syncChange.build();
+    }
+
+    public static CustomerProto.CustomerRegistrationRequest toProto(CustomerRegistrationRequest request) {
+        var registration = CustomerProto.CustomerRegistrationRequest.newBuilder();
+        if (request.name() != null) {
+            registration.setName(request.name());
+        }
+        if (request.email() != null) {
+            registration.setEmail(request.email());
+        }
+        if (request.age() != null) {
+            registration.setAge(request.age());
+        }
+        return registration.build();
+    }
+
+    public static CustomerRegistrationRequest fromProto(CustomerProto.CustomerRegistrationRequest request) {
+        return new CustomerRegistrationRequest(
+                request.hasName() ? request.getName() : null,
+                request.hasEmail() ? request.getEmail() : null,
+                request.hasAge() ? request.getAge() : null);
+    }
+
+    public static CustomerBatchRequest fromProto(CustomerProto.CustomerBatchRequest request) {
+        return new CustomerBatchRequest(request.getIdsList());
+    }
+}
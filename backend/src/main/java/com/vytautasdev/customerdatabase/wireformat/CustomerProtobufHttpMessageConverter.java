@@ -0,0 +1,99 @@
+package com.vytautasdev.customerdatabase.wireformat;
+
+import com.google.protobuf.Message;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchResponse;
+import com.vytautasdev.customerdatabase.customer.CustomerRegistrationRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncPage;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Set;
+
+//  !! Reads and writes the customer API's own types as the messages in customer.proto, so controllers stay format-agnostic !!
+public class CustomerProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final Set<Class<?>> READABLE = Set.of(CustomerRegistrationRequest.class, CustomerBatchRequest.class);
+    private static final Set<Class<?>> WRITABLE = Set.of(Customer.class, CustomerBatchResponse.class, CustomerSyncPage.class);
+
+    public CustomerProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    // the type-aware canRead/canWrite below decide; this only answers which classes to advertise the media type for
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return READABLE.contains(clazz) || WRITABLE.contains(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return type instanceof Class<?> clazz && READABLE.contains(clazz) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (WRITABLE.contains(clazz) || type instanceof Class<?> writableClass && WRITABLE.contains(writableClass)
+                || isCustomerList(type, clazz))
+                && canWrite(mediaType);
+    }
+
+    // results of DeferredResult handlers arrive without their generic type, so an untyped list is accepted
+    // here and its elements are checked when it is written
+    private static boolean isCustomerList(Type type, Class<?> clazz) {
+        var resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        if (!List.class.isAssignableFrom(resolved.toClass()) && !(clazz != null && List.class.isAssignableFrom(clazz))) {
+            return false;
+        }
+        var elementType = resolved.asCollection().getGeneric(0).resolve();
+        return elementType == null || elementType == Object.class || elementType == Customer.class;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(ResolvableType.forType(type).toClass(), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        var body = inputMessage.getBody();
+        if (clazz == CustomerRegistrationRequest.class) {
+            return CustomerProtoMapper.fromProto(CustomerProto.CustomerRegistrationRequest.parseFrom(body));
+        }
+        if (clazz == CustomerBatchRequest.class) {
+            return CustomerProtoMapper.fromProto(CustomerProto.CustomerBatchRequest.parseFrom(body));
+        }
+        throw new HttpMessageNotReadableException("No protobuf message for " + clazz.getName(), inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Message message;
+        if (value instanceof Customer customer) {
+            message = CustomerProtoMapper.toProto(customer);
+        } else if (value instanceof CustomerBatchResponse response) {
+            message = CustomerProtoMapper.toProto(response);
+        } else if (value instanceof CustomerSyncPage page) {
+            message = CustomerProtoMapper.toProto(page);
+        } else if (value instanceof List<?> customers && customers.stream().allMatch(Customer.class::isInstance)) {
+            message = CustomerProtoMapper.toProto((List<Customer>) customers);
+        } else {
+            throw new HttpMessageNotWritableException("No protobuf message for " + value.getClass().getName());
+        }
+        outputMessage.getHeaders().setContentLength(message.getSerializedSize());
+        message.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,183 @@
+package db.migration;
+
+import com.vytautasdev.customerdatabase.migration.BatchedCopy;
+import com.vytautasdev.customerdatabase.migration.OnlineMigration;
+import org.flywaydb.core.api.FlywayException;
+
+import java.sql.SQLException;
+
+/**
+ * Hash-partitions customer by id into 16 partitions. A unique constraint on a partitioned table must include the
+ * partition key, so email uniqueness moves to the customer_email lookup table, kept in sync by triggers.
+ * <p>
+ * The partitioned table is built next to the live one as customer_partitioned. A trigger on customer mirrors every
+ * write into it while a {@link BatchedCopy} copies the existing rows in short batches, and one short transaction
+ * then swaps the names. Customers stay readable and writable throughout; only the swap takes an exclusive lock.
+ * Every step can be re-run if the migration is interrupted.
+ */
+public class V3__Partition_Customer_Table_By_Id extends OnlineMigration {
+
+    static final int PARTITIONS = 16;
+
+    static final BatchedCopy CUSTOMER_COPY = new BatchedCopy(
+            "customer -> customer_partitioned",
+            "customer",
+            "customer_partitioned",
+            "id",
+            "id, name, email, age",
+            "id",
+            DEFAULT_CHUNK_SIZE,
+            DEFAULT_PAUSE);
+
+    @Override
+    protected void migrate() throws SQLException {
+        if (!isPartitioned()) {
+            createPartitionedTable();
+
+            // from here on every write to customer is mirrored, the copy only handles rows that already exist
+            inTransaction(jdbcTemplate -> {
+                jdbcTemplate.execute("DROP TRIGGER IF EXISTS customer_partition_mirror ON customer");
+                jdbcTemplate.execute("""
+                        CREATE TRIGGER customer_partition_mirror
+                            AFTER INSERT OR UPDATE OR DELETE
+                            ON customer
+                            FOR EACH ROW
+                        EXECUTE FUNCTION customer_partition_mirror()
+                        """);
+            });
+
+            copy(CUSTOMER_COPY);
+            failOnMissedRows();
+
+            inTransaction(jdbcTemplate -> {
+                jdbcTemplate.execute("LOCK TABLE customer, customer_partitioned IN ACCESS EXCLUSIVE MODE");
+                jdbcTemplate.execute("DROP TRIGGER customer_partition_mirror ON customer");
+                jdbcTemplate.execute("ALTER TABLE customer DROP CONSTRAINT customer_email_unique");
+                jdbcTemplate.execute("ALTER TABLE customer RENAME TO customer_unpartitioned");
+                jdbcTemplate.execute("""
+                        ALTER TABLE customer_unpartitioned
+                            RENAME CONSTRAINT customer_pkey TO customer_unpartitioned_pkey
+                        """);
+                jdbcTemplate.execute("ALTER TABLE customer_partitioned RENAME TO customer");
+                jdbcTemplate.execute("""
+                        ALTER TABLE customer
+                            RENAME CONSTRAINT customer_partitioned_pkey TO customer_pkey
+                        """);
+                jdbcTemplate.execute("""
+                        ALTER TABLE customer_email
+                            RENAME CONSTRAINT customer_email_pkey TO customer_email_unique
+                        """);
+                jdbcTemplate.execute("ALTER SEQUENCE customer_id_seq OWNED BY customer.id");
+            });
+        }
+
+        execute("DROP TABLE IF EXISTS customer_unpartitioned");
+        execute("DROP FUNCTION IF EXISTS customer_partition_mirror()");
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate().queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = 'customer'::regclass", Boolean.class));
+    }
+
+    // nobody reads or writes these yet, so they are created and indexed without the online steps
+    private void createPartitionedTable() {
+        execute("""
+                CREATE TABLE IF NOT EXISTS customer_partitioned
+                (
+                    id    BIGINT NOT NULL DEFAULT nextval('customer_id_seq'),
+                    name  TEXT   NOT NULL,
+                    email TEXT   NOT NULL,
+                    age   INT    NOT NULL,
+                    CONSTRAINT customer_partitioned_pkey PRIMARY KEY (id)
+                ) PARTITION BY HASH (id)
+                """);
+        for (int remainder = 0; remainder < PARTITIONS; remainder++) {
+            execute("""
+                    CREATE TABLE IF NOT EXISTS customer_p%1$d
+                        PARTITION OF customer_partitioned FOR VALUES WITH (MODULUS %2$d, REMAINDER %1$d)
+                    """.formatted(remainder, PARTITIONS));
+        }
+        execute("CREATE INDEX IF NOT EXISTS customer_email_idx ON customer_partitioned (email)");
+
+        // renamed to customer_email_unique in the swap, once the constraint of that name on customer is gone
+        execute("""
+                CREATE TABLE IF NOT EXISTS customer_email
+                (
+                    email       TEXT   NOT NULL,
+                    customer_id BIGINT NOT NULL,
+                    CONSTRAINT customer_email_pkey PRIMARY KEY (email)
+                )
+                """);
+        execute("""
+                CREATE OR REPLACE FUNCTION customer_email_sync() RETURNS TRIGGER AS
+                $$
+                BEGIN
+                    IF TG_OP = 'INSERT' THEN
+                        INSERT INTO customer_email (email, customer_id) VALUES (NEW.email, NEW.id);
+                    ELSIF TG_OP = 'UPDATE' THEN
+                        UPDATE customer_email SET email = NEW.email WHERE email = OLD.email;
+                    ELSE
+                        DELETE FROM customer_email WHERE email = OLD.email;
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql
+                """);
+        execute("DROP TRIGGER IF EXISTS customer_email_insert ON customer_partitioned");
+        execute("""
+                CREATE TRIGGER customer_email_insert
+                    AFTER INSERT
+                    ON customer_partitioned
+                    FOR EACH ROW
+                EXECUTE FUNCTION customer_email_sync()
+                """);
+        execute("DROP TRIGGER IF EXISTS customer_email_update ON customer_partitioned");
+        execute("""
+                CREATE TRIGGER customer_email_update
+                    AFTER UPDATE OF email
+                    ON customer_partitioned
+                    FOR EACH ROW
+                    WHEN (OLD.email IS DISTINCT FROM NEW.email)
+                EXECUTE FUNCTION customer_email_sync()
+                """);
+        execute("DROP TRIGGER IF EXISTS customer_email_delete ON customer_partitioned");
+        execute("""
+                CREATE TRIGGER customer_email_delete
+                    AFTER DELETE
+                    ON customer_partitioned
+                    FOR EACH ROW
+                EXECUTE FUNCTION customer_email_sync()
+                """);
+
+        execute("""
+                CREATE OR REPLACE FUNCTION customer_partition_mirror() RETURNS TRIGGER AS
+                $$
+                BEGIN
+                    IF TG_OP = 'DELETE' THEN
+                        DELETE FROM customer_partitioned WHERE id = OLD.id;
+                    ELSE
+                        INSERT INTO customer_partitioned (id, name, email, age)
+                        VALUES (NEW.id, NEW.name, NEW.email, NEW.age)
+                        ON CONFLICT (id) DO UPDATE
+                            SET name  = EXCLUDED.name,
+                                email = EXCLUDED.email,
+                                age   = EXCLUDED.age;
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql
+                """);
+    }
+
+    // the mirror trigger writes in the same transaction as the source, so both tables agree in any one snapshot
+    private void failOnMissedRows() {
+        var missing = jdbcTemplate().queryForObject("""
+                SELECT (SELECT count(*) FROM customer) - (SELECT count(*) FROM customer_partitioned)
+                """, Long.class);
+        if (missing == null || missing != 0) {
+            throw new FlywayException(("customer_partitioned differs from customer by %s rows after the copy, "
+                    + "drop customer_partitioned and customer_email and re-run the migration").formatted(missing));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package db.migration;
+
+import com.vytautasdev.customerdatabase.migration.BatchedBackfill;
+import com.vytautasdev.customerdatabase.migration.OnlineMigration;
+import org.flywaydb.core.api.FlywayException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+
+/**
+ * Makes email uniqueness case-insensitive. Adds normalized_email (lower(btrim(email))) to the customer_email lookup
+ * table, which every email lookup goes through, backfills it in short committed batches and then swaps its primary
+ * key from email to normalized_email. Every step can be re-run if the migration is interrupted.
+ */
+public class V7__Normalize_Customer_Email extends OnlineMigration {
+
+    static final BatchedBackfill CUSTOMER_EMAIL_BACKFILL = new BatchedBackfill(
+            "customer_email.normalized_email",
+            "customer_email",
+            "email",
+            "normalized_email = lower(btrim(email))",
+            "normalized_email IS NULL",
+            DEFAULT_CHUNK_SIZE,
+            DEFAULT_PAUSE);
+
+    @Override
+    protected void migrate() throws SQLException {
+        execute("ALTER TABLE customer_email ADD COLUMN IF NOT EXISTS normalized_email TEXT");
+
+        // from here on new and changed emails are normalized as they are written, the backfill only handles old ones
+        execute(emailSyncFunction("email = OLD.email"));
+
+        backfill(CUSTOMER_EMAIL_BACKFILL);
+        failOnNormalizedDuplicates(jdbcTemplate());
+
+        createIndexConcurrently("customer_email_normalized_idx", true, "ON customer_email (normalized_email)");
+
+        // a validated check lets the primary key below mark the column NOT NULL without another full scan
+        addConstraintNotValid("customer_email", "customer_email_normalized_not_null",
+                "CHECK (normalized_email IS NOT NULL)");
+        validateConstraint("customer_email", "customer_email_normalized_not_null");
+
+        inTransaction(jdbcTemplate -> {
+            jdbcTemplate.execute("""
+                    ALTER TABLE customer_email
+                        DROP CONSTRAINT customer_email_unique,
+                        ADD CONSTRAINT customer_email_unique PRIMARY KEY USING INDEX customer_email_normalized_idx
+                    """);
+            jdbcTemplate.execute("ALTER TABLE customer_email DROP CONSTRAINT customer_email_normalized_not_null");
+            jdbcTemplate.execute(emailSyncFunction("normalized_email = lower(btrim(OLD.email))"));
+        });
+    }
+
+    private static void failOnNormalizedDuplicates(JdbcTemplate jdbcTemplate) {
+        var duplicates = jdbcTemplate.queryForList("""
+                SELECT normalized_email
+                FROM customer_email
+                GROUP BY normalized_email
+                HAVING count(*) > 1
+                LIMIT 20
+                """, String.class);
+        if (!duplicates.isEmpty()) {
+            throw new FlywayException(("Customers share emails that differ only in case or surrounding spaces, "
+                    + "merge or change them and re-run the migration: %s").formatted(duplicates));
+        }
+    }
+
+    private static String emailSyncFunction(String matchOldRow) {
+        return """
+                CREATE OR REPLACE FUNCTION customer_email_sync() RETURNS TRIGGER AS
+                $$
+                BEGIN
+                    IF TG_OP = 'INSERT' THEN
+                        INSERT INTO customer_email (email, normalized_email, customer_id)
+                        VALUES (NEW.email, lower(btrim(NEW.email)), NEW.id);
+                    ELSIF TG_OP = 'UPDATE' THEN
+                        UPDATE customer_email
+                        SET email            = NEW.email,
+                            normalized_email = lower(btrim(NEW.email))
+                        WHERE %1$s;
+                    ELSE
+                        DELETE FROM customer_email WHERE %1$s;
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql
+                """.formatted(matchOldRow);
+    }
+}
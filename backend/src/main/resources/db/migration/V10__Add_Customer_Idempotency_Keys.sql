@@ -0,0 +1,18 @@
+-- Outcomes of POST /api/v1/customers by Idempotency-Key, shared between replicas when
+-- customer.idempotency.store=jdbc. status is NULL while the request that claimed the key is still running.
+
+CREATE TABLE customer_idempotency_key
+(
+    idempotency_key TEXT PRIMARY KEY,
+    fingerprint     TEXT        NOT NULL,
+    created_at      TIMESTAMPTZ NOT NULL,
+    expires_at      TIMESTAMPTZ NOT NULL,
+    status          INT,
+    error           BOOLEAN,
+    error_message   TEXT,
+    content_type    TEXT,
+    location        TEXT,
+    body            BYTEA
+);
+
+CREATE INDEX customer_idempotency_key_expires_idx ON customer_idempotency_key (expires_at);
@@ -0,0 +1,5 @@
+-- Every audited mutation targets a stored customer, so customer_id is always known. Rows written before
+-- registrations reported the generated id carry NULL and cannot be fixed in an append-only table, hence NOT VALID.
+
+ALTER TABLE customer_audit
+    ADD CONSTRAINT customer_audit_customer_id_not_null CHECK (customer_id IS NOT NULL) NOT VALID;
@@ -0,0 +1,5 @@
+-- actor is the remote address the change came from. The X-Client-Id header is chosen by the client, so it is
+-- kept next to it as an unverified hint instead of standing in for the actor.
+
+ALTER TABLE customer_audit
+    ADD COLUMN claimed_client_id TEXT;
@@ -0,0 +1,44 @@
+-- Transactional outbox: every customer mutation appends a row in the same transaction.
+-- Sequence values are handed out in start order, not commit order, so the change feed relay assigns the
+-- consumer-facing position only once a row's transaction is older than every running one.
+
+CREATE TABLE customer_outbox
+(
+    id          BIGSERIAL PRIMARY KEY,
+    position    BIGINT,
+    customer_id BIGINT      NOT NULL,
+    operation   TEXT        NOT NULL,
+    payload     JSONB,
+    txid        XID8        NOT NULL DEFAULT pg_current_xact_id(),
+    changed_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE UNIQUE INDEX customer_outbox_position_idx ON customer_outbox (position);
+CREATE INDEX customer_outbox_unsequenced_idx ON customer_outbox (txid, id) WHERE position IS NULL;
+
+CREATE FUNCTION customer_outbox_append() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO customer_outbox (customer_id, operation) VALUES (OLD.id, TG_OP);
+    ELSE
+        INSERT INTO customer_outbox (customer_id, operation, payload)
+        VALUES (NEW.id, TG_OP,
+                jsonb_build_object('id', NEW.id, 'name', NEW.name, 'email', NEW.email, 'age', NEW.age));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_outbox_insert_delete
+    AFTER INSERT OR DELETE
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_outbox_append();
+
+CREATE TRIGGER customer_outbox_update
+    AFTER UPDATE
+    ON customer
+    FOR EACH ROW
+    WHEN (OLD IS DISTINCT FROM NEW)
+EXECUTE FUNCTION customer_outbox_append();
@@ -0,0 +1,54 @@
+-- Change tracking for incremental sync. change_txid is the id of the transaction that last wrote the row:
+-- once it is older than every running transaction, nothing can commit behind it, which makes
+-- (change_txid, id) a safe resume cursor. The constant defaults keep ADD COLUMN free of a table rewrite;
+-- existing rows start at txid 0, so a first sync from 0 returns all of them.
+
+ALTER TABLE customer
+    ADD COLUMN updated_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN change_txid XID8        NOT NULL DEFAULT '0';
+
+ALTER TABLE customer
+    ALTER COLUMN change_txid SET DEFAULT pg_current_xact_id();
+
+CREATE INDEX customer_change_idx ON customer (change_txid, id);
+
+CREATE TABLE customer_tombstone
+(
+    id          BIGINT PRIMARY KEY,
+    deleted_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    change_txid XID8        NOT NULL DEFAULT pg_current_xact_id()
+);
+
+CREATE INDEX customer_tombstone_change_idx ON customer_tombstone (change_txid, id);
+
+CREATE FUNCTION customer_touch() RETURNS TRIGGER AS
+$$
+BEGIN
+    NEW.updated_at = now();
+    NEW.change_txid = pg_current_xact_id();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_touch
+    BEFORE UPDATE
+    ON customer
+    FOR EACH ROW
+    WHEN (OLD.name IS DISTINCT FROM NEW.name
+        OR OLD.email IS DISTINCT FROM NEW.email
+        OR OLD.age IS DISTINCT FROM NEW.age)
+EXECUTE FUNCTION customer_touch();
+
+CREATE FUNCTION customer_tombstone_record() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO customer_tombstone (id) VALUES (OLD.id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_tombstone_record
+    AFTER DELETE
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_tombstone_record();
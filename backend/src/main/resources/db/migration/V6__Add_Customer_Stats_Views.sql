@@ -0,0 +1,35 @@
+-- Pre-aggregated customer statistics, so dashboards never scan the customer table.
+-- Each view has a unique index, which REFRESH MATERIALIZED VIEW CONCURRENTLY requires.
+
+CREATE MATERIALIZED VIEW customer_stats_summary AS
+SELECT 1        AS id,
+       count(*) AS total_customers,
+       now()    AS refreshed_at
+FROM customer;
+
+CREATE UNIQUE INDEX customer_stats_summary_id_idx ON customer_stats_summary (id);
+
+CREATE MATERIALIZED VIEW customer_age_distribution AS
+SELECT bucket.bucket_order,
+       bucket.age_range,
+       count(customer.id) AS customer_count
+FROM (VALUES (0, '0-17', 0, 17),
+             (1, '18-24', 18, 24),
+             (2, '25-34', 25, 34),
+             (3, '35-44', 35, 44),
+             (4, '45-54', 45, 54),
+             (5, '55-64', 55, 64),
+             (6, '65+', 65, 2147483647)) AS bucket (bucket_order, age_range, min_age, max_age)
+         LEFT JOIN customer ON customer.age BETWEEN bucket.min_age AND bucket.max_age
+GROUP BY bucket.bucket_order, bucket.age_range;
+
+CREATE UNIQUE INDEX customer_age_distribution_bucket_idx ON customer_age_distribution (bucket_order);
+
+CREATE MATERIALIZED VIEW customer_email_domain_counts AS
+SELECT CASE WHEN position('@' IN email) > 0 THEN lower(substring(email FROM '[^@]*$')) ELSE '' END AS domain,
+       count(*) AS customer_count
+FROM customer
+GROUP BY 1;
+
+CREATE UNIQUE INDEX customer_email_domain_counts_domain_idx ON customer_email_domain_counts (domain);
+CREATE INDEX customer_email_domain_counts_count_idx ON customer_email_domain_counts (customer_count DESC, domain);
@@ -0,0 +1,30 @@
+-- Announces every customer change on the customer_changed channel, including changes made outside the app,
+-- so in-memory copies of customers can be dropped. Notifications are delivered when the transaction commits
+-- and never for rolled back ones. The payload is "<operation>,<id>,<epoch millis when the row was written>".
+-- Updates that only touch derived columns (e.g. backfills) are not announced.
+
+CREATE FUNCTION customer_notify_change() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_notify('customer_changed',
+                      left(TG_OP, 1) || ',' ||
+                      CASE WHEN TG_OP = 'DELETE' THEN OLD.id ELSE NEW.id END || ',' ||
+                      (extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_notify_insert_delete
+    AFTER INSERT OR DELETE
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_notify_change();
+
+CREATE TRIGGER customer_notify_update
+    AFTER UPDATE
+    ON customer
+    FOR EACH ROW
+    WHEN (OLD.name IS DISTINCT FROM NEW.name
+        OR OLD.email IS DISTINCT FROM NEW.email
+        OR OLD.age IS DISTINCT FROM NEW.age)
+EXECUTE FUNCTION customer_notify_change();
@@ -0,0 +1,34 @@
+-- Append-only audit trail of customer mutations made through the app, written asynchronously in batches.
+-- changes holds {"<field>": {"before": ..., "after": ...}}: every field the update set, every field of a created
+-- customer with a null before, and every field of a deleted customer with a null after.
+
+CREATE TABLE customer_audit
+(
+    id          BIGSERIAL PRIMARY KEY,
+    recorded_at TIMESTAMPTZ NOT NULL,
+    actor       TEXT        NOT NULL,
+    operation   TEXT        NOT NULL,
+    customer_id BIGINT,
+    changes     JSONB       NOT NULL
+);
+
+CREATE INDEX customer_audit_customer_idx ON customer_audit (customer_id, id);
+
+CREATE FUNCTION customer_audit_reject_change() RETURNS TRIGGER AS
+$$
+BEGIN
+    RAISE EXCEPTION 'customer_audit is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_audit_append_only
+    BEFORE UPDATE OR DELETE
+    ON customer_audit
+    FOR EACH ROW
+EXECUTE FUNCTION customer_audit_reject_change();
+
+CREATE TRIGGER customer_audit_no_truncate
+    BEFORE TRUNCATE
+    ON customer_audit
+    FOR EACH STATEMENT
+EXECUTE FUNCTION customer_audit_reject_change();
@@ -12,6 +12,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import javax.sql.DataSource;
+import java.util.Map;
 
 
 @Testcontainers
@@ -23,7 +24,10 @@ public abstract class AbstractTestcontainers {
                 postgreSQLContainer.getJdbcUrl(),
                 postgreSQLContainer.getUsername(),
                 postgreSQLContainer.getPassword()
-        ).load();
+        ).configuration(Map.of(
+                // the default lock keeps a transaction open, which CREATE INDEX CONCURRENTLY would wait on forever
+                "flyway.postgresql.transactional.lock", "false"
+        )).load();
         flyway.migrate();
     }
 
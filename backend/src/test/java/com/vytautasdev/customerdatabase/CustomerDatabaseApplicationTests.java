@@ -3,7 +3,11 @@ package com.vytautasdev.customerdatabase;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// each context needs its own search index directory, Lucene locks it per writer, and its own gRPC port
+@SpringBootTest(properties = {
+        "customer.search.index-path=${java.io.tmpdir}/customer-search-index-${random.uuid}",
+        "customer.grpc.port=0"
+})
 class CustomerDatabaseApplicationTests {
 
     @Test
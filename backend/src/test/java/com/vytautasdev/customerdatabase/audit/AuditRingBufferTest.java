@@ -0,0 +1,94 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new AuditRingBuffer<>(1).capacity()).isEqualTo(1);
+        assertThat(new AuditRingBuffer<>(5).capacity()).isEqualTo(8);
+        assertThat(new AuditRingBuffer<>(8).capacity()).isEqualTo(8);
+    }
+
+    @Test
+    void rejectsOffersWhenFullAndAcceptsThemAgainOnceDrained() {
+        // Given
+        var underTest = new AuditRingBuffer<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(underTest.offer(i)).isTrue();
+        }
+
+        // When
+        var offeredWhenFull = underTest.offer(4);
+        var drained = new ArrayList<Integer>();
+        underTest.drainTo(drained, 2);
+        var offeredAfterDrain = underTest.offer(5);
+        underTest.drainTo(drained, 10);
+
+        // Then
+        assertThat(offeredWhenFull).isFalse();
+        assertThat(offeredAfterDrain).isTrue();
+        assertThat(drained).containsExactly(0, 1, 2, 3, 5);
+        assertThat(underTest.isEmpty()).isTrue();
+    }
+
+    @Test
+    void concurrentProducersNeitherLoseNorDuplicateElements() throws Exception {
+        // Given
+        var underTest = new AuditRingBuffer<Long>(64);
+        var producers = 4;
+        var perProducer = 25_000;
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            var producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    var element = (long) producer * perProducer + i;
+                    while (!underTest.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        // When
+        start.countDown();
+        var drained = new ArrayList<Long>();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (drained.size() < producers * perProducer && System.nanoTime() < deadline) {
+            if (underTest.drainTo(drained, 128) == 0) {
+                Thread.yield();
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(drained).hasSize(producers * perProducer);
+        assertThat(new HashSet<>(drained)).hasSize(producers * perProducer);
+        // each producer's elements come out in the order it offered them
+        var last = new long[producers];
+        Arrays.fill(last, -1);
+        for (var element : drained) {
+            var producer = (int) (element / perProducer);
+            assertThat(element).isGreaterThan(last[producer]);
+            last[producer] = element;
+        }
+    }
+}
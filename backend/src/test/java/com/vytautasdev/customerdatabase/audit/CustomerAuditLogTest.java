@@ -0,0 +1,205 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import com.vytautasdev.customerdatabase.audit.CustomerAuditLog.OverflowPolicy;
+import com.vytautasdev.customerdatabase.audit.CustomerAuditRecord.FieldChange;
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.DELETED;
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.UPDATED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CustomerAuditLogTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<CustomerAuditRecord> written = new CopyOnWriteArrayList<>();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private CustomerAuditLog underTest;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        RequestContextHolder.resetRequestAttributes();
+        if (underTest != null) {
+            underTest.destroy();
+        }
+    }
+
+    @Test
+    void writesRecordsWithTheRemoteAddressAsActorAndTheClientIdAsAClaim() throws InterruptedException {
+        // Given
+        underTest = auditLog(records -> written.addAll(records), 16, OverflowPolicy.BLOCK);
+        var request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader(ClientIdentity.CLIENT_ID_HEADER, "client-a");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        // When
+        underTest.record(UPDATED, 1L, Map.of("age", new FieldChange(19, 20)));
+        RequestContextHolder.resetRequestAttributes();
+        underTest.record(DELETED, 2L, Map.of());
+        underTest.destroy();
+
+        // Then
+        assertThat(written)
+                .extracting(CustomerAuditRecord::actor, CustomerAuditRecord::claimedClientId, CustomerAuditRecord::customerId)
+                .containsExactly(
+                        tuple("10.0.0.1", "client-a", 1L),
+                        tuple(CustomerAuditLog.SYSTEM_ACTOR, null, 2L));
+        assertThat(written.get(0).changes()).containsEntry("age", new FieldChange(19, 20));
+    }
+
+    @Test
+    void writesBufferedRecordsInBatches() throws InterruptedException {
+        // Given
+        var release = new CountDownLatch(1);
+        underTest = auditLog(records -> {
+            await(release);
+            batchSizes.add(records.size());
+            written.addAll(records);
+        }, 1024, OverflowPolicy.BLOCK);
+
+        // When
+        for (long i = 0; i < 500; i++) {
+            underTest.record(UPDATED, i, Map.of());
+        }
+        release.countDown();
+        underTest.destroy();
+
+        // Then
+        assertThat(written).extracting(CustomerAuditRecord::customerId).hasSize(500).isSorted();
+        assertThat(batchSizes).allMatch(size -> size <= 64);
+        assertThat(batchSizes.size()).isLessThan(500);
+    }
+
+    @Test
+    void dropPolicyNeverBlocksTheCaller() throws InterruptedException {
+        // Given
+        var release = new CountDownLatch(1);
+        underTest = auditLog(records -> {
+            await(release);
+            written.addAll(records);
+        }, 16, OverflowPolicy.DROP);
+
+        // When
+        var start = System.nanoTime();
+        for (long i = 0; i < 1000; i++) {
+            underTest.record(UPDATED, i, Map.of());
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        release.countDown();
+        underTest.destroy();
+
+        // Then
+        var dropped = meterRegistry.get("customer.audit.records").tag("result", "dropped").counter().count();
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(1));
+        assertThat(dropped).isPositive();
+        assertThat(written.size() + dropped).isEqualTo(1000);
+    }
+
+    @Test
+    void blockPolicyLosesNothingThroughSinkFailuresAndAFullBuffer() throws InterruptedException {
+        // Given
+        var failures = new AtomicInteger(3);
+        underTest = auditLog(records -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new DataAccessResourceFailureException("database unavailable");
+            }
+            written.addAll(records);
+        }, 16, OverflowPolicy.BLOCK);
+
+        // When
+        for (long i = 0; i < 200; i++) {
+            underTest.record(UPDATED, i, Map.of());
+        }
+        underTest.destroy();
+
+        // Then
+        assertThat(written).extracting(CustomerAuditRecord::customerId).hasSize(200).doesNotHaveDuplicates();
+        assertThat(meterRegistry.get("customer.audit.batch.failures").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("customer.audit.backpressure").timer().count()).isPositive();
+    }
+
+    @Test
+    void rejectsRecordsTheSinkCanNeverWriteAndKeepsTheRestOfTheBatch() throws InterruptedException {
+        // Given
+        var release = new CountDownLatch(1);
+        underTest = auditLog(records -> {
+            await(release);
+            if (records.stream().anyMatch(record -> record.customerId() == null)) {
+                throw new DataIntegrityViolationException("customer_audit_customer_id_not_null");
+            }
+            written.addAll(records);
+        }, 16, OverflowPolicy.BLOCK);
+
+        // When
+        underTest.record(UPDATED, 1L, Map.of());
+        underTest.record(UPDATED, null, Map.of());
+        underTest.record(UPDATED, 2L, Map.of());
+        release.countDown();
+        underTest.destroy();
+
+        // Then
+        assertThat(written).extracting(CustomerAuditRecord::customerId).containsExactly(1L, 2L);
+        assertThat(meterRegistry.get("customer.audit.records").tag("result", "rejected").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void blockPolicyDropsRecordsAfterWaitingMaxBlockForRoom() throws InterruptedException {
+        // Given
+        var release = new CountDownLatch(1);
+        underTest = auditLog(records -> {
+            await(release);
+            written.addAll(records);
+        }, 2, OverflowPolicy.BLOCK, Duration.ofMillis(20));
+
+        // When
+        var start = System.nanoTime();
+        for (long i = 0; i < 20; i++) {
+            underTest.record(UPDATED, i, Map.of());
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        release.countDown();
+        underTest.destroy();
+
+        // Then
+        var dropped = meterRegistry.get("customer.audit.records").tag("result", "dropped").counter().count();
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+        assertThat(dropped).isPositive();
+        assertThat(written.size() + dropped).isEqualTo(20);
+    }
+
+    private CustomerAuditLog auditLog(CustomerAuditSink sink, int capacity, OverflowPolicy overflowPolicy) {
+        return auditLog(sink, capacity, overflowPolicy, Duration.ofSeconds(5));
+    }
+
+    private CustomerAuditLog auditLog(CustomerAuditSink sink, int capacity, OverflowPolicy overflowPolicy,
+                                      Duration maxBlock) {
+        return new CustomerAuditLog(sink, capacity, 64, overflowPolicy, Duration.ofMillis(1), Duration.ofMillis(10),
+                maxBlock, meterRegistry);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.vytautasdev.customerdatabase.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import com.vytautasdev.customerdatabase.audit.CustomerAuditRecord.FieldChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.CREATED;
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.DELETED;
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.UPDATED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class JdbcCustomerAuditSinkTest extends AbstractTestcontainers {
+
+    // every getJdbcTemplate() call opens its own pool
+    private static final JdbcTemplate JDBC_TEMPLATE = getJdbcTemplate();
+
+    private final JdbcCustomerAuditSink underTest = new JdbcCustomerAuditSink(JDBC_TEMPLATE, new ObjectMapper());
+
+    @Test
+    void appendsTheBatchWithItsDiffs() {
+        // Given
+        var customerId = System.nanoTime();
+        var changes = new LinkedHashMap<String, FieldChange>();
+        changes.put("name", new FieldChange("Alex", "Alexander"));
+        changes.put("age", new FieldChange(19, 20));
+        var recordedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+        // When
+        underTest.write(List.of(
+                new CustomerAuditRecord(recordedAt, "10.0.0.1", "client-a", UPDATED, customerId, changes),
+                new CustomerAuditRecord(recordedAt, "system", null, DELETED, customerId, Map.of())));
+
+        // Then
+        var rows = JDBC_TEMPLATE.queryForList("""
+                SELECT actor, claimed_client_id, operation, changes -> 'name' ->> 'after' AS name,
+                       (changes -> 'age' ->> 'before')::int AS age
+                FROM customer_audit WHERE customer_id = ? ORDER BY id
+                """, customerId);
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).containsEntry("actor", "10.0.0.1").containsEntry("claimed_client_id", "client-a")
+                .containsEntry("operation", "UPDATED")
+                .containsEntry("name", "Alexander").containsEntry("age", 19);
+        assertThat(rows.get(1)).containsEntry("operation", "DELETED");
+    }
+
+    @Test
+    void rejectsRowsWithoutACustomerId() {
+        // Given
+        var record = new CustomerAuditRecord(Instant.now(), "10.0.0.1", null, CREATED, null, Map.of());
+
+        // When
+        var thrown = catchThrowable(() -> underTest.write(List.of(record)));
+
+        // Then
+        assertThat(thrown).hasMessageContaining("customer_audit_customer_id_not_null");
+        assertThat(JDBC_TEMPLATE.queryForObject(
+                "SELECT count(*) FROM customer_audit WHERE customer_id IS NULL AND recorded_at = ?",
+                Long.class, Timestamp.from(record.recordedAt()))).isZero();
+    }
+
+    @Test
+    void auditRowsCannotBeChangedOrRemoved() {
+        // Given
+        var customerId = System.nanoTime();
+        underTest.write(List.of(new CustomerAuditRecord(Instant.now(), "10.0.0.1", null, DELETED, customerId, Map.of())));
+
+        // Then
+        assertThatThrownBy(() -> JDBC_TEMPLATE.update("UPDATE customer_audit SET actor = 'x' WHERE customer_id = ?", customerId))
+                .hasMessageContaining("append-only");
+        assertThatThrownBy(() -> JDBC_TEMPLATE.update("DELETE FROM customer_audit WHERE customer_id = ?", customerId))
+                .hasMessageContaining("append-only");
+    }
+}
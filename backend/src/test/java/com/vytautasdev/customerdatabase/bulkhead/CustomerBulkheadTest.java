@@ -0,0 +1,114 @@
+package com.vytautasdev.customerdatabase.bulkhead;
+
+import com.vytautasdev.customerdatabase.datasource.DataSourceRole;
+import com.vytautasdev.customerdatabase.datasource.DataSourceRoutingContext;
+import com.vytautasdev.customerdatabase.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerBulkheadTest {
+
+    private final CustomerBulkhead underTest = new CustomerBulkhead(1, 1, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void runsHeavyWorkOffTheCallingThread() {
+        // Given
+        var caller = Thread.currentThread().getName();
+
+        // When
+        var result = underTest.heavy(() -> Thread.currentThread().getName());
+
+        // Then
+        eventually(() -> assertThat(result.hasResult()).isTrue());
+        assertThat((String) result.getResult()).startsWith("customer-heavy-").isNotEqualTo(caller);
+    }
+
+    @Test
+    void keepsAClientPinnedToThePrimaryOnTheWorker() {
+        // Given
+        DataSourceRoutingContext.pinToPrimary(true);
+        DeferredResult<Object> pinned;
+        try {
+            // When
+            pinned = underTest.heavy(() -> DataSourceRoutingContext.onReplica(DataSourceRoutingContext::currentRole));
+        } finally {
+            DataSourceRoutingContext.pinToPrimary(false);
+        }
+        eventually(() -> assertThat(pinned.hasResult()).isTrue());
+        var unpinned = underTest.heavy(() -> DataSourceRoutingContext.onReplica(DataSourceRoutingContext::currentRole));
+
+        // Then
+        eventually(() -> assertThat(unpinned.hasResult()).isTrue());
+        assertThat(pinned.getResult()).isEqualTo(DataSourceRole.PRIMARY);
+        assertThat(unpinned.getResult()).isEqualTo(DataSourceRole.REPLICA);
+    }
+
+    @Test
+    void passesFailuresToTheErrorResult() {
+        // When
+        var result = underTest.heavy(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        // Then
+        eventually(() -> assertThat(result.getResult()).isInstanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    void rejectsWorkWhenThreadsAndQueueAreFull() throws Exception {
+        // Given
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        underTest.heavy(() -> {
+            started.countDown();
+            await(release);
+            return 1;
+        });
+        started.await(5, TimeUnit.SECONDS);
+        underTest.heavy(() -> 2);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.heavy(() -> 3))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Too many heavy requests in progress, please retry later.");
+        assertThat(underTest.heavyQueueDepth()).isEqualTo(1);
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void eventually(Runnable assertion) {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.vytautasdev.customerdatabase.bulkhead;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Statement;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class QueryCancellationTest {
+
+    @AfterEach
+    void tearDown() {
+        QueryCancellation.unbind();
+    }
+
+    @Test
+    void cancelsTheRegisteredStatement() throws Exception {
+        // Given
+        var underTest = new QueryCancellation();
+        var statement = mock(Statement.class);
+        QueryCancellation.bind(underTest);
+        QueryCancellation.register(statement);
+
+        // When
+        underTest.cancel();
+
+        // Then
+        verify(statement).cancel();
+    }
+
+    @Test
+    void statementRegisteredAfterCancelIsCancelledImmediately() throws Exception {
+        // Given
+        var underTest = new QueryCancellation();
+        var statement = mock(Statement.class);
+        QueryCancellation.bind(underTest);
+        underTest.cancel();
+
+        // When
+        QueryCancellation.register(statement);
+
+        // Then
+        verify(statement).cancel();
+    }
+
+    @Test
+    void registerWithoutBoundCancellationDoesNothing() throws Exception {
+        // Given
+        var statement = mock(Statement.class);
+
+        // When
+        QueryCancellation.register(statement);
+
+        // Then
+        verify(statement, never()).cancel();
+    }
+}
@@ -0,0 +1,101 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent;
+import com.vytautasdev.customerdatabase.notify.CustomerChangeNotification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vytautasdev.customerdatabase.notify.CustomerChangeNotification.Operation.INSERT;
+import static com.vytautasdev.customerdatabase.notify.CustomerChangeNotification.Operation.UPDATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerCacheInvalidatorTest {
+
+    private final LocalSharedCustomerCache shared = new LocalSharedCustomerCache();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CustomerCache cache = new CustomerCache(shared, 100, Duration.ofMinutes(5), meterRegistry);
+    private final CustomerCacheInvalidator underTest = new CustomerCacheInvalidator(cache, meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void ownUpdateEvictsBothTiersRightAway() {
+        // Given
+        cache.getCustomerById(1L, this::load);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(CustomerChangedEvent.ChangeType.UPDATED, 1L, null));
+
+        // Then
+        assertThat(shared.size()).isZero();
+        cache.getCustomerById(1L, this::load);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void changeFromAnotherNodeEvictsBothTiers() {
+        // Given
+        var otherNode = new CustomerCache(shared, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        cache.getCustomerById(1L, this::load);
+        otherNode.getCustomerById(1L, this::load);
+
+        // When
+        underTest.onCustomerChange(new CustomerChangeNotification(UPDATE, 1L, Instant.now()));
+
+        // Then
+        cache.getCustomerById(1L, this::load);
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("customer.cache.invalidations").tag("source", "notification").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void recordsHowLongAfterTheWriteANotificationEvicted() {
+        // When
+        underTest.onCustomerChange(new CustomerChangeNotification(UPDATE, 1L, Instant.now().minusSeconds(2)));
+        underTest.onCustomerChange(new CustomerChangeNotification(UPDATE, 2L, Instant.now().plusSeconds(60)));
+
+        // Then
+        var lag = meterRegistry.get("customer.cache.invalidation.lag").timer();
+        assertThat(lag.count()).isEqualTo(2);
+        assertThat(lag.max(TimeUnit.SECONDS)).isBetween(2.0, 60.0);
+    }
+
+    @Test
+    void insertsAreNotInvalidated() {
+        // Given
+        cache.getCustomerById(1L, this::load);
+
+        // When
+        underTest.onCustomerChange(new CustomerChangeNotification(INSERT, 1L, Instant.now()));
+
+        // Then
+        cache.getCustomerById(1L, this::load);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void resyncDropsTheLocalTier() {
+        // Given
+        cache.getCustomerById(1L, this::load);
+
+        // When
+        underTest.onResync();
+
+        // Then
+        cache.getCustomerById(1L, this::load);
+        assertThat(meterRegistry.get("customer.cache.lookups").tag("result", "shared").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.cache.resyncs").counter().count()).isEqualTo(1);
+    }
+
+    private Optional<Customer> load(Long id) {
+        loads.incrementAndGet();
+        return Optional.of(new Customer(id, "Customer " + id, "customer" + id + "@example.com", 30));
+    }
+}
@@ -0,0 +1,138 @@
+package com.vytautasdev.customerdatabase.cache;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.datasource.DataSourceRole;
+import com.vytautasdev.customerdatabase.datasource.DataSourceRoutingContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerCacheTest {
+
+    private final LocalSharedCustomerCache shared = new LocalSharedCustomerCache();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CustomerCache underTest = new CustomerCache(shared, 100, Duration.ofMinutes(5), meterRegistry);
+
+    @Test
+    void loadsOnceThenAnswersFromTheLocalTier() {
+        // Given
+        var loads = new AtomicInteger();
+
+        // When
+        underTest.getCustomerById(1L, id -> load(loads, id));
+        var second = underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // Then
+        assertThat(second).contains(customer(1L));
+        assertThat(loads).hasValue(1);
+        assertThat(shared.get(1L)).contains(customer(1L));
+        assertThat(underTest.hitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void anotherNodesLoadIsServedFromTheSharedTier() {
+        // Given
+        var loads = new AtomicInteger();
+        var otherNode = new CustomerCache(shared, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        otherNode.getCustomerById(1L, id -> load(loads, id));
+
+        // When
+        var actual = underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // Then
+        assertThat(actual).contains(customer(1L));
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("customer.cache.lookups").tag("result", "shared").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void fillsFromThePrimaryEvenWhenTheLoaderPrefersALaggingReplica() {
+        // Given
+        var stale = new Customer(1L, "Before update", "customer1@example.com", 30);
+        Function<Long, Optional<Customer>> loader = id -> DataSourceRoutingContext.onReplica(() ->
+                DataSourceRoutingContext.currentRole() == DataSourceRole.PRIMARY ? Optional.of(customer(id)) : Optional.of(stale));
+
+        // When
+        var loaded = underTest.getCustomerById(1L, loader);
+        var cached = underTest.getCustomerById(1L, loader);
+
+        // Then
+        assertThat(loaded).contains(customer(1L));
+        assertThat(cached).contains(customer(1L));
+        assertThat(shared.get(1L)).contains(customer(1L));
+        assertThat(DataSourceRoutingContext.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void callersGetTheirOwnCopy() {
+        // Given
+        underTest.getCustomerById(1L, id -> Optional.of(customer(id))).orElseThrow().setName("Changed");
+
+        // When
+        var actual = underTest.getCustomerById(1L, id -> Optional.of(customer(id)));
+
+        // Then
+        assertThat(actual.orElseThrow().getName()).isEqualTo("Customer 1");
+    }
+
+    @Test
+    void invalidateDropsBothTiers() {
+        // Given
+        var loads = new AtomicInteger();
+        underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // When
+        underTest.invalidate(1L);
+        underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() {
+        // Given
+        var loads = new AtomicInteger();
+
+        // When
+        underTest.getCustomerById(1L, id -> {
+            // the row changes on another node while this load is reading the old version
+            underTest.evictLocal(id);
+            return load(loads, id);
+        });
+        underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void clearLocalKeepsTheSharedTier() {
+        // Given
+        var loads = new AtomicInteger();
+        underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // When
+        underTest.clearLocal();
+        underTest.getCustomerById(1L, id -> load(loads, id));
+
+        // Then
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("customer.cache.lookups").tag("result", "shared").counter().count()).isEqualTo(1);
+    }
+
+    private static Optional<Customer> load(AtomicInteger loads, Long id) {
+        loads.incrementAndGet();
+        return Optional.of(customer(id));
+    }
+
+    private static Customer customer(Long id) {
+        return new Customer(id, "Customer " + id, "customer" + id + "@example.com", 30);
+    }
+}
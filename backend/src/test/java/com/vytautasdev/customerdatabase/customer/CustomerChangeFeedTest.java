@@ -0,0 +1,169 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import com.vytautasdev.customerdatabase.exception.ResourceGoneException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class CustomerChangeFeedTest extends AbstractTestcontainers {
+
+    private CustomerChangeFeed underTest;
+    private CustomerJDBCDataAccessService customerDao;
+
+    @BeforeEach
+    void setUp() {
+        var jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerChangeFeed(
+                jdbcTemplate,
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()),
+                Duration.ofDays(7)
+        );
+        customerDao = new CustomerJDBCDataAccessService(
+                jdbcTemplate, new CustomerRowMapper(), new CustomerSyncChangeRowMapper(),
+                CustomerQueryTimeouts.defaults());
+    }
+
+    @Test
+    void recordsInsertUpdateAndDeleteInOrder() {
+        // Given
+        underTest.relay();
+        var head = latestPosition();
+
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerDao.addCustomer(new Customer(FAKER.name().fullName(), email, 20));
+        var id = customerDao.getAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        customerDao.updateCustomer(new Customer(id, null, null, 21));
+        customerDao.deleteCustomerById(id);
+
+        // When
+        underTest.relay();
+        var page = underTest.read(head, 100);
+
+        // Then
+        assertThat(page.changes())
+                .filteredOn(change -> change.customerId().equals(id))
+                .extracting(CustomerChange::operation)
+                .containsExactly("INSERT", "UPDATE", "DELETE");
+        assertThat(page.changes())
+                .filteredOn(change -> change.customerId().equals(id) && change.operation().equals("UPDATE"))
+                .singleElement()
+                .satisfies(change -> assertThat(change.customer().getAge()).isEqualTo(21));
+        assertThat(page.nextPosition()).isGreaterThan(head);
+    }
+
+    @Test
+    void purgeKeepsTheNewestPosition() {
+        // Given
+        customerDao.addCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20));
+        underTest.relay();
+        var head = latestPosition();
+        var purgeEverything = new CustomerChangeFeed(
+                getJdbcTemplate(),
+                new DataSourceTransactionManager(getJdbcTemplate().getDataSource()),
+                Duration.ofSeconds(-1)
+        );
+
+        // When
+        purgeEverything.purge();
+
+        // Then
+        assertThat(latestPosition()).isEqualTo(head);
+    }
+
+    @Test
+    void rejectsPositionsWhoseNextChangesWerePurged() {
+        // Given
+        for (int i = 0; i < 2; i++) {
+            customerDao.addCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20));
+        }
+        underTest.relay();
+        var head = latestPosition();
+        new CustomerChangeFeed(
+                getJdbcTemplate(),
+                new DataSourceTransactionManager(getJdbcTemplate().getDataSource()),
+                Duration.ofSeconds(-1)
+        ).purge();
+
+        // When
+        var behindThePurge = catchThrowable(() -> underTest.read(head - 2, 100));
+        var rightAfterIt = underTest.read(head - 1, 100);
+
+        // Then
+        assertThat(behindThePurge)
+                .isInstanceOf(ResourceGoneException.class)
+                .hasMessageContaining("[%s] were purged".formatted(head - 2));
+        assertThat(rightAfterIt.changes()).extracting(CustomerChange::position).containsExactly(head);
+    }
+
+    @Test
+    void unsequencedRowsAreNotServed() {
+        // Given
+        underTest.relay();
+        var head = latestPosition();
+
+        // When
+        customerDao.addCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20));
+
+        // Then
+        assertThat(underTest.read(head, 100).changes()).isEmpty();
+    }
+
+    @Test
+    void pollIsWokenByARelayThatRunsWhileItReads() {
+        // Given
+        underTest.relay();
+        var head = latestPosition();
+        var relayedDuringRead = new AtomicBoolean();
+        var jdbcTemplate = getJdbcTemplate();
+        var feed = new CustomerChangeFeed(
+                jdbcTemplate, new DataSourceTransactionManager(jdbcTemplate.getDataSource()), Duration.ofDays(7)) {
+            @Override
+            public CustomerChangeFeedPage read(long afterPosition, int limit) {
+                var page = super.read(afterPosition, limit);
+                if (relayedDuringRead.compareAndSet(false, true)) {
+                    customerDao.addCustomer(new Customer(
+                            FAKER.name().fullName(),
+                            FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                            20));
+                    relay();
+                }
+                return page;
+            }
+        };
+
+        // When
+        var result = feed.poll(head, 100, Duration.ofSeconds(30));
+
+        // Then
+        assertThat(result.hasResult()).isTrue();
+        assertThat(((CustomerChangeFeedPage) result.getResult()).changes()).isNotEmpty();
+    }
+
+    private long latestPosition() {
+        var position = getJdbcTemplate().queryForObject(
+                "SELECT coalesce(max(position), 0) FROM customer_outbox", Long.class);
+        return position == null ? 0 : position;
+    }
+}
@@ -0,0 +1,136 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.CREATED;
+import static com.vytautasdev.customerdatabase.customer.CustomerChangedEvent.ChangeType.UPDATED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerEventBroadcasterTest {
+
+    private CustomerEventBroadcaster underTest;
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void fansOutEventsToEverySubscriber() throws Exception {
+        // Given
+        underTest = broadcaster(CustomerEventBroadcaster.SlowConsumerPolicy.RESYNC, 16);
+        var first = new RecordingSink();
+        var second = new RecordingSink();
+        underTest.subscribe(first);
+        underTest.subscribe(second);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(CREATED, 1L, new Customer(1L, "Alex", "alex@gmail.com", 19)));
+
+        // Then
+        eventually(() -> {
+            assertThat(first.names).containsExactly("CREATED");
+            assertThat(second.names).containsExactly("CREATED");
+        });
+        assertThat(first.data.get(0)).contains("\"customerId\":1");
+    }
+
+    @Test
+    void slowSubscriberIsToldToResyncWithoutBlockingOthers() throws Exception {
+        // Given
+        underTest = broadcaster(CustomerEventBroadcaster.SlowConsumerPolicy.RESYNC, 2);
+        var release = new CountDownLatch(1);
+        var slow = new RecordingSink(release);
+        var fast = new RecordingSink();
+        underTest.subscribe(slow);
+        underTest.subscribe(fast);
+
+        // When
+        for (long id = 1; id <= 10; id++) {
+            underTest.onCustomerChanged(new CustomerChangedEvent(UPDATED, id, null));
+            // paced so only the blocked subscriber falls behind
+            Thread.sleep(20);
+        }
+        eventually(() -> assertThat(fast.names).hasSize(10));
+        release.countDown();
+
+        // Then
+        eventually(() -> assertThat(slow.names).contains(CustomerEventBroadcaster.RESYNC_EVENT));
+        assertThat(slow.names.size()).isLessThan(10);
+    }
+
+    @Test
+    void slowSubscriberIsDisconnectedUnderDropPolicy() {
+        // Given
+        underTest = broadcaster(CustomerEventBroadcaster.SlowConsumerPolicy.DROP, 1);
+        var slow = new RecordingSink(new CountDownLatch(1));
+        underTest.subscribe(slow);
+
+        // When
+        for (long id = 1; id <= 5; id++) {
+            underTest.onCustomerChanged(new CustomerChangedEvent(UPDATED, id, null));
+        }
+
+        // Then
+        assertThat(underTest.subscriberCount()).isZero();
+        assertThat(slow.closed).isTrue();
+    }
+
+    private static void eventually(Runnable assertion) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static CustomerEventBroadcaster broadcaster(CustomerEventBroadcaster.SlowConsumerPolicy policy, int bufferSize) {
+        return new CustomerEventBroadcaster(new ObjectMapper(), bufferSize, policy, Duration.ofMinutes(1), 2);
+    }
+
+    private static class RecordingSink implements CustomerEventBroadcaster.EventSink {
+        private final List<String> names = new CopyOnWriteArrayList<>();
+        private final List<String> data = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private volatile boolean closed;
+
+        RecordingSink() {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingSink(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(String name, String data) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            names.add(name);
+            this.data.add(data);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
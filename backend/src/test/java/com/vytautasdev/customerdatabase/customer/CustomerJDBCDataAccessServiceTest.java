@@ -3,10 +3,14 @@ package com.vytautasdev.customerdatabase.customer;
 import com.vytautasdev.customerdatabase.AbstractTestcontainers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
@@ -17,7 +21,9 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
     void setUp() {
         underTest = new CustomerJDBCDataAccessService(
                 getJdbcTemplate(),
-                customerRowMapper
+                customerRowMapper,
+                new CustomerSyncChangeRowMapper(),
+                CustomerQueryTimeouts.defaults()
         );
     }
 
@@ -80,13 +86,98 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
     }
 
+    @Test
+    void getCustomersByIds() {
+        // Given
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        var customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        );
+        underTest.addCustomer(customer);
+        var id = underTest.getAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        var actual = underTest.getCustomersByIds(List.of(id, -1L));
+
+        // Then
+        assertThat(actual).hasSize(1).first().satisfies(c -> {
+            assertThat(c.getId()).isEqualTo(id);
+            assertThat(c.getEmail()).isEqualTo(email);
+        });
+    }
+
+    @Test
+    void getCustomersAfterIdPagesInIdOrder() {
+        // Given
+        var added = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            var customer = new Customer(
+                    FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20);
+            underTest.addCustomer(customer);
+            added.add(customer.getId());
+        }
+
+        // When
+        var firstPage = underTest.getCustomersAfterId(added.get(0) - 1, 2);
+        var nextPage = underTest.getCustomersAfterId(firstPage.get(1).getId(), 2);
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(added.get(0), added.get(1));
+        assertThat(nextPage).extracting(Customer::getId).containsExactly(added.get(2));
+    }
+
+    @Test
+    void willThrowWhenAddingCustomerWithTakenEmail() {
+        // Given
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.addCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.addCustomer(new Customer(FAKER.name().fullName(), email, 30)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void getCustomerByIdScansASinglePartition() {
+        // Given
+        var sql = """
+                EXPLAIN SELECT id, name, email, age
+                FROM customer
+                WHERE id = ?
+                """;
+
+        // When
+        var plan = getJdbcTemplate().queryForList(sql, String.class, 42L);
+
+        // Then
+        assertThat(plan)
+                .filteredOn(line -> line.contains(" on customer_p"))
+                .hasSize(1);
+    }
+
     @Test
     void addCustomer() {
         // Given
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        var customer = new Customer(FAKER.name().fullName(), email, 20);
 
         // When
+        underTest.addCustomer(customer);
 
         // Then
+        assertThat(customer.getId()).isNotNull();
+        assertThat(underTest.getCustomerById(customer.getId()))
+                .get()
+                .extracting(Customer::getEmail)
+                .isEqualTo(email);
     }
 
     @Test
@@ -111,6 +202,31 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
     }
 
+    @Test
+    void existsCustomerWithEmailIgnoresCaseAndSurroundingSpaces() {
+        // Given
+        var email = "Case." + UUID.randomUUID() + "@Example.com";
+        underTest.addCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        var actual = underTest.existsCustomerWithEmail("  " + email.toLowerCase() + " ");
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void addCustomerRejectsEmailDifferingOnlyInCase() {
+        // Given
+        var email = "case." + UUID.randomUUID() + "@example.com";
+        underTest.addCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.addCustomer(new Customer(FAKER.name().fullName(), email.toUpperCase(), 20)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
     @Test
     void existsCustomerWithEmailReturnsFalseWhenDoesNotExist() {
         // Given
@@ -388,4 +504,78 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
             assertThat(c.getEmail()).isEqualTo(customer.getEmail());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCustomerChangesSinceIncludesUpdatesAndTombstones() {
+        // Given
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.addCustomer(new Customer(FAKER.name().fullName(), email, 20));
+        var id = underTest.getAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        var afterInsert = lastCursor(underTest.getCustomerChangesSince(CustomerSyncCursor.START, Integer.MAX_VALUE));
+
+        // When
+        underTest.updateCustomer(new Customer(id, null, null, 21));
+        var afterUpdate = underTest.getCustomerChangesSince(afterInsert, 100);
+        underTest.deleteCustomerById(id);
+        var afterDelete = underTest.getCustomerChangesSince(lastCursor(afterUpdate), 100);
+
+        // Then
+        assertThat(afterUpdate).singleElement().satisfies(change -> {
+            assertThat(change.deleted()).isFalse();
+            assertThat(change.customer().getAge()).isEqualTo(21);
+        });
+        assertThat(afterDelete).singleElement().satisfies(change -> {
+            assertThat(change.id()).isEqualTo(id);
+            assertThat(change.deleted()).isTrue();
+            assertThat(change.customer()).isNull();
+        });
+    }
+
+    @Test
+    void getCustomerStatsReadsRefreshedViews() {
+        // Given
+        var domain = UUID.randomUUID() + ".example";
+        for (int i = 0; i < 2; i++) {
+            underTest.addCustomer(new Customer(FAKER.name().fullName(), "c" + i + "@" + domain, 30));
+        }
+        List.of("customer_stats_summary", "customer_age_distribution", "customer_email_domain_counts")
+                .forEach(view -> getJdbcTemplate().execute("REFRESH MATERIALIZED VIEW " + view));
+        var total = getJdbcTemplate().queryForObject("SELECT count(*) FROM customer", Long.class);
+
+        // When
+        var actual = underTest.getCustomerStats(100);
+
+        // Then
+        assertThat(actual.totalCustomers()).isEqualTo(total);
+        assertThat(actual.ageDistribution()).hasSize(7);
+        assertThat(actual.ageDistribution().stream().mapToLong(AgeBucketCount::count).sum()).isEqualTo(total);
+        assertThat(actual.topEmailDomains()).contains(new EmailDomainCount(domain, 2));
+        assertThat(actual.asOf()).isNotNull();
+    }
+
+    @Test
+    void getCustomerStatsIsEmptyBeforeTheFirstRefresh() {
+        // Given
+        getJdbcTemplate().execute("REFRESH MATERIALIZED VIEW customer_stats_summary WITH NO DATA");
+
+        // When
+        CustomerStats actual;
+        try {
+            actual = underTest.getCustomerStats(100);
+        } finally {
+            getJdbcTemplate().execute("REFRESH MATERIALIZED VIEW customer_stats_summary");
+        }
+
+        // Then
+        assertThat(actual).isEqualTo(CustomerStats.EMPTY);
+    }
+
+    private static CustomerSyncCursor lastCursor(List<CustomerSyncChange> changes) {
+        return changes.get(changes.size() - 1).cursor();
+    }
+}
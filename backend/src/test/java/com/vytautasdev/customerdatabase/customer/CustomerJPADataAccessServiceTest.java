@@ -6,6 +6,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
@@ -50,16 +54,39 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findById(id);
     }
 
+    @Test
+    void getCustomersByIds() {
+        // Given
+        var ids = List.of(1L, 2L);
+
+        // When
+        underTest.getCustomersByIds(ids);
+
+        // Then
+        verify(customerRepository).findAllById(ids);
+    }
+
+    @Test
+    void getCustomersAfterId() {
+        // When
+        underTest.getCustomersAfterId(5L, 10);
+
+        // Then
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(5L, PageRequest.ofSize(10));
+    }
+
     @Test
     void addCustomer() {
         // Given
-        var customer = new Customer(1L, "Ali", "ali@gmail.com", 2);
+        var customer = new Customer("Ali", "ali@gmail.com", 2);
+        Mockito.when(customerRepository.save(customer)).thenReturn(new Customer(1L, "Ali", "ali@gmail.com", 2));
 
         // When
         underTest.addCustomer(customer);
 
         // Then
         verify(customerRepository).save(customer);
+        assertEquals(1L, customer.getId());
     }
 
     @Test
@@ -71,7 +98,7 @@ class CustomerJPADataAccessServiceTest {
         underTest.existsCustomerWithEmail(email);
 
         // Then
-        verify(customerRepository).existsCustomerByEmail(email);
+        verify(customerRepository).existsCustomerWithNormalizedEmail(email);
     }
 
     @Test
@@ -98,6 +125,60 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).deleteById(id);
     }
 
+    @Test
+    void getCustomerChangesSince() {
+        // Given
+        var cursor = new CustomerSyncCursor(5L, 7L);
+
+        // When
+        underTest.getCustomerChangesSince(cursor, 10);
+
+        // Then
+        verify(customerRepository).findChangesSince(5L, 7L, 10);
+    }
+
+    @Test
+    void getCustomerStats() {
+        // Given
+        var refreshedAt = Instant.parse("2023-10-01T10:15:30Z");
+        var summary = Mockito.mock(CustomerRepository.CustomerStatsSummaryView.class);
+        Mockito.when(summary.getTotalCustomers()).thenReturn(3L);
+        Mockito.when(summary.getRefreshedAt()).thenReturn(refreshedAt);
+        var bucket = Mockito.mock(CustomerRepository.AgeBucketView.class);
+        Mockito.when(bucket.getAgeRange()).thenReturn("18-24");
+        Mockito.when(bucket.getCustomerCount()).thenReturn(3L);
+        var domain = Mockito.mock(CustomerRepository.EmailDomainView.class);
+        Mockito.when(domain.getDomain()).thenReturn("gmail.com");
+        Mockito.when(domain.getCustomerCount()).thenReturn(3L);
+        Mockito.when(customerRepository.areStatsViewsPopulated()).thenReturn(true);
+        Mockito.when(customerRepository.findStatsSummary()).thenReturn(summary);
+        Mockito.when(customerRepository.findAgeDistribution()).thenReturn(List.of(bucket));
+        Mockito.when(customerRepository.findTopEmailDomains(5)).thenReturn(List.of(domain));
+
+        // When
+        var actual = underTest.getCustomerStats(5);
+
+        // Then
+        assertEquals(new CustomerStats(
+                3L,
+                List.of(new AgeBucketCount("18-24", 3L)),
+                List.of(new EmailDomainCount("gmail.com", 3L)),
+                refreshedAt), actual);
+    }
+
+    @Test
+    void getCustomerStatsIsEmptyUntilTheViewsArePopulated() {
+        // Given
+        Mockito.when(customerRepository.areStatsViewsPopulated()).thenReturn(false);
+
+        // When
+        var actual = underTest.getCustomerStats(5);
+
+        // Then
+        assertEquals(CustomerStats.EMPTY, actual);
+        Mockito.verify(customerRepository, Mockito.never()).findStatsSummary();
+    }
+
     @Test
     void updateCustomer() {
         // Given
@@ -0,0 +1,244 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import com.vytautasdev.customerdatabase.journal.CustomerJournal;
+import com.vytautasdev.customerdatabase.store.CustomerQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CustomerListDataAccessServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void inMemoryStartsWithTheSampleCustomersAndAssignsTheNextId() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+        var customer = new Customer("Alex", "alex@gmail.com", 19);
+
+        // When
+        underTest.addCustomer(customer);
+
+        // Then
+        assertThat(customer.getId()).isEqualTo(3L);
+        assertThat(underTest.getAllCustomers()).extracting(Customer::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void updateReplacesTheCustomerInsteadOfAddingAnother() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+
+        // When
+        underTest.updateCustomer(new Customer(1L, "Johnny", "Doe", 29));
+
+        // Then
+        assertThat(underTest.getAllCustomers()).hasSize(2);
+        assertThat(underTest.getCustomerById(1L)).get().extracting(Customer::getName).isEqualTo("Johnny");
+    }
+
+    @Test
+    void callersCannotChangeStoredCustomersWithoutAnUpdate() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+
+        // When
+        underTest.getCustomerById(1L).orElseThrow().setName("Changed");
+
+        // Then
+        assertThat(underTest.getCustomerById(1L)).get().extracting(Customer::getName).isEqualTo("John");
+    }
+
+    @Test
+    void findCustomersFiltersTheStoredCustomers() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+        underTest.addCustomer(new Customer("Alex", "alex@gmail.com", 19));
+        underTest.addCustomer(new Customer("Alexandra", "alexandra@outlook.com", 34));
+
+        // When
+        var found = underTest.findCustomers(new CustomerQuery(18, 30, "alex", "gmail.com"));
+
+        // Then
+        assertThat(found).extracting(Customer::getName).containsExactly("Alex");
+    }
+
+    @Test
+    void getCustomersAfterIdPagesInIdOrder() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+        underTest.addCustomer(new Customer(7L, "Alex", "alex@gmail.com", 19));
+        underTest.addCustomer(new Customer(4L, "Jamie", "jamie@gmail.com", 30));
+        underTest.deleteCustomerById(2L);
+
+        // When
+        var firstPage = underTest.getCustomersAfterId(0, 2);
+        var lastPage = underTest.getCustomersAfterId(firstPage.get(1).getId(), 2);
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(1L, 4L);
+        assertThat(lastPage).extracting(Customer::getId).containsExactly(7L);
+    }
+
+    @Test
+    void getCustomerChangesSincePagesThroughUpdatesAndTombstones() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+        var alex = new Customer("Alex", "alex@gmail.com", 19);
+        underTest.addCustomer(alex);
+        var afterInsert = lastCursor(underTest.getCustomerChangesSince(CustomerSyncCursor.START, 100));
+
+        // When
+        underTest.updateCustomer(new Customer(1L, "Johnny", "Doe", 29));
+        underTest.deleteCustomerById(alex.getId());
+        var firstPage = underTest.getCustomerChangesSince(afterInsert, 1);
+        var secondPage = underTest.getCustomerChangesSince(lastCursor(firstPage), 1);
+        var lastPage = underTest.getCustomerChangesSince(lastCursor(secondPage), 1);
+
+        // Then
+        assertThat(firstPage).extracting(CustomerSyncChange::id, change -> change.customer().getName())
+                .containsExactly(tuple(1L, "Johnny"));
+        assertThat(secondPage).extracting(CustomerSyncChange::id, CustomerSyncChange::deleted, CustomerSyncChange::customer)
+                .containsExactly(tuple(alex.getId(), true, null));
+        assertThat(lastPage).isEmpty();
+    }
+
+    @Test
+    void getCustomerChangesSinceRejectsCursorsFromBeforeARestart() throws Exception {
+        // Given
+        var underTest = journaled(0);
+        underTest.addCustomer(new Customer("Alex", "alex@gmail.com", 19));
+        var cursor = lastCursor(underTest.getCustomerChangesSince(CustomerSyncCursor.START, 100));
+        underTest.addCustomer(new Customer("Jamila", "jamila@gmail.com", 25));
+        underTest.destroy();
+        var restarted = journaled(0);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> restarted.getCustomerChangesSince(cursor, 100))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Sync cursor [%s] is outside the retained change history, sync again from 0.".formatted(cursor));
+        assertThat(restarted.getCustomerChangesSince(CustomerSyncCursor.START, 100))
+                .extracting(change -> change.customer().getName())
+                .containsExactly("Alex", "Jamila");
+        restarted.destroy();
+    }
+
+    @Test
+    void getCustomerStatsCountsTheStoredCustomers() {
+        // Given
+        var underTest = new CustomerListDataAccessService();
+        underTest.addCustomer(new Customer("Alex", "alex@Gmail.com", 17));
+        underTest.addCustomer(new Customer("Jamila", "jamila@gmail.com", 70));
+        underTest.addCustomer(new Customer("Ana", "ana@outlook.com", 30));
+        underTest.deleteCustomerById(2L);
+
+        // When
+        var actual = underTest.getCustomerStats(2);
+
+        // Then
+        assertThat(actual.totalCustomers()).isEqualTo(4);
+        assertThat(actual.ageDistribution()).extracting(AgeBucketCount::range, AgeBucketCount::count).containsExactly(
+                tuple("0-17", 1L), tuple("18-24", 0L), tuple("25-34", 2L), tuple("35-44", 0L),
+                tuple("45-54", 0L), tuple("55-64", 0L), tuple("65+", 1L));
+        // the sample customers have no @ in their emails
+        assertThat(actual.topEmailDomains()).containsExactly(
+                new EmailDomainCount("gmail.com", 2), new EmailDomainCount("", 1));
+    }
+
+    @Test
+    void journaledCustomersSurviveARestart() throws Exception {
+        // Given
+        var underTest = journaled(0);
+        var alex = new Customer("Alex", "alex@gmail.com", 19);
+        var jamila = new Customer("Jamila", "jamila@gmail.com", 25);
+        underTest.addCustomer(alex);
+        underTest.addCustomer(jamila);
+        underTest.updateCustomer(new Customer(alex.getId(), "Alexander", "alex@gmail.com", 20));
+        underTest.deleteCustomerById(jamila.getId());
+        underTest.destroy();
+
+        // When
+        var restarted = journaled(0);
+        var ana = new Customer("Ana", "ana@gmail.com", 31);
+        restarted.addCustomer(ana);
+
+        // Then
+        assertThat(restarted.getAllCustomers())
+                .extracting(Customer::getName)
+                .containsExactly("Alexander", "Ana");
+        assertThat(ana.getId()).isEqualTo(3L);
+        restarted.destroy();
+    }
+
+    @Test
+    void rejectedWritesNeverReachTheJournal() throws Exception {
+        // Given
+        // segments big enough that the journal itself would take the record
+        var underTest = new CustomerListDataAccessService(directory, 1024 * 1024, CustomerJournal.SyncMode.GROUP,
+                Duration.ZERO, Long.MAX_VALUE, 0);
+        var alex = new Customer("Alex", "alex@gmail.com", 19);
+        underTest.addCustomer(alex);
+        var tooLong = "x".repeat(70_000);
+
+        // When
+        assertThatThrownBy(() -> underTest.addCustomer(new Customer(tooLong, "long@gmail.com", 20)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> underTest.updateCustomer(new Customer(alex.getId(), tooLong, "alex@gmail.com", 19)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Then
+        // recovering from a copy taken while running replays the journal, as after a crash, instead of loading
+        // the snapshot destroy() writes
+        var crashed = Files.createDirectory(directory.resolve("crashed"));
+        try (var files = Files.list(directory)) {
+            for (var file : files.filter(Files::isRegularFile).toList()) {
+                Files.copy(file, crashed.resolve(file.getFileName()));
+            }
+        }
+        underTest.destroy();
+        var recovered = new CustomerListDataAccessService(crashed, 1024 * 1024, CustomerJournal.SyncMode.GROUP,
+                Duration.ZERO, Long.MAX_VALUE, 0);
+        assertThat(recovered.getAllCustomers()).extracting(Customer::getName).containsExactly("Alex");
+        recovered.destroy();
+    }
+
+    @Test
+    void compactsTheJournalOnceItGrowsPastTheThreshold() throws Exception {
+        // Given
+        var underTest = journaled(4096);
+
+        // When
+        for (int i = 0; i < 500; i++) {
+            underTest.addCustomer(new Customer("Customer " + i, "customer" + i + "@gmail.com", 30));
+        }
+        underTest.destroy();
+
+        // Then
+        try (var files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.getFileName().toString().startsWith("snapshot-"))).hasSize(1);
+        }
+        var restarted = journaled(4096);
+        assertThat(restarted.getAllCustomers()).hasSize(500);
+        restarted.destroy();
+    }
+
+    private static CustomerSyncCursor lastCursor(List<CustomerSyncChange> changes) {
+        return changes.get(changes.size() - 1).cursor();
+    }
+
+    private CustomerListDataAccessService journaled(long compactAfterBytes) {
+        return new CustomerListDataAccessService(directory, 64 * 1024, CustomerJournal.SyncMode.GROUP, Duration.ZERO,
+                compactAfterBytes == 0 ? Long.MAX_VALUE : compactAfterBytes, 0);
+    }
+}
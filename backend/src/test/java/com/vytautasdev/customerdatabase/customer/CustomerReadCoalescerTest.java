@@ -0,0 +1,96 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerReadCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerReadCoalescer underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerReadCoalescer(meterRegistry);
+    }
+
+    @Test
+    void thunderingHerdOnTheSameIdSharesQueries() throws Exception {
+        // Given
+        var callers = 200;
+        var queries = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var customer = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        var executor = Executors.newFixedThreadPool(callers);
+
+        // When
+        var results = new ArrayList<Future<Optional<Customer>>>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return underTest.getCustomerById(1L, id -> {
+                    queries.incrementAndGet();
+                    sleep(50);
+                    return Optional.of(customer);
+                });
+            }));
+        }
+        start.countDown();
+        for (var result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).contains(customer);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(queries.get()).isLessThan(callers / 10);
+        assertThat(meterRegistry.get("customer.read.lookups").counter().count()).isEqualTo(callers);
+        assertThat(underTest.coalescingRatio()).isGreaterThan(0.9);
+    }
+
+    @Test
+    void sequentialLookupsAreNotCoalesced() {
+        // Given
+        var queries = new AtomicInteger();
+
+        // When
+        underTest.getCustomerById(1L, id -> {
+            queries.incrementAndGet();
+            return Optional.empty();
+        });
+        underTest.getCustomerById(1L, id -> {
+            queries.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // Then
+        assertThat(queries.get()).isEqualTo(2);
+        assertThat(underTest.coalescingRatio()).isZero();
+    }
+
+    @Test
+    void loaderFailureIsPropagated() {
+        assertThatThrownBy(() -> underTest.getCustomerById(1L, id -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
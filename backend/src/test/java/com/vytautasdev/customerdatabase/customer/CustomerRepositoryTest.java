@@ -7,6 +7,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.UUID;
 
@@ -47,6 +49,20 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
         assertThat(actual).isTrue();
     }
 
+    @Test
+    void existsCustomerWithNormalizedEmail() {
+        // Given
+        var email = "Mixed." + UUID.randomUUID() + "@Example.com";
+        underTest.save(new Customer(FAKER.name().fullName(), email, 20));
+        underTest.flush();
+
+        // When
+        var actual = underTest.existsCustomerWithNormalizedEmail(email.toLowerCase());
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
     @Test
     void existsCustomerByEmailFailsWhenEmailNotPresent() {
         // Given
@@ -97,4 +113,60 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
         // Then
         assertThat(actual).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findChangesSinceHoldsBackUncommittedChanges() {
+        // Given
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.save(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        // the test transaction is still open, so its insert must not be handed out yet
+        var actual = underTest.findChangesSince(0, 0, Integer.MAX_VALUE);
+
+        // Then
+        assertThat(actual)
+                .noneMatch(change -> email.equals(change.getEmail()));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void findChangesSinceReturnsCommittedChanges() {
+        // Given
+        var email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        var saved = underTest.save(new Customer(FAKER.name().fullName(), email, 20));
+
+        // When
+        var actual = underTest.findChangesSince(0, 0, Integer.MAX_VALUE);
+
+        // Then
+        assertThat(actual)
+                .filteredOn(change -> email.equals(change.getEmail()))
+                .singleElement()
+                .satisfies(change -> {
+                    assertThat(change.getId()).isEqualTo(saved.getId());
+                    assertThat(change.getDeleted()).isFalse();
+                    assertThat(change.getChangedAt()).isNotNull();
+                    assertThat(change.getChangeTxid()).isPositive();
+                });
+        underTest.deleteById(saved.getId());
+    }
+
+    @Test
+    void findStatsFromMaterializedViews() {
+        // When
+        var populated = underTest.areStatsViewsPopulated();
+        var summary = underTest.findStatsSummary();
+        var ageDistribution = underTest.findAgeDistribution();
+        var topEmailDomains = underTest.findTopEmailDomains(3);
+
+        // Then
+        assertThat(populated).isTrue();
+        assertThat(summary.getTotalCustomers()).isNotNegative();
+        assertThat(summary.getRefreshedAt()).isNotNull();
+        assertThat(ageDistribution)
+                .extracting(CustomerRepository.AgeBucketView::getAgeRange)
+                .containsExactly("0-17", "18-24", "25-34", "35-44", "45-54", "55-64", "65+");
+        assertThat(topEmailDomains).hasSizeLessThanOrEqualTo(3);
+    }
+}
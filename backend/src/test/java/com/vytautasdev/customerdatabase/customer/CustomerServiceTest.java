@@ -1,8 +1,13 @@
 package com.vytautasdev.customerdatabase.customer;
 
+import com.vytautasdev.customerdatabase.audit.CustomerAuditLog;
+import com.vytautasdev.customerdatabase.audit.CustomerAuditRecord.FieldChange;
+import com.vytautasdev.customerdatabase.cache.CustomerCache;
+import com.vytautasdev.customerdatabase.cache.LocalSharedCustomerCache;
 import com.vytautasdev.customerdatabase.exception.DuplicateResourceException;
 import com.vytautasdev.customerdatabase.exception.RequestValidationException;
 import com.vytautasdev.customerdatabase.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,8 +15,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -23,11 +37,21 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDao customerDao;
+    @Mock
+    private CustomerAuditLog auditLog;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDao);
+        underTest = new CustomerService(
+                customerDao,
+                CustomerWriteBatcher.direct(customerDao),
+                new CustomerReadCoalescer(new SimpleMeterRegistry()),
+                new CustomerCache(new LocalSharedCustomerCache(), 100, Duration.ofMinutes(5), new SimpleMeterRegistry()),
+                auditLog,
+                eventPublisher);
     }
 
     @AfterEach
@@ -57,6 +81,68 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(customer);
     }
 
+    @Test
+    void repeatedGetCustomerIsServedFromCache() {
+        // Given
+        var id = 10L;
+        when(customerDao.getCustomerById(id)).thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)));
+        underTest.getCustomer(id);
+
+        // When
+        var actual = underTest.getCustomer(id);
+
+        // Then
+        assertThat(actual.getName()).isEqualTo("Alex");
+        verify(customerDao, times(1)).getCustomerById(id);
+    }
+
+    @Test
+    void updateReadsTheCurrentRowInsteadOfTheCachedOne() {
+        // Given
+        var id = 10L;
+        when(customerDao.getCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)))
+                .thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 20)));
+        underTest.getCustomer(id);
+
+        // When
+        underTest.updateCustomer(id, new CustomerUpdateRequest("Alexander", null, null));
+
+        // Then
+        var captor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDao).updateCustomer(captor.capture());
+        assertThat(captor.getValue().getAge()).isEqualTo(20);
+    }
+
+    @Test
+    void updateAuditsTheFieldsItChanged() {
+        // Given
+        var id = 10L;
+        when(customerDao.getCustomerById(id)).thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)));
+
+        // When
+        underTest.updateCustomer(id, new CustomerUpdateRequest("Alexander", "alex@gmail.com", 20));
+
+        // Then
+        verify(auditLog).record(CustomerChangedEvent.ChangeType.UPDATED, id, Map.of(
+                "name", new FieldChange("Alex", "Alexander"),
+                "age", new FieldChange(19, 20)));
+    }
+
+    @Test
+    void rejectedUpdateIsNotAudited() {
+        // Given
+        var id = 10L;
+        when(customerDao.getCustomerById(id)).thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)));
+
+        // When
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", null, null)))
+                .isInstanceOf(RequestValidationException.class);
+
+        // Then
+        verifyNoInteractions(auditLog);
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnEmptyOptional() {
         // Given
@@ -69,6 +155,94 @@ class CustomerServiceTest {
                 .hasMessage("Customer with id [%s] not found.".formatted(id));
     }
 
+    @Test
+    void canGetCustomersInRequestOrderReportingMissingIds() {
+        // Given
+        var alex = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        var jamila = new Customer(3L, "Jamila", "jamila@gmail.com", 21);
+        when(customerDao.getCustomersByIds(new LinkedHashSet<>(List.of(3L, 2L, 1L))))
+                .thenReturn(List.of(alex, jamila));
+
+        // When
+        var actual = underTest.getCustomers(List.of(3L, 2L, 1L, 3L));
+
+        // Then
+        assertThat(actual.customers()).containsExactly(jamila, alex);
+        assertThat(actual.missingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void willThrowWhenGetCustomersHasNoIds() {
+        assertThatThrownBy(() -> underTest.getCustomers(List.of()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At least one customer id is required.");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenGetCustomersHasANullId() {
+        // Given
+        var ids = Arrays.asList(1L, null);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomers(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Customer ids must not be null.");
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenGetCustomersRequestsTooManyIds() {
+        // Given
+        var ids = LongStream.rangeClosed(1, CustomerService.MAX_BATCH_LOOKUP_SIZE + 1).boxed().toList();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomers(ids))
+                .isInstanceOf(RequestValidationException.class);
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void canGetChangesSinceAndReportMorePages() {
+        // Given
+        var first = new CustomerSyncChange(1L, null, true, Instant.now(), new CustomerSyncCursor(10L, 1L));
+        var second = new CustomerSyncChange(2L, null, true, Instant.now(), new CustomerSyncCursor(11L, 2L));
+        when(customerDao.getCustomerChangesSince(new CustomerSyncCursor(9L, 3L), 2))
+                .thenReturn(List.of(first, second));
+
+        // When
+        var actual = underTest.getChangesSince("9.3", 1);
+
+        // Then
+        assertThat(actual.changes()).containsExactly(first);
+        assertThat(actual.nextSince()).isEqualTo("10.1");
+        assertThat(actual.hasMore()).isTrue();
+    }
+
+    @Test
+    void getChangesSinceKeepsCursorWhenNothingChanged() {
+        // Given
+        when(customerDao.getCustomerChangesSince(CustomerSyncCursor.START, 501)).thenReturn(List.of());
+
+        // When
+        var actual = underTest.getChangesSince("0", 500);
+
+        // Then
+        assertThat(actual.changes()).isEmpty();
+        assertThat(actual.nextSince()).isEqualTo("0.0");
+        assertThat(actual.hasMore()).isFalse();
+    }
+
+    @Test
+    void willThrowWhenSyncCursorIsInvalid() {
+        assertThatThrownBy(() -> underTest.getChangesSince("yesterday", 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid sync cursor [yesterday].");
+    }
+
     @Test
     void addCustomer() {
         // Given
@@ -92,6 +266,26 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
     }
 
+    @Test
+    void addCustomerReturnsTheStoredCustomerAndReportsItsId() {
+        // Given
+        var email = "alex@gmail.com";
+        when(customerDao.existsCustomerWithEmail(email)).thenReturn(false);
+        doAnswer(invocation -> {
+            invocation.<Customer>getArgument(0).setId(42L);
+            return null;
+        }).when(customerDao).addCustomer(any());
+
+        // When
+        var created = underTest.addCustomer(new CustomerRegistrationRequest("Alex", email, 19));
+
+        // Then
+        assertThat(created.getId()).isEqualTo(42L);
+        assertThat(created.getEmail()).isEqualTo(email);
+        verify(eventPublisher).publishEvent(new CustomerChangedEvent(CustomerChangedEvent.ChangeType.CREATED, 42L, created));
+        verify(auditLog).record(eq(CustomerChangedEvent.ChangeType.CREATED), eq(42L), any());
+    }
+
     @Test
     void willThrowWhenEmailExistsWhileAddingACustomer() {
         // Given
@@ -110,24 +304,58 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void willThrowWhenEmailIsTakenConcurrentlyWhileAddingACustomer() {
+        // Given
+        var email = "alex@gmail.com";
+        when(customerDao.existsCustomerWithEmail(email)).thenReturn(false);
+        doThrow(new DuplicateKeyException("customer_email_unique"))
+                .when(customerDao).addCustomer(any());
+
+        var request = new CustomerRegistrationRequest("Alex", email, 19);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.addCustomer(request))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("This email is already taken.");
+    }
+
+    @Test
+    void willThrowWhenAListPageIsTooLarge() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomersAfterId(0, CustomerService.MAX_LIST_PAGE_SIZE + 1))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("limit must be 1-%s.".formatted(CustomerService.MAX_LIST_PAGE_SIZE));
+        verify(customerDao, never()).getCustomersAfterId(anyLong(), anyInt());
+    }
+
     @Test
     void deleteCustomerById() {
         // Given
         var id = 10L;
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
+        var customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        when(customerDao.getCustomerById(id)).thenReturn(Optional.of(customer));
 
         // When
         underTest.deleteCustomerById(id);
 
         // Then
         verify(customerDao).deleteCustomerById(id);
+        verify(eventPublisher).publishEvent(
+                new CustomerChangedEvent(CustomerChangedEvent.ChangeType.DELETED, id, null));
+        verify(auditLog).record(CustomerChangedEvent.ChangeType.DELETED, id, Map.of(
+                "name", new FieldChange("Alex", null),
+                "email", new FieldChange("alex@gmail.com", null),
+                "age", new FieldChange(19, null)));
     }
 
     @Test
     void willThrowDeleteCustomerByIdNotExists() {
         // Given
         var id = 10L;
-        when(customerDao.existsCustomerWithId(id)).thenReturn(false);
+        when(customerDao.getCustomerById(id)).thenReturn(Optional.empty());
 
 
         // When
@@ -212,6 +440,26 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getEmail()).isEqualTo(newEmail);
     }
 
+    @Test
+    void canChangeCaseOfOwnEmailWithoutDuplicateCheck() {
+        // Given
+        var id = 10L;
+        var customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        when(customerDao.getCustomerById(id)).thenReturn(Optional.of(customer));
+
+        var newEmail = "Alex@Gmail.com";
+        var updateRequest = new CustomerUpdateRequest(null, newEmail, null);
+
+        // When
+        underTest.updateCustomer(id, updateRequest);
+
+        // Then
+        var customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getEmail()).isEqualTo(newEmail);
+        verify(customerDao, never()).existsCustomerWithEmail(any());
+    }
+
     @Test
     void canUpdateOnlyCustomerAge() {
         // Given
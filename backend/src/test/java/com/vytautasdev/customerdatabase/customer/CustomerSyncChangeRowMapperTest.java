@@ -0,0 +1,62 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerSyncChangeRowMapperTest {
+
+    @Test
+    void mapRow() throws SQLException {
+        // Given
+        var rowMapper = new CustomerSyncChangeRowMapper();
+        var changedAt = Instant.parse("2023-10-01T10:15:30Z");
+
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("id")).thenReturn(1L);
+        when(resultSet.getBoolean("deleted")).thenReturn(false);
+        when(resultSet.getString("name")).thenReturn("Kevin");
+        when(resultSet.getString("email")).thenReturn("kevin@gmail.com");
+        when(resultSet.getInt("age")).thenReturn(19);
+        when(resultSet.getTimestamp("changed_at")).thenReturn(Timestamp.from(changedAt));
+        when(resultSet.getLong("change_txid")).thenReturn(42L);
+
+        // When
+        var actual = rowMapper.mapRow(resultSet, 1);
+
+        // Then
+        var expected = new CustomerSyncChange(
+                1L,
+                new Customer(1L, "Kevin", "kevin@gmail.com", 19),
+                false,
+                changedAt,
+                new CustomerSyncCursor(42L, 1L));
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void mapTombstoneRow() throws SQLException {
+        // Given
+        var rowMapper = new CustomerSyncChangeRowMapper();
+
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("id")).thenReturn(1L);
+        when(resultSet.getBoolean("deleted")).thenReturn(true);
+        when(resultSet.getTimestamp("changed_at")).thenReturn(Timestamp.from(Instant.now()));
+        when(resultSet.getLong("change_txid")).thenReturn(42L);
+
+        // When
+        var actual = rowMapper.mapRow(resultSet, 1);
+
+        // Then
+        assertThat(actual.deleted()).isTrue();
+        assertThat(actual.customer()).isNull();
+    }
+}
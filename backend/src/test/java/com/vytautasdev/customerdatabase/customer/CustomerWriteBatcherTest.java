@@ -0,0 +1,183 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import com.vytautasdev.customerdatabase.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CustomerWriteBatcherTest {
+
+    private CustomerDao customerDao;
+    private PlatformTransactionManager transactionManager;
+    private CustomerWriteBatcher underTest;
+
+    @BeforeEach
+    void setUp() {
+        customerDao = mock(CustomerDao.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        underTest = new CustomerWriteBatcher(
+                customerDao, transactionManager, true, 16, Duration.ofMillis(50), 128, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        underTest.destroy();
+    }
+
+    @Test
+    void coalescesConcurrentWritesIntoOneTransaction() throws Exception {
+        // Given
+        var futures = new ArrayList<CompletableFuture<Void>>();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            var customer = new Customer("Alex" + i, "alex" + i + "@gmail.com", 20);
+            futures.add(underTest.submit(dao -> dao.addCustomer(customer)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        verify(customerDao, times(10)).addCustomer(any());
+        verify(transactionManager, atMost(2)).commit(any());
+    }
+
+    @Test
+    void reportsUniquenessViolationOnlyToTheFailingCaller() {
+        // Given
+        var duplicate = new Customer("Jamila", "jamila@gmail.com", 20);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == duplicate) {
+                throw new DuplicateKeyException("customer_email_unique");
+            }
+            return null;
+        }).when(customerDao).addCustomer(any());
+
+        var batch = List.of(
+                new CustomerWriteBatcher.PendingWrite(
+                        dao -> dao.addCustomer(new Customer("Alex", "alex@gmail.com", 20)), new CompletableFuture<>()),
+                new CustomerWriteBatcher.PendingWrite(
+                        dao -> dao.addCustomer(duplicate), new CompletableFuture<>()));
+
+        // When
+        underTest.flush(batch);
+
+        // Then
+        assertThat(batch.get(0).result()).isCompleted();
+        assertThatThrownBy(() -> batch.get(1).result().join())
+                .hasCauseInstanceOf(DuplicateKeyException.class);
+        verify(transactionManager, atLeastOnce()).rollback(any());
+    }
+
+    @Test
+    void failsQueuedWritesWhenTheWorkerIsInterrupted() throws Exception {
+        // Given
+        var worker = new AtomicReference<Thread>();
+        var flushing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            worker.set(Thread.currentThread());
+            flushing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // like a JDBC driver, finish the statement and leave the interrupt for the batcher to notice
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }).doNothing().when(customerDao).deleteCustomerById(any());
+        var first = underTest.submit(dao -> dao.deleteCustomerById(1L));
+        flushing.await(5, TimeUnit.SECONDS);
+        var queued = underTest.submit(dao -> dao.deleteCustomerById(2L));
+
+        // When
+        worker.get().interrupt();
+
+        // Then
+        first.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Customer write batcher is shut down.");
+        verify(customerDao, never()).deleteCustomerById(2L);
+        assertThat(underTest.submit(dao -> dao.deleteCustomerById(3L))).isCompletedExceptionally();
+    }
+
+    @Test
+    void reportsAnUnknownOutcomeWhenAStartedWriteOutlivesTheTimeout() throws Exception {
+        // Given
+        var release = new CountDownLatch(1);
+        var impatient = new CustomerWriteBatcher(
+                customerDao, transactionManager, true, 16, Duration.ofMillis(1), 128, Duration.ofMillis(100));
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(customerDao).deleteCustomerById(any());
+
+        // When
+        // Then
+        try {
+            assertThatThrownBy(() -> impatient.deleteCustomerById(1L))
+                    .isInstanceOf(ServiceUnavailableException.class)
+                    .hasMessage("Customer write is still being committed and may yet succeed, check before retrying.");
+        } finally {
+            release.countDown();
+            impatient.destroy();
+        }
+    }
+
+    @Test
+    void neverAppliesAQueuedWriteWhoseCallerTimedOut() throws Exception {
+        // Given
+        var flushing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var impatient = new CustomerWriteBatcher(
+                customerDao, transactionManager, true, 1, Duration.ZERO, 128, Duration.ofMillis(100));
+        doAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(customerDao).deleteCustomerById(any());
+        var stalled = impatient.submit(dao -> dao.deleteCustomerById(1L));
+        flushing.await(5, TimeUnit.SECONDS);
+
+        // When
+        var thrown = catchThrowable(() -> impatient.deleteCustomerById(2L));
+        release.countDown();
+        stalled.get(5, TimeUnit.SECONDS);
+        impatient.destroy();
+
+        // Then
+        assertThat(thrown)
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Customer write did not commit in time, please retry later.");
+        verify(customerDao, never()).deleteCustomerById(2L);
+    }
+
+    @Test
+    void directBatcherWritesStraightThrough() {
+        // Given
+        var direct = CustomerWriteBatcher.direct(customerDao);
+
+        // When
+        direct.deleteCustomerById(1L);
+
+        // Then
+        verify(customerDao).deleteCustomerById(1L);
+        verifyNoInteractions(transactionManager);
+    }
+}
@@ -0,0 +1,26 @@
+package com.vytautasdev.customerdatabase.customer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailNormalizerTest {
+
+    @Test
+    void lowercasesAndTrimsSpaces() {
+        // When
+        var actual = EmailNormalizer.normalize("  Kevin.Doyle@Gmail.COM ");
+
+        // Then
+        assertThat(actual).isEqualTo("kevin.doyle@gmail.com");
+    }
+
+    @Test
+    void keepsEverythingElseAsIs() {
+        // When
+        var actual = EmailNormalizer.normalize("kevin+news@gmail.com");
+
+        // Then
+        assertThat(actual).isEqualTo("kevin+news@gmail.com");
+    }
+}
@@ -0,0 +1,59 @@
+package com.vytautasdev.customerdatabase.datasource;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter underTest = new ReadYourWritesFilter(Duration.ofMinutes(1));
+
+    @Test
+    void pinsClientToPrimaryAfterItWrites() throws Exception {
+        // Given
+        underTest.doFilter(request("POST", "client-a"), new MockHttpServletResponse(), (req, res) -> {
+        });
+
+        // When
+        var roleForWriter = roleDuringRequest(request("GET", "client-a"));
+        var roleForOtherClient = roleDuringRequest(request("GET", "client-b"));
+
+        // Then
+        assertThat(roleForWriter).isEqualTo(DataSourceRole.PRIMARY);
+        assertThat(roleForOtherClient).isEqualTo(DataSourceRole.REPLICA);
+        assertThat(DataSourceRoutingContext.onReplica(DataSourceRoutingContext::currentRole))
+                .isEqualTo(DataSourceRole.REPLICA);
+    }
+
+    @Test
+    void failedWritesDoNotPinClient() throws Exception {
+        // Given
+        underTest.doFilter(request("POST", "client-a"), new MockHttpServletResponse(), (req, res) ->
+                ((MockHttpServletResponse) res).setStatus(409));
+
+        // When
+        var actual = roleDuringRequest(request("GET", "client-a"));
+
+        // Then
+        assertThat(actual).isEqualTo(DataSourceRole.REPLICA);
+    }
+
+    private DataSourceRole roleDuringRequest(MockHttpServletRequest request) throws Exception {
+        var role = new AtomicReference<DataSourceRole>();
+        underTest.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+                role.set(DataSourceRoutingContext.onReplica(DataSourceRoutingContext::currentRole)));
+        return role.get();
+    }
+
+    private static MockHttpServletRequest request(String method, String clientId) {
+        var request = new MockHttpServletRequest(method, "/api/v1/customers/");
+        request.addHeader(ClientIdentity.CLIENT_ID_HEADER, clientId);
+        return request;
+    }
+}
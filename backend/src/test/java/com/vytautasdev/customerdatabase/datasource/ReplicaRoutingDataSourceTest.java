@@ -0,0 +1,83 @@
+package com.vytautasdev.customerdatabase.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private ReplicaRoutingDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // stand-ins for two Postgres instances
+        var primary = mock(DataSource.class);
+        var replica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        underTest = new ReplicaRoutingDataSource(primary, replica);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataSourceRoutingContext.pinToPrimary(false);
+    }
+
+    @Test
+    void routesToPrimaryByDefault() throws SQLException {
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void routesReplicaReadsToReplica() {
+        var actual = DataSourceRoutingContext.onReplica(this::connection);
+
+        assertThat(actual).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void routesReplicaReadsToPrimaryWhenClientIsPinned() {
+        // Given
+        DataSourceRoutingContext.pinToPrimary(true);
+
+        // When
+        var actual = DataSourceRoutingContext.onReplica(this::connection);
+
+        // Then
+        assertThat(actual).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void routesReplicaReadsToPrimaryInsideReadWriteTransaction() {
+        // Given
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            // When
+            var actual = DataSourceRoutingContext.onReplica(this::connection);
+
+            // Then
+            assertThat(actual).isSameAs(primaryConnection);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    private Connection connection() {
+        try {
+            return underTest.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.vytautasdev.customerdatabase.grpc;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerRegistrationRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerService;
+import com.vytautasdev.customerdatabase.customer.CustomerUpdateRequest;
+import com.vytautasdev.customerdatabase.exception.DuplicateResourceException;
+import com.vytautasdev.customerdatabase.exception.ResourceNotFoundException;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import com.vytautasdev.customerdatabase.proto.CustomerServiceGrpc;
+import com.vytautasdev.customerdatabase.proto.CustomerServiceProto;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerGrpcServiceTest {
+
+    private CustomerService customerService;
+    private Server server;
+    private ManagedChannel channel;
+    private CustomerServiceGrpc.CustomerServiceBlockingStub blockingStub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        customerService = mock(CustomerService.class);
+        var name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(new CustomerGrpcService(customerService, 2))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        blockingStub = CustomerServiceGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void getsCustomerById() {
+        // Given
+        when(customerService.getCustomer(1L)).thenReturn(new Customer(1L, "Alex", "alex@example.com", 30));
+
+        // When
+        var customer = blockingStub.getCustomer(CustomerServiceProto.GetCustomerRequest.newBuilder().setId(1).build());
+
+        // Then
+        assertThat(customer.getEmail()).isEqualTo("alex@example.com");
+    }
+
+    @Test
+    void mapsServiceExceptionsToStatusCodes() {
+        // Given
+        when(customerService.getCustomer(9L)).thenThrow(new ResourceNotFoundException("Customer with id [9] not found."));
+
+        // When / Then
+        assertThatThrownBy(() -> blockingStub.getCustomer(
+                CustomerServiceProto.GetCustomerRequest.newBuilder().setId(9).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e -> {
+                    assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+                    assertThat(e.getStatus().getDescription()).isEqualTo("Customer with id [9] not found.");
+                });
+    }
+
+    @Test
+    void streamsAllCustomersPageByPageInIdOrder() {
+        // Given
+        when(customerService.getCustomersAfterId(0, 2)).thenReturn(List.of(customer(1), customer(3)));
+        when(customerService.getCustomersAfterId(3, 2)).thenReturn(List.of(customer(4)));
+
+        // When
+        var ids = new ArrayList<Long>();
+        blockingStub.listCustomers(CustomerServiceProto.ListCustomersRequest.getDefaultInstance())
+                .forEachRemaining(customer -> ids.add(customer.getId()));
+
+        // Then
+        assertThat(ids).containsExactly(1L, 3L, 4L);
+    }
+
+    @Test
+    void registrationAnswersWithTheStoredCustomer() {
+        // Given
+        when(customerService.addCustomer(new CustomerRegistrationRequest("Alex", "alex@example.com", 30)))
+                .thenReturn(new Customer(42L, "Alex", "alex@example.com", 30));
+
+        // When
+        var registered = blockingStub.registerCustomer(registration("Alex", "alex@example.com"));
+
+        // Then
+        assertThat(registered.getId()).isEqualTo(42L);
+        assertThat(registered.getEmail()).isEqualTo("alex@example.com");
+    }
+
+    @Test
+    void bulkRegistrationReportsFailuresPerRequest() throws Exception {
+        // Given
+        doThrow(new DuplicateResourceException("This email is already taken."))
+                .when(customerService).addCustomer(eq(new CustomerRegistrationRequest("Taken", "taken@example.com", 30)));
+        var response = new CompletableFuture<CustomerServiceProto.RegisterCustomersResponse>();
+        var requests = CustomerServiceGrpc.newStub(channel).registerCustomers(new StreamObserver<>() {
+            @Override
+            public void onNext(CustomerServiceProto.RegisterCustomersResponse value) {
+                response.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                response.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        // When
+        requests.onNext(registration("Alex", "alex@example.com"));
+        requests.onNext(registration("Taken", "taken@example.com"));
+        requests.onNext(registration("Jamie", "jamie@example.com"));
+        requests.onCompleted();
+
+        // Then
+        var result = response.get(5, TimeUnit.SECONDS);
+        assertThat(result.getRegistered()).isEqualTo(2);
+        assertThat(result.getFailuresList()).singleElement().satisfies(failure -> {
+            assertThat(failure.getIndex()).isEqualTo(1);
+            assertThat(failure.getCode()).isEqualTo("ALREADY_EXISTS");
+        });
+    }
+
+    @Test
+    void updatesOnlyTheFieldsSent() {
+        // When
+        blockingStub.updateCustomer(CustomerServiceProto.UpdateCustomerRequest.newBuilder()
+                .setId(4)
+                .setAge(31)
+                .build());
+
+        // Then
+        verify(customerService).updateCustomer(4L, new CustomerUpdateRequest(null, null, 31));
+    }
+
+    @Test
+    void deletesCustomer() {
+        // When
+        blockingStub.deleteCustomer(CustomerServiceProto.DeleteCustomerRequest.newBuilder().setId(5).build());
+
+        // Then
+        verify(customerService).deleteCustomerById(5L);
+    }
+
+    private static Customer customer(long id) {
+        return new Customer(id, "Customer " + id, "c" + id + "@example.com", 30);
+    }
+
+    private static CustomerProto.CustomerRegistrationRequest registration(String name, String email) {
+        return CustomerProto.CustomerRegistrationRequest.newBuilder()
+                .setName(name)
+                .setEmail(email)
+                .setAge(30)
+                .build();
+    }
+}
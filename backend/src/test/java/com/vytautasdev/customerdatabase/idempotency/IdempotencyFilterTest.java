@@ -0,0 +1,248 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"name\":\"Alex\",\"email\":\"alex@gmail.com\",\"age\":19}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyFilter underTest;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new IdempotencyFilter(new InMemoryIdempotencyStore(1000, Duration.ofHours(1)), Duration.ofSeconds(5),
+                meterRegistry);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void replaysTheFirstResponseWithoutRunningTheRequestAgain() throws Exception {
+        // Given
+        FilterChain chain = (req, res) -> {
+            executions.incrementAndGet();
+            assertThat(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+            var response = (HttpServletResponse) res;
+            response.setStatus(201);
+            response.setHeader("Location", "/api/v1/customers/42");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"id\":42}");
+        };
+        var first = new MockHttpServletResponse();
+        underTest.doFilter(request("key-1", "client-a", BODY), first, chain);
+
+        // When
+        var retry = new MockHttpServletResponse();
+        underTest.doFilter(request("key-1", "client-a", BODY), retry, chain);
+
+        // Then
+        assertThat(executions).hasValue(1);
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getContentAsString()).isEqualTo("{\"id\":42}");
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader("Location")).isEqualTo("/api/v1/customers/42");
+        assertThat(retry.getContentType()).isEqualTo("application/json");
+        assertThat(retry.getContentAsString()).isEqualTo("{\"id\":42}");
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(requests("replayed")).isEqualTo(1);
+    }
+
+    @Test
+    void replaysErrorsWithTheirMessage() throws Exception {
+        // Given
+        FilterChain chain = (req, res) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) res).sendError(409, "This email is already taken.");
+        };
+        underTest.doFilter(request("key-1", "client-a", BODY), new MockHttpServletResponse(), chain);
+
+        // When
+        var retry = new MockHttpServletResponse();
+        underTest.doFilter(request("key-1", "client-a", BODY), retry, chain);
+
+        // Then
+        assertThat(executions).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(409);
+        assertThat(retry.getErrorMessage()).isEqualTo("This email is already taken.");
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() throws Exception {
+        // Given
+        underTest.doFilter(request("key-1", "client-a", BODY), new MockHttpServletResponse(), counting());
+
+        // When
+        var response = new MockHttpServletResponse();
+        underTest.doFilter(request("key-1", "client-a", BODY.replace("19", "20")), response, counting());
+
+        // Then
+        assertThat(executions).hasValue(1);
+        assertThat(response.getStatus()).isEqualTo(422);
+        assertThat(requests("mismatch")).isEqualTo(1);
+    }
+
+    @Test
+    void runsAgainAfterServerErrorsAndExceptions() throws Exception {
+        // Given
+        FilterChain failing = (req, res) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) res).setStatus(503);
+        };
+        FilterChain throwing = (req, res) -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("database down");
+        };
+        underTest.doFilter(request("key-1", "client-a", BODY), new MockHttpServletResponse(), failing);
+        assertThatThrownBy(() -> underTest.doFilter(request("key-1", "client-a", BODY), new MockHttpServletResponse(), throwing))
+                .isInstanceOf(IllegalStateException.class);
+
+        // When
+        var response = new MockHttpServletResponse();
+        underTest.doFilter(request("key-1", "client-a", BODY), response, counting());
+
+        // Then
+        assertThat(executions).hasValue(3);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void coalescesConcurrentDuplicatesIntoOneExecution() throws Exception {
+        // Given
+        var callers = 8;
+        var release = new CountDownLatch(1);
+        FilterChain slow = (req, res) -> {
+            executions.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) res).setStatus(201);
+            res.getWriter().write("created");
+        };
+        var executor = Executors.newFixedThreadPool(callers);
+        var responses = new ArrayList<Future<MockHttpServletResponse>>();
+
+        // When
+        for (int i = 0; i < callers; i++) {
+            responses.add(executor.submit(() -> {
+                var response = new MockHttpServletResponse();
+                underTest.doFilter(request("key-1", "client-a", BODY), response, slow);
+                return response;
+            }));
+        }
+        // let the duplicates pile up behind the first request
+        Thread.sleep(200);
+        release.countDown();
+
+        // Then
+        for (var response : responses) {
+            assertThat(response.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(201);
+            assertThat(response.get().getContentAsString()).isEqualTo("created");
+        }
+        executor.shutdown();
+        assertThat(executions).hasValue(1);
+        assertThat(requests("coalesced") + requests("replayed")).isEqualTo(callers - 1);
+    }
+
+    @Test
+    void keysAreScopedToTheClient() throws Exception {
+        // Given
+        underTest.doFilter(request("key-1", "client-a", BODY), new MockHttpServletResponse(), counting());
+
+        // When
+        var response = new MockHttpServletResponse();
+        underTest.doFilter(request("key-1", "client-b", BODY), response, counting());
+
+        // Then
+        assertThat(executions).hasValue(2);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void leavesOtherRequestsAlone() throws Exception {
+        // Given
+        var withoutKey = request(null, "client-a", BODY);
+        var batchRead = request("key-1", "client-a", "{\"ids\":[1]}");
+        batchRead.setRequestURI("/api/v1/customers/batch");
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            underTest.doFilter(withoutKey, new MockHttpServletResponse(), counting());
+            underTest.doFilter(batchRead, new MockHttpServletResponse(), counting());
+        }
+
+        // Then
+        assertThat(executions).hasValue(4);
+    }
+
+    @Test
+    void rejectsKeysThatAreBlankOrTooLong() throws Exception {
+        // Given
+        var blank = new MockHttpServletResponse();
+        var tooLong = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request(" ", "client-a", BODY), blank, counting());
+        underTest.doFilter(request("k".repeat(IdempotencyFilter.MAX_KEY_LENGTH + 1), "client-a", BODY), tooLong, counting());
+
+        // Then
+        assertThat(blank.getStatus()).isEqualTo(400);
+        assertThat(tooLong.getStatus()).isEqualTo(400);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void onlyOutcomesThatDependOnTheRequestAreFinal() {
+        assertThat(IdempotencyFilter.isFinal(200)).isTrue();
+        assertThat(IdempotencyFilter.isFinal(201)).isTrue();
+        assertThat(IdempotencyFilter.isFinal(400)).isTrue();
+        assertThat(IdempotencyFilter.isFinal(409)).isTrue();
+        assertThat(IdempotencyFilter.isFinal(408)).isFalse();
+        assertThat(IdempotencyFilter.isFinal(429)).isFalse();
+        assertThat(IdempotencyFilter.isFinal(500)).isFalse();
+    }
+
+    private FilterChain counting() {
+        return (req, res) -> executions.incrementAndGet();
+    }
+
+    private double requests(String outcome) {
+        var counter = meterRegistry.find("customer.idempotency.requests").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static MockHttpServletRequest request(String idempotencyKey, String clientId, String body) {
+        var request = new MockHttpServletRequest("POST", "/api/v1/customers/");
+        if (idempotencyKey != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        request.addHeader(ClientIdentity.CLIENT_ID_HEADER, clientId);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,102 @@
+package com.vytautasdev.customerdatabase.idempotency;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcIdempotencyStoreTest extends AbstractTestcontainers {
+
+    // every getJdbcTemplate() call opens its own pool
+    private static final JdbcTemplate JDBC_TEMPLATE = getJdbcTemplate();
+
+    private final JdbcIdempotencyStore underTest =
+            new JdbcIdempotencyStore(JDBC_TEMPLATE, Duration.ofHours(1), Duration.ofMinutes(1));
+
+    @Test
+    void secondClaimSeesTheFirstOneAndThenItsOutcome() {
+        // Given
+        var key = UUID.randomUUID().toString();
+        var response = new IdempotentResponse(201, false, null, "application/json", "/api/v1/customers/7",
+                "{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        var first = underTest.claim(key, "fingerprint");
+        var whileRunning = underTest.claim(key, "fingerprint");
+        underTest.complete(key, "fingerprint", response);
+        var afterwards = underTest.claim(key, "fingerprint");
+
+        // Then
+        assertThat(first).isEmpty();
+        assertThat(whileRunning).hasValueSatisfying(record -> assertThat(record.completed()).isFalse());
+        assertThat(afterwards).hasValueSatisfying(record -> {
+            assertThat(record.fingerprint()).isEqualTo("fingerprint");
+            assertThat(record.response()).usingRecursiveComparison().isEqualTo(response);
+        });
+    }
+
+    @Test
+    void releasedClaimsCanBeClaimedAgainButOutcomesCannotBeReleased() {
+        // Given
+        var released = UUID.randomUUID().toString();
+        var completed = UUID.randomUUID().toString();
+        underTest.claim(released, "fingerprint");
+        underTest.claim(completed, "fingerprint");
+        underTest.complete(completed, "fingerprint", new IdempotentResponse(409, true, "taken", null, null, new byte[0]));
+
+        // When
+        underTest.release(released);
+        underTest.release(completed);
+
+        // Then
+        assertThat(underTest.claim(released, "other")).isEmpty();
+        assertThat(underTest.claim(completed, "fingerprint")).hasValueSatisfying(record -> {
+            assertThat(record.response().error()).isTrue();
+            assertThat(record.response().message()).isEqualTo("taken");
+        });
+    }
+
+    @Test
+    void expiredKeysAndAbandonedClaimsAreTakenOver() {
+        // Given
+        var expired = UUID.randomUUID().toString();
+        var abandoned = UUID.randomUUID().toString();
+        underTest.claim(expired, "fingerprint");
+        underTest.complete(expired, "fingerprint", new IdempotentResponse(200, false, null, null, null, new byte[0]));
+        underTest.claim(abandoned, "fingerprint");
+        JDBC_TEMPLATE.update("UPDATE customer_idempotency_key SET expires_at = now() - interval '1 second' WHERE idempotency_key = ?", expired);
+        JDBC_TEMPLATE.update("UPDATE customer_idempotency_key SET created_at = now() - interval '2 minutes' WHERE idempotency_key = ?", abandoned);
+
+        // When
+        var expiredClaim = underTest.claim(expired, "new");
+        var abandonedClaim = underTest.claim(abandoned, "new");
+
+        // Then
+        assertThat(expiredClaim).isEmpty();
+        assertThat(abandonedClaim).isEmpty();
+        assertThat(underTest.claim(expired, "new")).hasValueSatisfying(record -> {
+            assertThat(record.fingerprint()).isEqualTo("new");
+            assertThat(record.completed()).isFalse();
+        });
+    }
+
+    @Test
+    void purgeDeletesExpiredKeys() {
+        // Given
+        var key = UUID.randomUUID().toString();
+        underTest.claim(key, "fingerprint");
+        JDBC_TEMPLATE.update("UPDATE customer_idempotency_key SET expires_at = now() - interval '1 second' WHERE idempotency_key = ?", key);
+
+        // When
+        underTest.purge();
+
+        // Then
+        assertThat(JDBC_TEMPLATE.queryForObject(
+                "SELECT count(*) FROM customer_idempotency_key WHERE idempotency_key = ?", Integer.class, key)).isZero();
+    }
+}
@@ -0,0 +1,192 @@
+package com.vytautasdev.customerdatabase.journal;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysAddsUpdatesAndDeletesAfterReopening() throws IOException {
+        // Given
+        try (var journal = open(new State())) {
+            journal.appendAdd(customer(1, "Alex", 19));
+            journal.appendAdd(customer(2, "Jamila", 25));
+            journal.appendUpdate(customer(1, "Alexander", 20));
+            journal.appendDelete(2);
+        }
+
+        // When
+        var state = new State();
+        try (var journal = open(state)) {
+
+            // Then
+            assertThat(state.customers).containsOnlyKeys(1L);
+            assertThat(state.customers.get(1L).getName()).isEqualTo("Alexander");
+            assertThat(state.customers.get(1L).getAge()).isEqualTo(20);
+            assertThat(journal.recovery().replayedRecords()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void rollsOverToNewSegmentsAndReplaysAcrossThem() throws IOException {
+        // Given
+        try (var journal = open(new State())) {
+            for (int i = 1; i <= 200; i++) {
+                journal.appendAdd(customer(i, "Customer " + i, 30));
+            }
+        }
+
+        // When
+        var state = new State();
+        try (var ignored = open(state)) {
+
+            // Then
+            assertThat(segments()).hasSizeGreaterThan(1);
+            assertThat(state.customers).hasSize(200);
+            assertThat(state.customers.get(200L).getName()).isEqualTo("Customer 200");
+        }
+    }
+
+    @Test
+    void snapshotReplacesTheSegmentsItCovers() throws IOException {
+        // Given
+        try (var journal = open(new State())) {
+            var customers = new ArrayList<Customer>();
+            for (int i = 1; i <= 200; i++) {
+                customers.add(customer(i, "Customer " + i, 30));
+                journal.appendAdd(customers.get(customers.size() - 1));
+            }
+            var checkpoint = journal.checkpoint();
+            journal.writeSnapshot(checkpoint, customers.subList(1, customers.size()));
+            journal.appendDelete(2);
+        }
+
+        // When
+        var state = new State();
+        try (var journal = open(state)) {
+
+            // Then
+            assertThat(segments()).hasSize(1);
+            assertThat(journal.recovery().snapshotRecords()).isEqualTo(199);
+            assertThat(journal.recovery().replayedRecords()).isEqualTo(1);
+            assertThat(state.customers).hasSize(198).doesNotContainKeys(1L, 2L);
+            assertThat(journal.recovery().highestId()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void tornRecordAtTheTailIsDiscardedAndOverwritten() throws IOException {
+        // Given
+        try (var journal = open(new State())) {
+            journal.appendAdd(customer(1, "Alex", 19));
+            journal.appendAdd(customer(2, "Jamila", 25));
+        }
+        // a crash in the middle of the second record: its payload never reached the disk
+        try (var channel = FileChannel.open(segments().get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var firstLength = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt(0);
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 0, 0}), 8 + firstLength - 4 + 20);
+        }
+
+        // When
+        var recovered = new State();
+        try (var journal = open(recovered)) {
+            journal.appendAdd(customer(3, "Ana", 31));
+        }
+        var afterAppend = new State();
+        try (var ignored = open(afterAppend)) {
+
+            // Then
+            assertThat(recovered.customers).containsOnlyKeys(1L);
+            assertThat(afterAppend.customers).containsOnlyKeys(1L, 3L);
+        }
+    }
+
+    @Test
+    void groupSyncMakesEveryConcurrentWriteDurable() throws Exception {
+        // Given
+        var writers = 8;
+        var perWriter = 200;
+        var executor = Executors.newFixedThreadPool(writers);
+        try (var journal = CustomerJournal.open(directory, 1 << 20, CustomerJournal.SyncMode.GROUP, Duration.ZERO,
+                new State())) {
+
+            // When
+            for (int w = 0; w < writers; w++) {
+                var writer = w;
+                executor.execute(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        var sequence = journal.appendAdd(customer(writer * perWriter + i + 1, "Customer", 30));
+                        journal.awaitDurable(sequence);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        // Then
+        var state = new State();
+        try (var ignored = open(state)) {
+            assertThat(state.customers).hasSize(writers * perWriter);
+        }
+    }
+
+    @Test
+    void refusesASecondJournalOnTheSameDirectory() throws IOException {
+        try (var ignored = open(new State())) {
+            assertThatThrownBy(() -> open(new State())).isInstanceOf(RuntimeException.class);
+        }
+    }
+
+    private CustomerJournal open(State state) throws IOException {
+        return CustomerJournal.open(directory, SEGMENT_SIZE, CustomerJournal.SyncMode.NONE, Duration.ZERO, state);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private static Customer customer(long id, String name, int age) {
+        return new Customer(id, name, name.toLowerCase().replace(' ', '.') + "@example.com", age);
+    }
+
+    private static class State implements CustomerJournal.Visitor {
+        final Map<Long, Customer> customers = new LinkedHashMap<>();
+
+        @Override
+        public void put(Customer customer) {
+            customers.put(customer.getId(), customer);
+        }
+
+        @Override
+        public void delete(long id) {
+            customers.remove(id);
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.vytautasdev.customerdatabase.journey;
 
 import com.github.javafaker.Faker;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchResponse;
 import com.vytautasdev.customerdatabase.customer.CustomerRegistrationRequest;
 import com.vytautasdev.customerdatabase.customer.CustomerUpdateRequest;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import com.vytautasdev.customerdatabase.wireformat.CustomerProtoMapper;
+import com.vytautasdev.customerdatabase.wireformat.CustomerProtobufHttpMessageConverter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,13 +19,19 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.*;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        properties = {
+                "customer.search.index-path=${java.io.tmpdir}/customer-search-index-${random.uuid}",
+                "customer.grpc.port=0"
+        })
 public class CustomerIT {
 
     @Autowired
@@ -42,14 +55,22 @@ public class CustomerIT {
 
         // send a post request
 
-        webTestClient.post()
+        var created = webTestClient.post()
                 .uri(CUSTOMERS_URI)
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(Mono.just(request), CustomerRegistrationRequest.class)
                 .exchange()
                 .expectStatus()
-                .isOk();
+                .isCreated()
+                .expectBody(Customer.class)
+                .returnResult();
+
+        // the response already carries the new customer and where to find it
+        var createdCustomer = created.getResponseBody();
+        assertThat(createdCustomer.getId()).isNotNull();
+        assertThat(created.getResponseHeaders().getLocation())
+                .hasPath("/api/v1/customers/" + createdCustomer.getId());
 
         // get all customers
         var allCustomers = webTestClient.get()
@@ -76,6 +97,7 @@ public class CustomerIT {
                 .orElseThrow();
 
         expectedCustomer.setId(id);
+        assertThat(createdCustomer).isEqualTo(expectedCustomer);
 
         // get customer by Id
         webTestClient.get()
@@ -89,6 +111,60 @@ public class CustomerIT {
                 .isEqualTo(expectedCustomer);
     }
 
+    @Test
+    void canRetryARegistrationWithTheSameIdempotencyKey() {
+        // create registration request
+        var faker = new Faker();
+        var fakerName = faker.name();
+
+        var email = fakerName.lastName() + "-" + UUID.randomUUID() + "@gmail.com";
+        var request = new CustomerRegistrationRequest(fakerName.fullName(), email, RANDOM.nextInt(1, 99));
+        var idempotencyKey = UUID.randomUUID().toString();
+
+        // send the same post request twice, as a client retrying after a timeout would
+        for (int attempt = 0; attempt < 2; attempt++) {
+            var headers = webTestClient.post()
+                    .uri(CUSTOMERS_URI)
+                    .header("Idempotency-Key", idempotencyKey)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Mono.just(request), CustomerRegistrationRequest.class)
+                    .exchange()
+                    .expectStatus()
+                    .isCreated()
+                    .returnResult(Void.class)
+                    .getResponseHeaders();
+            assertThat(headers.getFirst("Idempotent-Replayed")).isEqualTo(attempt == 0 ? null : "true");
+            assertThat(headers.getLocation()).isNotNull();
+        }
+
+        // the same key with a different request is refused
+        webTestClient.post()
+                .uri(CUSTOMERS_URI)
+                .header("Idempotency-Key", idempotencyKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("Someone Else", "else-" + email, 30)),
+                        CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(422);
+
+        // make sure that the customer was registered once
+        var allCustomers = webTestClient.get()
+                .uri(CUSTOMERS_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(new ParameterizedTypeReference<Customer>() {
+                })
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(allCustomers).filteredOn(customer -> customer.getEmail().equals(email)).hasSize(1);
+    }
+
     @Test
     void canDeleteCustomer() {
         // create registration request
@@ -109,7 +185,7 @@ public class CustomerIT {
                 .body(Mono.just(request), CustomerRegistrationRequest.class)
                 .exchange()
                 .expectStatus()
-                .isOk();
+                .isCreated();
 
         // get all customers
         var allCustomers = webTestClient.get()
@@ -166,7 +242,7 @@ public class CustomerIT {
                 .body(Mono.just(request), CustomerRegistrationRequest.class)
                 .exchange()
                 .expectStatus()
-                .isOk();
+                .isCreated();
 
         // get all customers
         var allCustomers = webTestClient.get()
@@ -217,4 +293,72 @@ public class CustomerIT {
         assertThat(updatedCustomer).isEqualTo(expected);
 
     }
+
+    @Test
+    void canExchangeCustomersInBinaryFormats() throws Exception {
+        // register with a protobuf body
+        var email = "binary-" + UUID.randomUUID() + "@gmail.com";
+        var registration = CustomerProto.CustomerRegistrationRequest.newBuilder()
+                .setName("Binary Client")
+                .setEmail(email)
+                .setAge(40)
+                .build();
+
+        webTestClient.post()
+                .uri(CUSTOMERS_URI)
+                .contentType(CustomerProtobufHttpMessageConverter.PROTOBUF)
+                .bodyValue(registration.toByteArray())
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        // list all customers as protobuf
+        var listBody = webTestClient.get()
+                .uri(CUSTOMERS_URI)
+                .accept(CustomerProtobufHttpMessageConverter.PROTOBUF)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(CustomerProtobufHttpMessageConverter.PROTOBUF)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        var registered = CustomerProtoMapper.fromProto(CustomerProto.CustomerList.parseFrom(listBody))
+                .stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .findFirst()
+                .orElseThrow();
+
+        // fetch it back as CBOR and Smile through the batch endpoint
+        for (var mapper : List.of(new CBORMapper(), new SmileMapper())) {
+            var mediaType = mapper instanceof CBORMapper
+                    ? MediaType.APPLICATION_CBOR
+                    : MediaType.parseMediaType("application/x-jackson-smile");
+            var batchBody = webTestClient.post()
+                    .uri(CUSTOMERS_URI + "batch")
+                    .contentType(mediaType)
+                    .accept(mediaType)
+                    .bodyValue(mapper.writeValueAsBytes(new CustomerBatchRequest(List.of(registered.getId()))))
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(byte[].class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertThat(mapper.readValue(batchBody, CustomerBatchResponse.class).customers())
+                    .containsExactly(registered);
+        }
+
+        // JSON stays the default
+        webTestClient.get()
+                .uri(CUSTOMERS_URI + "{id}", registered.getId())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON);
+    }
 }
@@ -0,0 +1,82 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchedBackfillTest extends AbstractTestcontainers {
+
+    // every getJdbcTemplate() call opens its own pool
+    private static final JdbcTemplate JDBC_TEMPLATE = getJdbcTemplate();
+
+    @BeforeEach
+    void setUp() {
+        JDBC_TEMPLATE.execute("CREATE TABLE backfill_test (id BIGINT PRIMARY KEY, code TEXT NOT NULL, upper_code TEXT)");
+        JDBC_TEMPLATE.update("""
+                INSERT INTO backfill_test(id, code)
+                SELECT n, 'code-' || n FROM generate_series(1, 12) n
+                """);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JDBC_TEMPLATE.execute("DROP TABLE backfill_test");
+    }
+
+    @Test
+    void updatesEveryPendingRowInChunks() {
+        // Given
+        var underTest = backfill("id", 5);
+
+        // When
+        var result = underTest.run(JDBC_TEMPLATE);
+
+        // Then
+        assertThat(result.scanned()).isEqualTo(12);
+        assertThat(result.updated()).isEqualTo(12);
+        assertThat(JDBC_TEMPLATE.queryForObject(
+                "SELECT count(*) FROM backfill_test WHERE upper_code = upper(code)", Long.class)).isEqualTo(12);
+    }
+
+    @Test
+    void rerunSkipsRowsAlreadyDone() {
+        // Given
+        JDBC_TEMPLATE.update("UPDATE backfill_test SET upper_code = upper(code) WHERE id <= 7");
+        var underTest = backfill("id", 5);
+
+        // When
+        var result = underTest.run(JDBC_TEMPLATE);
+
+        // Then
+        assertThat(result.updated()).isEqualTo(5);
+    }
+
+    @Test
+    void walksTextKeys() {
+        // Given
+        var underTest = backfill("code", 4);
+
+        // When
+        var result = underTest.run(JDBC_TEMPLATE);
+
+        // Then
+        assertThat(result.updated()).isEqualTo(12);
+    }
+
+    private static BatchedBackfill backfill(String keyColumn, int chunkSize) {
+        return new BatchedBackfill(
+                "backfill_test.upper_code",
+                "backfill_test",
+                keyColumn,
+                "upper_code = upper(code)",
+                "upper_code IS NULL",
+                chunkSize,
+                Duration.ofMillis(1));
+    }
+}
@@ -0,0 +1,75 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchedCopyTest extends AbstractTestcontainers {
+
+    // every getJdbcTemplate() call opens its own pool
+    private static final JdbcTemplate JDBC_TEMPLATE = getJdbcTemplate();
+
+    @BeforeEach
+    void setUp() {
+        JDBC_TEMPLATE.execute("CREATE TABLE copy_test_source (id BIGINT PRIMARY KEY, code TEXT NOT NULL)");
+        JDBC_TEMPLATE.execute("CREATE TABLE copy_test_target (id BIGINT PRIMARY KEY, code TEXT NOT NULL)");
+        JDBC_TEMPLATE.update("""
+                INSERT INTO copy_test_source(id, code)
+                SELECT n, 'code-' || n FROM generate_series(1, 12) n
+                """);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JDBC_TEMPLATE.execute("DROP TABLE copy_test_source, copy_test_target");
+    }
+
+    @Test
+    void copiesEveryRowInChunks() {
+        // Given
+        var underTest = copy(5);
+
+        // When
+        var result = underTest.run(JDBC_TEMPLATE);
+
+        // Then
+        assertThat(result.scanned()).isEqualTo(12);
+        assertThat(result.copied()).isEqualTo(12);
+        assertThat(JDBC_TEMPLATE.queryForObject("""
+                SELECT count(*) FROM copy_test_source s JOIN copy_test_target t USING (id, code)
+                """, Long.class)).isEqualTo(12);
+    }
+
+    @Test
+    void keepsRowsTheTargetAlreadyHolds() {
+        // Given
+        JDBC_TEMPLATE.update("INSERT INTO copy_test_target(id, code) VALUES (3, 'mirrored'), (9, 'mirrored')");
+        var underTest = copy(5);
+
+        // When
+        var result = underTest.run(JDBC_TEMPLATE);
+
+        // Then
+        assertThat(result.copied()).isEqualTo(10);
+        assertThat(JDBC_TEMPLATE.queryForList("SELECT id FROM copy_test_target WHERE code = 'mirrored' ORDER BY id",
+                Long.class)).containsExactly(3L, 9L);
+    }
+
+    private static BatchedCopy copy(int chunkSize) {
+        return new BatchedCopy(
+                "copy_test_source -> copy_test_target",
+                "copy_test_source",
+                "copy_test_target",
+                "id",
+                "id, code",
+                "id",
+                chunkSize,
+                Duration.ofMillis(1));
+    }
+}
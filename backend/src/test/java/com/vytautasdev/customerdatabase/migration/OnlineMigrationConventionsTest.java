@@ -0,0 +1,138 @@
+package com.vytautasdev.customerdatabase.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keeps migrations after the switch to online schema changes from taking long locks on existing tables.
+ */
+class OnlineMigrationConventionsTest {
+
+    // V7 was the first migration written as an online migration; earlier ones already ran everywhere
+    private static final int FIRST_ONLINE_VERSION = 7;
+    private static final Path SQL_MIGRATIONS = Path.of("src/main/resources/db/migration");
+    private static final Path JAVA_MIGRATIONS = Path.of("src/main/java/db/migration");
+    private static final Pattern VERSION = Pattern.compile("^V(\\d+)__.*");
+
+    private static final Pattern CREATED_TABLE = Pattern.compile(
+            "CREATE\\s+(?:TABLE|MATERIALIZED\\s+VIEW)\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)");
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(CONCURRENTLY\\s+)?.*?\\sON\\s+(?:ONLY\\s+)?(\\w+)", Pattern.DOTALL);
+    private static final Pattern ALTER_TABLE = Pattern.compile(
+            "ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?(\\w+)");
+
+    @Test
+    void sqlMigrationsDoNotLockExistingTables() throws IOException {
+        var violations = new ArrayList<String>();
+        for (var file : migrations(SQL_MIGRATIONS, ".sql")) {
+            violations(Files.readString(file)).forEach(violation -> violations.add(file.getFileName() + ": " + violation));
+        }
+
+        assertThat(violations).isEmpty();
+    }
+
+    @Test
+    void javaMigrationsAreOnlineMigrations() throws Exception {
+        for (var file : migrations(JAVA_MIGRATIONS, ".java")) {
+            var className = "db.migration." + file.getFileName().toString().replace(".java", "");
+
+            assertThat(Class.forName(className)).isAssignableTo(OnlineMigration.class);
+        }
+    }
+
+    @Test
+    void flagsTheBlockingVersionsOfOnlineSteps() {
+        // Given
+        var sql = """
+                ALTER TABLE customer
+                ADD CONSTRAINT customer_email_unique UNIQUE (email);
+                CREATE INDEX customer_age_idx ON customer (age);
+                ALTER TABLE customer ADD CONSTRAINT customer_age_positive CHECK (age > 0);
+                ALTER TABLE customer ALTER COLUMN age SET NOT NULL;
+                """;
+
+        // When
+        var violations = violations(sql);
+
+        // Then
+        assertThat(violations).hasSize(4);
+    }
+
+    @Test
+    void acceptsOnlineStepsAndNewTables() {
+        // Given
+        var sql = """
+                CREATE UNIQUE INDEX CONCURRENTLY customer_email_idx ON customer (email);
+                ALTER TABLE customer ADD CONSTRAINT customer_email_unique UNIQUE USING INDEX customer_email_idx;
+                ALTER TABLE customer ADD CONSTRAINT customer_age_positive CHECK (age > 0) NOT VALID;
+                CREATE TABLE customer_note (id BIGSERIAL PRIMARY KEY, customer_id BIGINT NOT NULL);
+                CREATE INDEX customer_note_customer_idx ON customer_note (customer_id);
+                ALTER TABLE customer_note ADD CONSTRAINT customer_note_customer_fk
+                    FOREIGN KEY (customer_id) REFERENCES customer (id);
+                """;
+
+        // When
+        var violations = violations(sql);
+
+        // Then
+        assertThat(violations).isEmpty();
+    }
+
+    static List<String> violations(String sql) {
+        var createdTables = new HashSet<String>();
+        var tableMatcher = CREATED_TABLE.matcher(sql.toUpperCase(Locale.ROOT));
+        while (tableMatcher.find()) {
+            createdTables.add(tableMatcher.group(1));
+        }
+
+        var violations = new ArrayList<String>();
+        for (var rawStatement : sql.split(";")) {
+            var statement = rawStatement.replaceAll("--[^\\n]*", "").strip().toUpperCase(Locale.ROOT);
+            Matcher index = CREATE_INDEX.matcher(statement);
+            if (index.lookingAt() && index.group(1) == null && !createdTables.contains(index.group(2))) {
+                violations.add("index on %s must be built CONCURRENTLY".formatted(index.group(2)));
+            }
+            Matcher alter = ALTER_TABLE.matcher(statement);
+            if (!alter.lookingAt() || createdTables.contains(alter.group(1))) {
+                continue;
+            }
+            var table = alter.group(1);
+            if (statement.matches("(?s).*ADD\\s+CONSTRAINT\\s+\\w+\\s+(CHECK|FOREIGN\\s+KEY).*")
+                    && !statement.contains("NOT VALID")) {
+                violations.add("check or foreign key on %s must be added NOT VALID and validated".formatted(table));
+            }
+            if (statement.matches("(?s).*ADD\\s+CONSTRAINT\\s+\\w+\\s+(UNIQUE|PRIMARY\\s+KEY).*")
+                    && !statement.contains("USING INDEX")) {
+                violations.add("unique key on %s must use a concurrently built index".formatted(table));
+            }
+            if (statement.matches("(?s).*SET\\s+NOT\\s+NULL.*")) {
+                violations.add("NOT NULL on %s scans under an exclusive lock, use a validated check".formatted(table));
+            }
+        }
+        return violations;
+    }
+
+    private static List<Path> migrations(Path directory, String extension) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(extension))
+                    .filter(file -> {
+                        var version = VERSION.matcher(file.getFileName().toString());
+                        return version.matches() && Integer.parseInt(version.group(1)) >= FIRST_ONLINE_VERSION;
+                    })
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.vytautasdev.customerdatabase.notify;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vytautasdev.customerdatabase.notify.CustomerChangeNotification.Operation.DELETE;
+import static com.vytautasdev.customerdatabase.notify.CustomerChangeNotification.Operation.INSERT;
+import static com.vytautasdev.customerdatabase.notify.CustomerChangeNotification.Operation.UPDATE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CustomerChangeBusTest extends AbstractTestcontainers {
+
+    // every getJdbcTemplate() call opens its own pool
+    private static final JdbcTemplate JDBC_TEMPLATE = getJdbcTemplate();
+
+    private final RecordingSubscriber subscriber = new RecordingSubscriber();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerChangeBus underTest;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new DataSourceProperties();
+        properties.setUrl(postgreSQLContainer.getJdbcUrl());
+        properties.setUsername(postgreSQLContainer.getUsername());
+        properties.setPassword(postgreSQLContainer.getPassword());
+        underTest = new CustomerChangeBus(List.of(subscriber), properties, Duration.ofMillis(100), Duration.ofSeconds(30),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.stop();
+    }
+
+    @Test
+    void deliversChangesMadeOutsideTheApp() {
+        // Given
+        underTest.start();
+        eventually(() -> assertThat(subscriber.resyncs).hasValue(1));
+
+        // When
+        var id = JDBC_TEMPLATE.queryForObject(
+                "INSERT INTO customer(name, email, age) VALUES ('Alex', ?, 19) RETURNING id", Long.class,
+                FAKER.internet().safeEmailAddress() + "-" + System.nanoTime());
+        JDBC_TEMPLATE.update("UPDATE customer SET age = 20 WHERE id = ?", id);
+        // bookkeeping columns only: not a change anyone caches
+        JDBC_TEMPLATE.update("UPDATE customer SET change_txid = change_txid WHERE id = ?", id);
+        JDBC_TEMPLATE.update("DELETE FROM customer WHERE id = ?", id);
+
+        // Then
+        eventually(() -> assertThat(subscriber.changes).hasSize(3));
+        assertThat(subscriber.changes)
+                .extracting(CustomerChangeNotification::operation, CustomerChangeNotification::customerId)
+                .containsExactly(tuple(INSERT, id), tuple(UPDATE, id), tuple(DELETE, id));
+        assertThat(meterRegistry.get("customer.changes.lag").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void rolledBackChangesAreNotDelivered() {
+        // Given
+        underTest.start();
+        eventually(() -> assertThat(subscriber.resyncs).hasValue(1));
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(JDBC_TEMPLATE.getDataSource()));
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            JDBC_TEMPLATE.update("INSERT INTO customer(name, email, age) VALUES ('Alex', ?, 19)",
+                    FAKER.internet().safeEmailAddress() + "-" + System.nanoTime());
+            status.setRollbackOnly();
+        });
+        var id = JDBC_TEMPLATE.queryForObject(
+                "INSERT INTO customer(name, email, age) VALUES ('Alex', ?, 19) RETURNING id", Long.class,
+                FAKER.internet().safeEmailAddress() + "-" + System.nanoTime());
+
+        // Then
+        eventually(() -> assertThat(subscriber.changes).isNotEmpty());
+        assertThat(subscriber.changes).extracting(CustomerChangeNotification::customerId).containsExactly(id);
+    }
+
+    @Test
+    void reconnectsAndResyncsAfterLosingTheConnection() {
+        // Given
+        underTest.start();
+        eventually(() -> assertThat(subscriber.resyncs).hasValue(1));
+
+        // When
+        JDBC_TEMPLATE.queryForList("""
+                SELECT pg_terminate_backend(pid) FROM pg_stat_activity
+                WHERE datname = current_database() AND query = 'LISTEN customer_changed'
+                """);
+
+        // Then
+        eventually(() -> assertThat(subscriber.resyncs).hasValue(2));
+        var id = JDBC_TEMPLATE.queryForObject(
+                "INSERT INTO customer(name, email, age) VALUES ('Alex', ?, 19) RETURNING id", Long.class,
+                FAKER.internet().safeEmailAddress() + "-" + System.nanoTime());
+        eventually(() -> assertThat(subscriber.changes).extracting(CustomerChangeNotification::customerId).contains(id));
+    }
+
+    @Test
+    void subscriberThatFailsToApplyAChangeIsResynced() {
+        // Given
+        var healthy = new RecordingSubscriber();
+        var bus = new CustomerChangeBus(List.of(new FailingSubscriber(subscriber), healthy), new DataSourceProperties(),
+                Duration.ofMillis(100), Duration.ofSeconds(30), meterRegistry);
+
+        // When
+        bus.dispatch("U,42,1700000000000");
+        bus.dispatch("not a notification");
+
+        // Then
+        assertThat(subscriber.resyncs).hasValue(1);
+        assertThat(healthy.resyncs).hasValue(0);
+        assertThat(healthy.changes).extracting(CustomerChangeNotification::customerId).containsExactly(42L);
+        assertThat(meterRegistry.get("customer.changes.subscriber.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.changes.notifications").counter().count()).isEqualTo(1);
+    }
+
+    private static class RecordingSubscriber implements CustomerChangeSubscriber {
+        final List<CustomerChangeNotification> changes = new CopyOnWriteArrayList<>();
+        final AtomicInteger resyncs = new AtomicInteger();
+
+        @Override
+        public void onCustomerChange(CustomerChangeNotification notification) {
+            changes.add(notification);
+        }
+
+        @Override
+        public void onResync() {
+            resyncs.incrementAndGet();
+        }
+    }
+
+    private record FailingSubscriber(RecordingSubscriber delegate) implements CustomerChangeSubscriber {
+        @Override
+        public void onCustomerChange(CustomerChangeNotification notification) {
+            throw new IllegalStateException("boom");
+        }
+
+        @Override
+        public void onResync() {
+            delegate.onResync();
+        }
+    }
+
+    private static void eventually(Runnable assertion) {
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+}
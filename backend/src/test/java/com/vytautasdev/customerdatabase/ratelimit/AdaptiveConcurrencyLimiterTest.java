@@ -0,0 +1,85 @@
+package com.vytautasdev.customerdatabase.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsOnceLimitIsReached() {
+        // Given
+        var underTest = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofMillis(100));
+
+        // When
+        // Then
+        assertThat(underTest.tryAcquire()).isTrue();
+        assertThat(underTest.tryAcquire()).isTrue();
+        assertThat(underTest.tryAcquire()).isFalse();
+        assertThat(underTest.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void halvesLimitOnSlowResponsesAndGrowsOnFastOnes() {
+        // Given
+        var underTest = new AdaptiveConcurrencyLimiter(8, 2, 10, Duration.ofMillis(100));
+
+        // When
+        underTest.tryAcquire();
+        underTest.release(TimeUnit.SECONDS.toNanos(1));
+        var afterSlow = underTest.limit();
+        underTest.tryAcquire();
+        underTest.release(TimeUnit.MILLISECONDS.toNanos(10));
+
+        // Then
+        assertThat(afterSlow).isEqualTo(4);
+        assertThat(underTest.limit()).isEqualTo(5);
+        assertThat(underTest.inFlight()).isZero();
+    }
+
+    @Test
+    void halvesOnceForRequestsThatWereAlreadyInFlight() throws Exception {
+        // Given
+        var underTest = new AdaptiveConcurrencyLimiter(8, 1, 10, Duration.ofMillis(1));
+        for (int i = 0; i < 3; i++) {
+            underTest.tryAcquire();
+        }
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            underTest.release(TimeUnit.SECONDS.toNanos(1));
+        }
+        var afterOverload = underTest.limit();
+        Thread.sleep(10);
+        underTest.tryAcquire();
+        underTest.release(TimeUnit.MILLISECONDS.toNanos(2));
+
+        // Then
+        assertThat(afterOverload).isEqualTo(4);
+        assertThat(underTest.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void staysWithinBounds() {
+        // Given
+        var underTest = new AdaptiveConcurrencyLimiter(2, 2, 3, Duration.ofMillis(100));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            underTest.tryAcquire();
+            underTest.release(TimeUnit.SECONDS.toNanos(1));
+        }
+        var floor = underTest.limit();
+        for (int i = 0; i < 5; i++) {
+            underTest.tryAcquire();
+            underTest.release(0);
+        }
+
+        // Then
+        assertThat(floor).isEqualTo(2);
+        assertThat(underTest.limit()).isEqualTo(3);
+    }
+}
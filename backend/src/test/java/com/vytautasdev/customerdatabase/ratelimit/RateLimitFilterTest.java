@@ -0,0 +1,178 @@
+package com.vytautasdev.customerdatabase.ratelimit;
+
+import com.vytautasdev.customerdatabase.client.ClientIdentity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void rejectsClientOverItsRateWith429AndRetryAfter() throws Exception {
+        // Given
+        var underTest = filter(1000, 1000, 1, 2, 16);
+
+        // When
+        var statuses = new int[3];
+        for (int i = 0; i < 3; i++) {
+            var response = new MockHttpServletResponse();
+            underTest.doFilter(request("GET", "/api/v1/customers/1", "10.0.0.1"), response, (req, res) -> {
+            });
+            statuses[i] = response.getStatus();
+            if (i == 2) {
+                assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+            }
+        }
+
+        // Then
+        assertThat(statuses).containsExactly(200, 200, 429);
+        assertThat(meterRegistry.get("customer.requests.rejected").tag("reason", "client_rate").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void aNewClientIdPerRequestDoesNotEscapeTheLimit() throws Exception {
+        // Given
+        var underTest = filter(1000, 1000, 1, 1, 16);
+
+        // When
+        var statuses = new int[2];
+        for (int i = 0; i < 2; i++) {
+            var request = request("GET", "/api/v1/customers/1", "10.0.0.1");
+            request.addHeader(ClientIdentity.CLIENT_ID_HEADER, "client-" + i);
+            var response = new MockHttpServletResponse();
+            underTest.doFilter(request, response, (req, res) -> {
+            });
+            statuses[i] = response.getStatus();
+        }
+
+        // Then
+        assertThat(statuses).containsExactly(200, 429);
+    }
+
+    @Test
+    void clientsAreLimitedIndependently() throws Exception {
+        // Given
+        var underTest = filter(1000, 1000, 1, 1, 16);
+        underTest.doFilter(request("GET", "/api/v1/customers/1", "10.0.0.1"), new MockHttpServletResponse(), (req, res) -> {
+        });
+
+        // When
+        var response = new MockHttpServletResponse();
+        underTest.doFilter(request("GET", "/api/v1/customers/1", "10.0.0.2"), response, (req, res) -> {
+        });
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shedsConcurrentExpensiveReadsWith503UnderOverload() throws Exception {
+        // Given
+        var underTest = filter(1000, 1000, 1000, 1000, 2);
+        var callers = 10;
+        var inside = new CountDownLatch(2);
+        var release = new CountDownLatch(1);
+        var served = new AtomicInteger();
+        var shed = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(callers);
+
+        // When
+        for (int i = 0; i < callers; i++) {
+            var client = "10.0.0." + i;
+            executor.execute(() -> {
+                var response = new MockHttpServletResponse();
+                try {
+                    underTest.doFilter(request("GET", "/api/v1/customers/", client), response, (req, res) -> {
+                        served.incrementAndGet();
+                        inside.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                if (response.getStatus() == 503) {
+                    shed.incrementAndGet();
+                }
+            });
+        }
+        inside.await(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(served.get()).isEqualTo(2);
+        assertThat(shed.get()).isEqualTo(callers - 2);
+    }
+
+    @Test
+    void asyncExpensiveReadHoldsItsPermitUntilTheResponseCompletes() throws Exception {
+        // Given
+        var underTest = filter(1000, 1000, 1000, 1000, 1);
+        var asyncRequest = request("GET", "/api/v1/customers/", "10.0.0.1");
+        asyncRequest.setAsyncSupported(true);
+        underTest.doFilter(asyncRequest, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        // When
+        var whileRunning = new MockHttpServletResponse();
+        underTest.doFilter(request("GET", "/api/v1/customers/", "10.0.0.2"), whileRunning, (req, res) -> {
+        });
+        asyncRequest.getAsyncContext().complete();
+        var afterCompletion = new MockHttpServletResponse();
+        underTest.doFilter(request("GET", "/api/v1/customers/", "10.0.0.3"), afterCompletion, (req, res) -> {
+        });
+
+        // Then
+        assertThat(whileRunning.getStatus()).isEqualTo(503);
+        assertThat(afterCompletion.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void onlyFullListAndSyncReadsAreExpensive() {
+        assertThat(RateLimitFilter.isExpensive(request("GET", "/api/v1/customers/", "c"))).isTrue();
+        assertThat(RateLimitFilter.isExpensive(request("GET", "/api/v1/customers/changes", "c"))).isTrue();
+        assertThat(RateLimitFilter.isExpensive(request("GET", "/api/v1/customers/1", "c"))).isFalse();
+        assertThat(RateLimitFilter.isExpensive(request("POST", "/api/v1/customers/", "c"))).isFalse();
+        var multiGet = request("GET", "/api/v1/customers/", "c");
+        multiGet.setParameter("ids", "1,2");
+        assertThat(RateLimitFilter.isExpensive(multiGet)).isFalse();
+    }
+
+    private RateLimitFilter filter(double globalRate, int globalBurst, double clientRate, int clientBurst, int concurrency) {
+        return new RateLimitFilter(
+                new TokenBucket(globalRate, globalBurst),
+                () -> new TokenBucket(clientRate, clientBurst),
+                1000,
+                new AdaptiveConcurrencyLimiter(concurrency, concurrency, concurrency, Duration.ofSeconds(10)),
+                meterRegistry);
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String remoteAddress) {
+        var request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+}
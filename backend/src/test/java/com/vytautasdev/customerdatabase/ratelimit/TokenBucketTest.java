@@ -0,0 +1,77 @@
+package com.vytautasdev.customerdatabase.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void allowsBurstThenRejectsWithWaitTime() {
+        // Given
+        var underTest = new TokenBucket(10, 3, clock::get);
+
+        // When
+        var permitted = 0;
+        while (underTest.tryAcquire() == 0) {
+            permitted++;
+        }
+
+        // Then
+        assertThat(permitted).isEqualTo(3);
+        assertThat(underTest.tryAcquire()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        // Given
+        var underTest = new TokenBucket(10, 1, clock::get);
+        underTest.tryAcquire();
+
+        // When
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Then
+        assertThat(underTest.tryAcquire()).isZero();
+        assertThat(underTest.tryAcquire()).isPositive();
+    }
+
+    @Test
+    void neverHandsOutMoreThanTheBurstUnderContention() throws Exception {
+        // Given
+        var underTest = new TokenBucket(1, 50, clock::get);
+        var permitted = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(16);
+
+        // When
+        for (int i = 0; i < 16; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < 100; j++) {
+                    if (underTest.tryAcquire() == 0) {
+                        permitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(permitted.get()).isEqualTo(50);
+    }
+}
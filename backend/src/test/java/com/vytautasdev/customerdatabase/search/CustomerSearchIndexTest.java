@@ -0,0 +1,152 @@
+package com.vytautasdev.customerdatabase.search;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerSearchIndexTest {
+
+    @TempDir
+    Path indexPath;
+    @Mock
+    private CustomerDao customerDao;
+    private CustomerSearchIndex underTest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        underTest = new CustomerSearchIndex(customerDao, new MMapDirectory(indexPath), 100);
+        when(customerDao.getCustomerChangesSince(CustomerSyncCursor.START, 100)).thenReturn(List.of(
+                upsert(1, "John Smith", "john.smith@gmail.com", 1),
+                upsert(2, "Kevin Doyle", "kevin@example.org", 2),
+                upsert(3, "Johanna Smithson", "jo@gmail.com", 3)));
+        underTest.catchUp();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        underTest.destroy();
+    }
+
+    @Test
+    void findsNamesDespiteTypos() {
+        // When
+        var actual = underTest.search("jhon smiht", 10);
+
+        // Then
+        assertThat(actual).extracting(hit -> hit.customer().getId()).first().isEqualTo(1L);
+    }
+
+    @Test
+    void matchesPrefixesAndRanksExactMatchesFirst() {
+        // When
+        var actual = underTest.search("smith", 10);
+        var prefix = underTest.search("kev", 10);
+
+        // Then
+        assertThat(actual).extracting(hit -> hit.customer().getId()).containsExactly(1L, 3L);
+        assertThat(actual.get(0).score()).isGreaterThan(actual.get(1).score());
+        assertThat(prefix).singleElement().satisfies(hit -> {
+            assertThat(hit.customer().getEmail()).isEqualTo("kevin@example.org");
+            assertThat(hit.customer().getAge()).isEqualTo(30);
+        });
+    }
+
+    @Test
+    void appliesUpdatesAndDeletesFromTheSyncFeed() throws Exception {
+        // Given
+        when(customerDao.getCustomerChangesSince(new CustomerSyncCursor(3, 3), 100)).thenReturn(List.of(
+                upsert(2, "Kevin Doyle", "kevin@newmail.com", 4),
+                new CustomerSyncChange(1L, null, true, Instant.now(), new CustomerSyncCursor(5, 1))));
+
+        // When
+        var applied = underTest.catchUp();
+
+        // Then
+        assertThat(applied).isEqualTo(2);
+        assertThat(underTest.search("newmail", 10)).singleElement()
+                .satisfies(hit -> assertThat(hit.customer().getId()).isEqualTo(2L));
+        assertThat(underTest.search("john", 10)).isEmpty();
+    }
+
+    @Test
+    void resumesFromTheCommittedCursorAfterReopening() throws Exception {
+        // Given
+        underTest.destroy();
+
+        // When
+        underTest = new CustomerSearchIndex(customerDao, new MMapDirectory(indexPath), 100);
+
+        // Then
+        assertThat(underTest.cursor()).isEqualTo(new CustomerSyncCursor(3, 3));
+        assertThat(underTest.search("kevin", 10)).hasSize(1);
+    }
+
+    @Test
+    void rebuildReindexesFromAFullScan() throws Exception {
+        // Given
+        when(customerDao.getCustomerChangesSince(any(), anyInt())).thenReturn(List.of(
+                upsert(2, "Kevin Doyle", "kevin@example.org", 2)));
+
+        // When
+        var indexed = underTest.rebuild();
+
+        // Then
+        assertThat(indexed).hasValue(1);
+        assertThat(underTest.search("smith", 10)).isEmpty();
+    }
+
+    @Test
+    void rejectsARebuildWhileAnotherIsRunning() throws Exception {
+        // Given
+        var scanning = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(customerDao.getCustomerChangesSince(any(), anyInt())).thenAnswer(invocation -> {
+            scanning.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var first = executor.submit(() -> underTest.rebuild());
+            scanning.await(5, TimeUnit.SECONDS);
+
+            // When
+            var second = underTest.rebuild();
+            release.countDown();
+
+            // Then
+            assertThat(second).isEmpty();
+            assertThat(first.get(5, TimeUnit.SECONDS)).hasValue(0);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static CustomerSyncChange upsert(long id, String name, String email, long txid) {
+        return new CustomerSyncChange(id, new Customer(id, name, email, 30), false, Instant.now(),
+                new CustomerSyncCursor(txid, id));
+    }
+}
@@ -0,0 +1,102 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.AgeBucketCount;
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import com.vytautasdev.customerdatabase.customer.EmailDomainCount;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerColumnarSnapshotTest {
+
+    private static final Instant NOW = Instant.parse("2023-10-01T10:15:30Z");
+
+    @Test
+    void aggregatesAgesAndEmailDomains() {
+        // Given
+        var underTest = CustomerColumnarSnapshot.EMPTY.apply(List.of(
+                upsert(1, "a@gmail.com", 17),
+                upsert(2, "b@Gmail.com", 30),
+                upsert(3, "c@example.org", 30),
+                upsert(4, "d@gmail.com", 70)
+        ), new CustomerSyncCursor(10, 4), NOW);
+
+        // When
+        var actual = underTest.stats(10);
+
+        // Then
+        assertThat(actual.totalCustomers()).isEqualTo(4);
+        assertThat(actual.ageDistribution()).containsExactly(
+                new AgeBucketCount("0-17", 1),
+                new AgeBucketCount("18-24", 0),
+                new AgeBucketCount("25-34", 2),
+                new AgeBucketCount("35-44", 0),
+                new AgeBucketCount("45-54", 0),
+                new AgeBucketCount("55-64", 0),
+                new AgeBucketCount("65+", 1));
+        assertThat(actual.topEmailDomains()).containsExactly(
+                new EmailDomainCount("gmail.com", 3),
+                new EmailDomainCount("example.org", 1));
+        assertThat(actual.asOf()).isEqualTo(NOW);
+    }
+
+    @Test
+    void mergesUpdatesInsertsAndDeletesIntoExistingRows() {
+        // Given
+        var base = CustomerColumnarSnapshot.EMPTY.apply(List.of(
+                upsert(1, "a@gmail.com", 20),
+                upsert(3, "c@gmail.com", 20),
+                upsert(5, "e@gmail.com", 20)
+        ), new CustomerSyncCursor(10, 5), NOW);
+
+        // When
+        var underTest = base.apply(List.of(
+                upsert(2, "b@example.org", 40),
+                upsert(3, "c@example.org", 50),
+                delete(5)
+        ), new CustomerSyncCursor(11, 5), NOW);
+
+        // Then
+        var actual = underTest.stats(10);
+        assertThat(underTest.size()).isEqualTo(3);
+        assertThat(underTest.cursor()).isEqualTo(new CustomerSyncCursor(11, 5));
+        assertThat(actual.topEmailDomains()).containsExactly(
+                new EmailDomainCount("example.org", 2),
+                new EmailDomainCount("gmail.com", 1));
+        assertThat(base.size()).isEqualTo(3);
+        assertThat(base.stats(10).topEmailDomains()).containsExactly(new EmailDomainCount("gmail.com", 3));
+    }
+
+    @Test
+    void parallelScanMatchesRowCountOnLargeSnapshots() {
+        // Given
+        var changes = new ArrayList<CustomerSyncChange>();
+        for (int id = 1; id <= 100_000; id++) {
+            changes.add(upsert(id, "c" + id + "@domain" + (id % 3) + ".com", id % 100));
+        }
+        var underTest = CustomerColumnarSnapshot.EMPTY.apply(changes, new CustomerSyncCursor(1, 100_000), NOW);
+
+        // When
+        var actual = underTest.stats(2);
+
+        // Then
+        assertThat(actual.ageDistribution().stream().mapToLong(AgeBucketCount::count).sum()).isEqualTo(100_000);
+        assertThat(actual.topEmailDomains()).hasSize(2);
+        assertThat(actual.topEmailDomains().get(0)).isEqualTo(new EmailDomainCount("domain1.com", 33_334));
+    }
+
+    private static CustomerSyncChange upsert(long id, String email, int age) {
+        return new CustomerSyncChange(id, new Customer(id, "name", email, age), false, NOW,
+                new CustomerSyncCursor(1, id));
+    }
+
+    private static CustomerSyncChange delete(long id) {
+        return new CustomerSyncChange(id, null, true, NOW, new CustomerSyncCursor(1, id));
+    }
+}
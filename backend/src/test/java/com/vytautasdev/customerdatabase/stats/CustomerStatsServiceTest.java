@@ -0,0 +1,70 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerStats;
+import com.vytautasdev.customerdatabase.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatsServiceTest {
+
+    @Mock
+    private CustomerStatsSnapshot customerStatsSnapshot;
+    @Mock
+    private CustomerDao customerDao;
+    private CustomerStatsService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerStatsService(customerStatsSnapshot, customerDao);
+    }
+
+    @Test
+    void readsDatabaseStatsFromTheDao() {
+        // Given
+        var stats = new CustomerStats(1, List.of(), List.of(), Instant.now());
+        when(customerDao.getCustomerStats(10)).thenReturn(stats);
+
+        // When
+        var actual = underTest.getStats(CustomerStatsSource.DATABASE, 10);
+
+        // Then
+        assertThat(actual).isEqualTo(stats);
+        verifyNoInteractions(customerStatsSnapshot);
+    }
+
+    @Test
+    void readsSnapshotStatsFromTheSnapshot() {
+        // Given
+        var stats = new CustomerStats(1, List.of(), List.of(), Instant.now());
+        when(customerStatsSnapshot.stats(10)).thenReturn(stats);
+
+        // When
+        var actual = underTest.getStats(CustomerStatsSource.SNAPSHOT, 10);
+
+        // Then
+        assertThat(actual).isEqualTo(stats);
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenTopDomainsOutOfRange() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getStats(CustomerStatsSource.DATABASE, 0))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("topDomains must be 1-100.");
+    }
+}
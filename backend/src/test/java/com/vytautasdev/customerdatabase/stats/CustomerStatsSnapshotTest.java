@@ -0,0 +1,72 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerDao;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatsSnapshotTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    private CustomerStatsSnapshot underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerStatsSnapshot(customerDao, 2, 100,
+                Clock.fixed(Instant.parse("2023-10-01T10:15:30Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void firstRequestLoadsTheWholeTableThroughPagedSync() {
+        // Given
+        when(customerDao.getCustomerChangesSince(CustomerSyncCursor.START, 2))
+                .thenReturn(List.of(upsert(1, 1), upsert(2, 2)));
+        when(customerDao.getCustomerChangesSince(new CustomerSyncCursor(2, 2), 2))
+                .thenReturn(List.of(upsert(3, 3)));
+
+        // When
+        var actual = underTest.stats(10);
+
+        // Then
+        assertThat(actual.totalCustomers()).isEqualTo(3);
+        verify(customerDao, never()).getAllCustomers();
+    }
+
+    @Test
+    void refreshOnlyPullsChangesAfterTheLastCursor() {
+        // Given
+        when(customerDao.getCustomerChangesSince(CustomerSyncCursor.START, 2))
+                .thenReturn(List.of(upsert(1, 1)));
+        underTest.refresh();
+        when(customerDao.getCustomerChangesSince(new CustomerSyncCursor(1, 1), 2))
+                .thenReturn(List.of(new CustomerSyncChange(1L, null, true, Instant.now(), new CustomerSyncCursor(5, 1))));
+
+        // When
+        underTest.refresh();
+
+        // Then
+        assertThat(underTest.stats(10).totalCustomers()).isZero();
+    }
+
+    private static CustomerSyncChange upsert(long id, long txid) {
+        return new CustomerSyncChange(id, new Customer(id, "name", "c" + id + "@gmail.com", 30), false,
+                Instant.now(), new CustomerSyncCursor(txid, id));
+    }
+}
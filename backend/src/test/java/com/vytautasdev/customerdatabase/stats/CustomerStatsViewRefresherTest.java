@@ -0,0 +1,57 @@
+package com.vytautasdev.customerdatabase.stats;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import com.vytautasdev.customerdatabase.customer.CustomerChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerStatsViewRefresherTest extends AbstractTestcontainers {
+
+    private CustomerStatsViewRefresher underTest;
+
+    @BeforeEach
+    void setUp() {
+        var jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerStatsViewRefresher(
+                jdbcTemplate,
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()),
+                2,
+                Duration.ofHours(1)
+        );
+    }
+
+    @Test
+    void refreshesOnlyOnceTheWriteThresholdIsReached() {
+        // Given
+        var domain = UUID.randomUUID() + ".example";
+        insertCustomer("a@" + domain);
+        underTest.onCustomerChanged(new CustomerChangedEvent(CustomerChangedEvent.ChangeType.CREATED, null, null));
+
+        // When
+        underTest.refreshIfDue();
+        var beforeThreshold = domainCount(domain);
+        insertCustomer("b@" + domain);
+        underTest.onCustomerChanged(new CustomerChangedEvent(CustomerChangedEvent.ChangeType.CREATED, null, null));
+        underTest.refreshIfDue();
+
+        // Then
+        assertThat(beforeThreshold).isZero();
+        assertThat(domainCount(domain)).isEqualTo(2);
+    }
+
+    private void insertCustomer(String email) {
+        getJdbcTemplate().update("INSERT INTO customer(name, email, age) VALUES ('Name', ?, 30)", email);
+    }
+
+    private long domainCount(String domain) {
+        return getJdbcTemplate().queryForObject(
+                "SELECT coalesce(sum(customer_count), 0) FROM customer_email_domain_counts WHERE domain = ?",
+                Long.class, domain);
+    }
+}
@@ -0,0 +1,158 @@
+package com.vytautasdev.customerdatabase.store;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class CompactCustomerStoreTest {
+
+    @Test
+    void materializesWhatWasStored() {
+        // Given
+        var store = new CompactCustomerStore();
+
+        // When
+        store.put(new Customer(7L, "Žygimantas", "žygis@example.lt", 31));
+        store.put(new Customer(8L, null, null, null));
+
+        // Then
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get(7L)).usingRecursiveComparison()
+                .isEqualTo(new Customer(7L, "Žygimantas", "žygis@example.lt", 31));
+        assertThat(store.get(8L)).usingRecursiveComparison()
+                .isEqualTo(new Customer(8L, null, null, null));
+        assertThat(store.get(9L)).isNull();
+    }
+
+    @Test
+    void readsReturnFreshObjects() {
+        // Given
+        var store = new CompactCustomerStore();
+        var customer = new Customer(1L, "Alex", "alex@example.com", 19);
+        store.put(customer);
+
+        // When
+        customer.setName("Changed");
+        store.get(1L).setAge(99);
+
+        // Then
+        assertThat(store.get(1L).getName()).isEqualTo("Alex");
+        assertThat(store.get(1L).getAge()).isEqualTo(19);
+    }
+
+    @Test
+    void overwritesKeepTheRowPositionWhetherTheTextShrinksOrGrows() {
+        // Given
+        var store = new CompactCustomerStore();
+        store.put(new Customer(1L, "Alexander", "alexander@example.com", 19));
+        store.put(new Customer(2L, "Jamila", "jamila@example.com", 25));
+
+        // When
+        store.put(new Customer(1L, "Al", "al@example.com", 20));
+        store.put(new Customer(2L, "Jamila Ahmed", "jamila.ahmed@example.com", 26));
+
+        // Then
+        assertThat(store.customers()).extracting(Customer::getId, Customer::getName, Customer::getEmail, Customer::getAge)
+                .containsExactly(
+                        tuple(1L, "Al", "al@example.com", 20),
+                        tuple(2L, "Jamila Ahmed", "jamila.ahmed@example.com", 26));
+    }
+
+    @Test
+    void keepsInsertionOrderAcrossRemovalsAndCompaction() {
+        // Given
+        var store = new CompactCustomerStore();
+        var expected = new LinkedHashMap<Long, Customer>();
+        var random = new Random(7);
+        for (long id = 1; id <= 20_000; id++) {
+            var customer = new Customer(id, "Name " + id, "customer" + id + "@example.com", (int) (id % 100));
+            store.put(customer);
+            expected.put(id, customer);
+        }
+
+        // When
+        // enough removals and growing rewrites to trigger several compactions
+        for (int i = 0; i < 30_000; i++) {
+            var id = 1L + random.nextInt(20_000);
+            if (random.nextBoolean()) {
+                assertThat(store.remove(id)).isEqualTo(expected.remove(id) != null);
+            } else if (expected.containsKey(id)) {
+                var customer = new Customer(id, "Renamed customer " + i, "renamed" + i + "@example.com", i % 100);
+                store.put(customer);
+                expected.put(id, customer);
+            }
+        }
+
+        // Then
+        assertThat(store.size()).isEqualTo(expected.size());
+        assertThat(new ArrayList<>(store.customers())).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(expected.values());
+        assertThat(store.rowCount()).isLessThan(20_000);
+        for (var id : expected.keySet()) {
+            assertThat(store.contains(id)).isTrue();
+        }
+    }
+
+    @Test
+    void copyIsIndependentAndCompacted() {
+        // Given
+        var store = new CompactCustomerStore();
+        store.put(new Customer(1L, "Alex", "alex@example.com", 19));
+        store.put(new Customer(2L, "Jamila", "jamila@example.com", 25), 7, 1_000);
+        store.remove(1L);
+
+        // When
+        var copy = store.copy();
+        store.put(new Customer(2L, "Changed", "changed@example.com", 40));
+        store.put(new Customer(3L, "Jordan", "jordan@example.com", 30));
+
+        // Then
+        assertThat(copy.rowCount()).isEqualTo(1);
+        assertThat(copy.customers()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(new Customer(2L, "Jamila", "jamila@example.com", 25));
+        assertThat(copy.changeSequence(0)).isEqualTo(7);
+        assertThat(copy.changedAtMillis(0)).isEqualTo(1_000);
+    }
+
+    @Test
+    void exposesRowsForScansWithoutMaterializing() {
+        // Given
+        var store = new CompactCustomerStore();
+        store.put(new Customer(1L, "Alex", "alex@example.com", 19));
+        store.put(new Customer(2L, "Jamila", "jamila@example.com", 25));
+        store.remove(1L);
+
+        // When
+        var emails = new ArrayList<String>();
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (store.isLive(row)) {
+                emails.add(store.email(row));
+            }
+        }
+
+        // Then
+        assertThat(emails).containsExactly("jamila@example.com");
+    }
+
+    @Test
+    void rejectsCustomersItCannotStore() {
+        // Given
+        var store = new CompactCustomerStore();
+        var tooLong = "x".repeat(CompactCustomerStore.MAX_STRING_BYTES + 1);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> store.put(new Customer("Alex", "alex@example.com", 19)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.put(new Customer(1L, tooLong, "alex@example.com", 19)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(store.size()).isZero();
+    }
+}
@@ -0,0 +1,124 @@
+package com.vytautasdev.customerdatabase.store;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.EmailNormalizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerScanEngineTest {
+
+    private static final String[] NAMES = {"Alex Brown", "Jamila ALEXANDER", "Jordan Lee", "Žydrūnas Alexis", "Mia"};
+    private static final String[] DOMAINS = {"gmail.com", "Example.COM", "mail.example.com", "outlook.com"};
+
+    private final ForkJoinPool pool = new ForkJoinPool(3);
+    private final CustomerScanEngine underTest = new CustomerScanEngine(pool);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesWhatASequentialFilterMatchesInRowOrder() {
+        // Given
+        var store = store(100_000);
+        var reference = new ArrayList<>(store.customers());
+
+        // When
+        // Then
+        assertSameAsSequential(store, reference, new CustomerQuery(30, 40, null, null),
+                customer -> customer.getAge() != null && customer.getAge() >= 30 && customer.getAge() <= 40);
+        assertSameAsSequential(store, reference, new CustomerQuery(null, null, "ALEX", null),
+                customer -> customer.getName().toLowerCase(Locale.ROOT).contains("alex"));
+        assertSameAsSequential(store, reference, new CustomerQuery(null, null, null, "example.com"),
+                customer -> EmailNormalizer.normalize(customer.getEmail()).endsWith("@example.com"));
+        assertSameAsSequential(store, reference, new CustomerQuery(25, null, "lee", "@GMAIL.com"),
+                customer -> customer.getAge() != null && customer.getAge() >= 25
+                        && customer.getName().toLowerCase(Locale.ROOT).contains("lee")
+                        && EmailNormalizer.normalize(customer.getEmail()).endsWith("@gmail.com"));
+    }
+
+    @Test
+    void skipsDeletedRowsAndCustomersWithoutTheFilteredField() {
+        // Given
+        var store = new CompactCustomerStore();
+        store.put(new Customer(1L, "Alex", "alex@example.com", 19));
+        store.put(new Customer(2L, "Alex", "alex2@example.com", 20));
+        store.put(new Customer(3L, null, null, null));
+        store.remove(1L);
+
+        // When
+        var byAge = underTest.scan(store, new CustomerQuery(0, 100, null, null));
+        var byName = underTest.scan(store, new CustomerQuery(null, null, "alex", null));
+        var everyone = underTest.scan(store, new CustomerQuery(null, null, null, null));
+
+        // Then
+        assertThat(byAge).extracting(Customer::getId).containsExactly(2L);
+        assertThat(byName).extracting(Customer::getId).containsExactly(2L);
+        assertThat(everyone).extracting(Customer::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void limitedQueriesStopEarlyWithMatchingCustomers() {
+        // Given
+        var store = store(200_000);
+
+        // When
+        var limited = underTest.scan(store, new CustomerQuery(null, null, "jordan", null, 10));
+
+        // Then
+        assertThat(limited).hasSize(10)
+                .allSatisfy(customer -> assertThat(customer.getName()).isEqualTo("Jordan Lee"));
+    }
+
+    @Test
+    void foldsTheCaseOfNonAsciiLetters() {
+        // Given
+        var store = new CompactCustomerStore();
+        store.put(new Customer(1L, "Žydrūnas", "zydrunas@ŽALGIRIS.lt", 30));
+        store.put(new Customer(2L, "Jonas", "jonas@example.lt", 30));
+
+        // When
+        var byName = underTest.scan(store, new CustomerQuery(null, null, "žYDRŪNAS", null));
+        var byDomain = underTest.scan(store, new CustomerQuery(null, null, null, "žalgiris.LT"));
+
+        // Then
+        assertThat(byName).extracting(Customer::getId).containsExactly(1L);
+        assertThat(byDomain).extracting(Customer::getId).containsExactly(1L);
+    }
+
+    @Test
+    void rejectsQueriesThatCannotMatch() {
+        assertThatThrownBy(() -> new CustomerQuery(40, 30, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CustomerQuery(null, null, null, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertSameAsSequential(CompactCustomerStore store, List<Customer> reference, CustomerQuery query,
+                                        Predicate<Customer> predicate) {
+        var expected = reference.stream().filter(predicate).toList();
+        assertThat(expected).isNotEmpty();
+        assertThat(underTest.scan(store, query)).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(expected);
+    }
+
+    private static CompactCustomerStore store(int customers) {
+        var store = new CompactCustomerStore();
+        for (int i = 0; i < customers; i++) {
+            var name = NAMES[i % NAMES.length];
+            var email = (i % 7 == 0 ? " " : "") + "customer" + i + "@" + DOMAINS[i % DOMAINS.length];
+            store.put(new Customer((long) i + 1, name, email, i % 11 == 0 ? null : 18 + i % 60));
+        }
+        return store;
+    }
+}
@@ -0,0 +1,68 @@
+package com.vytautasdev.customerdatabase.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashIndexTest {
+
+    @Test
+    void agreesWithHashMapOverRandomPutsAndRemoves() {
+        // Given
+        var index = new LongIntHashIndex(4);
+        var expected = new HashMap<Long, Integer>();
+        var random = new Random(42);
+
+        // When
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range keeps probe runs long, which is where backward shifting can go wrong
+            var key = (long) random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                var removed = index.remove(key);
+                var wasPresent = expected.remove(key);
+                assertThat(removed).isEqualTo(wasPresent == null ? LongIntHashIndex.ABSENT : wasPresent);
+            } else {
+                index.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        // Then
+        assertThat(index.size()).isEqualTo(expected.size());
+        for (long key = -2_500; key < 2_500; key++) {
+            assertThat(index.get(key)).isEqualTo(expected.getOrDefault(key, LongIntHashIndex.ABSENT));
+        }
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        // Given
+        var index = new LongIntHashIndex(16);
+
+        // When
+        for (long key = 1; key <= 100_000; key++) {
+            index.put(key * 1024, (int) key);
+        }
+
+        // Then
+        assertThat(index.size()).isEqualTo(100_000);
+        assertThat(index.get(1024)).isEqualTo(1);
+        assertThat(index.get(100_000L * 1024)).isEqualTo(100_000);
+        assertThat(index.get(7)).isEqualTo(LongIntHashIndex.ABSENT);
+    }
+
+    @Test
+    void rejectsTheEmptySlotMarkerAsKey() {
+        // Given
+        var index = new LongIntHashIndex(16);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> index.put(Long.MIN_VALUE, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,125 @@
+package com.vytautasdev.customerdatabase.wireformat;
+
+import com.vytautasdev.customerdatabase.customer.Customer;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerBatchResponse;
+import com.vytautasdev.customerdatabase.customer.CustomerRegistrationRequest;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncChange;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncCursor;
+import com.vytautasdev.customerdatabase.customer.CustomerSyncPage;
+import com.vytautasdev.customerdatabase.proto.CustomerProto;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerProtobufHttpMessageConverterTest {
+
+    private static final MediaType PROTOBUF = CustomerProtobufHttpMessageConverter.PROTOBUF;
+
+    private final CustomerProtobufHttpMessageConverter underTest = new CustomerProtobufHttpMessageConverter();
+
+    @Test
+    void writesCustomerListsAsCustomerListMessage() throws Exception {
+        // Given
+        var customers = List.of(new Customer(1L, "Alex", "alex@example.com", 30),
+                new Customer(2L, "Jamie", "jamie@example.com", 41));
+        var type = new ParameterizedTypeReference<List<Customer>>() {
+        }.getType();
+        var output = new MockHttpOutputMessage();
+
+        // When
+        var canWrite = underTest.canWrite(type, List.class, PROTOBUF);
+        underTest.write(customers, type, PROTOBUF, output);
+
+        // Then
+        assertThat(canWrite).isTrue();
+        assertThat(CustomerProtoMapper.fromProto(CustomerProto.CustomerList.parseFrom(output.getBodyAsBytes())))
+                .isEqualTo(customers);
+    }
+
+    @Test
+    void writesDeferredCustomerListsThatLostTheirElementType() throws Exception {
+        // Given
+        var customers = List.of(new Customer(1L, "Alex", "alex@example.com", 30));
+        var output = new MockHttpOutputMessage();
+
+        // When
+        var canWrite = underTest.canWrite(Object.class, customers.getClass(), PROTOBUF);
+        underTest.write(customers, Object.class, PROTOBUF, output);
+
+        // Then
+        assertThat(canWrite).isTrue();
+        assertThat(CustomerProto.CustomerList.parseFrom(output.getBodyAsBytes()).getCustomersCount()).isEqualTo(1);
+    }
+
+    @Test
+    void writesBatchResponsesAndSyncPages() throws Exception {
+        // Given
+        var batch = new CustomerBatchResponse(List.of(new Customer(1L, "Alex", "alex@example.com", 30)), List.of(7L));
+        var changedAt = Instant.parse("2026-01-02T03:04:05.123456Z");
+        var page = new CustomerSyncPage(List.of(
+                new CustomerSyncChange(1L, new Customer(1L, "Alex", "alex@example.com", 30), false, changedAt,
+                        new CustomerSyncCursor(10, 1)),
+                new CustomerSyncChange(2L, null, true, changedAt, new CustomerSyncCursor(11, 2))), "11.2", false);
+        var batchOutput = new MockHttpOutputMessage();
+        var pageOutput = new MockHttpOutputMessage();
+
+        // When
+        underTest.write(batch, CustomerBatchResponse.class, PROTOBUF, batchOutput);
+        underTest.write(page, CustomerSyncPage.class, PROTOBUF, pageOutput);
+
+        // Then
+        assertThat(CustomerProtoMapper.fromProto(CustomerProto.CustomerBatchResponse.parseFrom(batchOutput.getBodyAsBytes())))
+                .isEqualTo(batch);
+        var syncPage = CustomerProto.CustomerSyncPage.parseFrom(pageOutput.getBodyAsBytes());
+        assertThat(syncPage.getNextSince()).isEqualTo("11.2");
+        assertThat(syncPage.getChanges(0).getCustomer().getEmail()).isEqualTo("alex@example.com");
+        assertThat(syncPage.getChanges(0).getChangedAt().getNanos()).isEqualTo(123456000);
+        assertThat(syncPage.getChanges(1).hasCustomer()).isFalse();
+        assertThat(syncPage.getChanges(1).getCursor()).isEqualTo("11.2");
+    }
+
+    @Test
+    void readsRegistrationsKeepingMissingFieldsNull() throws Exception {
+        // Given
+        var body = CustomerProto.CustomerRegistrationRequest.newBuilder()
+                .setName("Alex")
+                .setEmail("alex@example.com")
+                .build()
+                .toByteArray();
+
+        // When
+        var request = underTest.read(CustomerRegistrationRequest.class, null, new MockHttpInputMessage(body));
+
+        // Then
+        assertThat(request).isEqualTo(new CustomerRegistrationRequest("Alex", "alex@example.com", null));
+    }
+
+    @Test
+    void readsBatchRequests() throws Exception {
+        // Given
+        var body = CustomerProto.CustomerBatchRequest.newBuilder().addIds(3).addIds(1).build().toByteArray();
+
+        // When
+        var request = underTest.read(CustomerBatchRequest.class, null, new MockHttpInputMessage(body));
+
+        // Then
+        assertThat(request).isEqualTo(new CustomerBatchRequest(List.of(3L, 1L)));
+    }
+
+    @Test
+    void onlyHandlesCustomerApiTypesAsProtobuf() {
+        assertThat(underTest.canWrite(String.class, String.class, PROTOBUF)).isFalse();
+        assertThat(underTest.canWrite(Customer.class, Customer.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(underTest.canRead(Customer.class, null, PROTOBUF)).isFalse();
+        assertThat(underTest.canWrite(new ParameterizedTypeReference<List<String>>() {
+        }.getType(), List.class, PROTOBUF)).isFalse();
+    }
+}
@@ -0,0 +1,163 @@
+package db.migration;
+
+import com.vytautasdev.customerdatabase.AbstractTestcontainers;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs V3 in a schema of its own, on a customer table that already holds rows.
+ */
+class PartitionCustomerTableByIdTest extends AbstractTestcontainers {
+
+    private static final String SCHEMA = "partition_migration_test";
+    private static final int CUSTOMERS = 20_000;
+    // the triggers name their tables without a schema, like the application does, so the test schema goes first
+    private static final JdbcTemplate JDBC_TEMPLATE = new JdbcTemplate(DataSourceBuilder.create()
+            .url(postgreSQLContainer.getJdbcUrl() + (postgreSQLContainer.getJdbcUrl().contains("?") ? "&" : "?")
+                    + "currentSchema=" + SCHEMA)
+            .username(postgreSQLContainer.getUsername())
+            .password(postgreSQLContainer.getPassword())
+            .build());
+
+    @BeforeEach
+    void setUp() {
+        JDBC_TEMPLATE.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        flyway("2").migrate();
+        JDBC_TEMPLATE.update("""
+                INSERT INTO customer(name, email, age)
+                SELECT 'Customer ' || n, 'customer.' || n || '@example.com', 18 + n % 60
+                FROM generate_series(1, ?) n
+                """, CUSTOMERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JDBC_TEMPLATE.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void copiesEveryCustomerIntoSixteenPartitions() {
+        // When
+        flyway("3").migrate();
+
+        // Then
+        assertThat(JDBC_TEMPLATE.queryForObject("""
+                SELECT count(*) FROM pg_inherits WHERE inhparent = 'customer'::regclass
+                """, Integer.class)).isEqualTo(V3__Partition_Customer_Table_By_Id.PARTITIONS);
+        assertThat(emailsById("SELECT customer_id, email FROM customer_email"))
+                .isEqualTo(emailsById("SELECT id, email FROM customer"))
+                .hasSize(CUSTOMERS);
+        assertThat(JDBC_TEMPLATE.queryForList("""
+                SELECT conname
+                FROM pg_constraint
+                WHERE conrelid IN ('customer'::regclass, 'customer_email'::regclass)
+                ORDER BY conname
+                """, String.class)).containsExactly("customer_email_unique", "customer_pkey");
+        assertThat(JDBC_TEMPLATE.queryForObject(
+                "SELECT to_regclass('customer_unpartitioned') IS NULL", Boolean.class)).isTrue();
+        assertThat(JDBC_TEMPLATE.queryForObject("""
+                INSERT INTO customer(name, email, age) VALUES ('New Customer', 'new@example.com', 30) RETURNING id
+                """, Long.class)).isGreaterThan(CUSTOMERS);
+    }
+
+    @Test
+    void lookupsByIdScanASinglePartitionOfTheCopiedTable() {
+        // Given
+        flyway("3").migrate();
+        JDBC_TEMPLATE.execute("ANALYZE customer");
+
+        // When
+        var plan = JDBC_TEMPLATE.queryForList(
+                "EXPLAIN SELECT id, name, email, age FROM customer WHERE id = ?", String.class, 42L);
+
+        // Then
+        assertThat(plan)
+                .filteredOn(line -> line.contains(" on customer_p"))
+                .hasSize(1);
+    }
+
+    @Test
+    void keepsWritesMadeWhileItCopies() throws Exception {
+        // Given
+        var expected = emailsById("SELECT id, email FROM customer");
+        var migrated = new AtomicBoolean();
+        var writes = CompletableFuture.supplyAsync(() -> write(expected, migrated));
+
+        // When
+        try {
+            flyway("3").migrate();
+        } finally {
+            migrated.set(true);
+        }
+        var written = writes.get(1, TimeUnit.MINUTES);
+
+        // Then
+        assertThat(written).isPositive();
+        assertThat(emailsById("SELECT id, email FROM customer")).isEqualTo(expected);
+        assertThat(emailsById("SELECT customer_id, email FROM customer_email")).isEqualTo(expected);
+    }
+
+    // inserts, updates and deletes customers until the migration is done, keeping expected in step
+    private static int write(Map<Long, String> expected, AtomicBoolean migrated) {
+        var random = new Random(42);
+        var ids = new ArrayList<>(expected.keySet());
+        var written = 0;
+        while (!migrated.get()) {
+            var id = ids.get(random.nextInt(ids.size()));
+            var email = "written." + written + "@example.com";
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    var inserted = JDBC_TEMPLATE.queryForObject("""
+                            INSERT INTO customer(name, email, age) VALUES ('Written', ?, 40) RETURNING id
+                            """, Long.class, email);
+                    expected.put(inserted, email);
+                    ids.add(inserted);
+                }
+                case 1 -> {
+                    if (JDBC_TEMPLATE.update("UPDATE customer SET email = ? WHERE id = ?", email, id) > 0) {
+                        expected.put(id, email);
+                    }
+                }
+                default -> {
+                    JDBC_TEMPLATE.update("DELETE FROM customer WHERE id = ?", id);
+                    expected.remove(id);
+                    ids.remove(id);
+                }
+            }
+            written++;
+        }
+        return written;
+    }
+
+    private static Map<Long, String> emailsById(String sql) {
+        var emails = new HashMap<Long, String>();
+        JDBC_TEMPLATE.query(sql, rs -> {
+            emails.put(rs.getLong(1), rs.getString(2));
+        });
+        return emails;
+    }
+
+    private static Flyway flyway(String target) {
+        return Flyway.configure()
+                .dataSource(postgreSQLContainer.getJdbcUrl(), postgreSQLContainer.getUsername(),
+                        postgreSQLContainer.getPassword())
+                .schemas(SCHEMA)
+                .target(target)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load();
+    }
+}